@@ -20,6 +20,9 @@ import java.util.logging.Logger;
 
 import matrix.distributionPolicy.TaskSplitPolicy;
 import matrix.distributionPolicy.TaskSplitPolicyStatic;
+import matrix.factorization.Ordering;
+import matrix.factorization.OrderingApproximateMinimumDegree;
+import matrix.factorization.OrderingNatural;
 import matrix.factory.FactoryMatrixHolder;
 import matrix.matrixImpl.Matrix;
 import matrix.matrixImpl.MatrixThreshold;
@@ -60,6 +63,13 @@ public class Configuration {
 	 */
 	public static float tolerance = 0.0001f;
 
+	/**
+	 * Ordering applied to the rows and columns of a square Matrix before factorizing it, in order to reduce the fill-in.
+	 * By default, {@link OrderingNatural} keeps the Matrix in its natural order. {@link OrderingApproximateMinimumDegree} usually reduces
+	 * the fill-in of the sparse factorizations, at the cost of analysing the pattern of the Matrix.
+	 */
+	public static Ordering ordering = new OrderingNatural();
+
 	/**
 	 * Threshold to be use for deciding when to change the internal representation of the
 	 * {@link MatrixThreshold}.
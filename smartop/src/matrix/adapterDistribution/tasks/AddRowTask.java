@@ -15,15 +15,23 @@
  */
 package matrix.adapterDistribution.tasks;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
 import matrix.adapterDistribution.IDataShared;
 import matrix.adapterDistribution.ITask;
 import matrix.factory.FactoryMatrix;
 import matrix.matrixComp.MatrixComputationSparseDistributed;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.SparseAccumulator;
 
 /**
  * This class implements the task of adding two sub-matrices. The rows in the sub-matrices range 
  * between startRow and endRow. It is used for distributing the operation of adding two Matrix.
+ * Only the non-zero elements of the sub-matrices are visited, so the cost is proportional to their number of non-zero elements.
  * 
  * <p>It requires the following data to be shared by means of a {@link IDataShared}
  * <ul>
@@ -32,6 +40,7 @@ import matrix.matrixImpl.Matrix;
  * </p> 
  * 
  * @see MatrixComputationSparseDistributed#add(Matrix, Matrix)
+ * @see MatrixComputationSparseDistributed#add(Matrix, float, Matrix)
  * @author Antonela Tommasel
  *
  */
@@ -47,6 +56,7 @@ public class AddRowTask extends ITask{
 	protected int colSize = 0;
 	protected Matrix leftSubMatrix = null;
 	protected Matrix rightSubMatrix = null;
+	protected float alfa = 1;
 	
 	/**
 	 * Creates task that calculates the adds values for rows ranging between startRow and endRow-1.
@@ -63,18 +73,57 @@ public class AddRowTask extends ITask{
 		this.rightSubMatrix = rightSubMatrix;
 		
 	}
+
+	/**
+	 * Creates task that calculates the values of <tt>left + alfa x right</tt> for rows ranging between startRow and endRow-1.
+	 * @param startRow coordinate of the first row to add
+	 * @param endRow coordinate of the last row to add
+	 * @param leftSubMatrix left summand of the operation
+	 * @param alfa scalar by which the right summand is multiplied
+	 * @param rightSubMatrix right summand of the operation
+	 */
+	public AddRowTask(int startRow, int endRow, Matrix leftSubMatrix, float alfa, Matrix rightSubMatrix) {
+		this(startRow, endRow, leftSubMatrix, rightSubMatrix);
+		this.alfa = alfa;
+	}
 	
 	@Override
 	public void run() {
 		
 		this.res=((FactoryMatrix)dataShared.getValue("factory")).createMatrix(leftSubMatrix.rowSize(), leftSubMatrix.columnSize());
 		
-		for (int row = startRow; row < endRow; row++) {
-			for (int j = 0; j < colSize; j++) {
-				float result = leftSubMatrix.getValue(row, j) + rightSubMatrix.getValue(row, j);
-				if (result != 0.0f)
-					res.setValue(row, j, result);
-			}
+		merge(startRow, endRow, leftSubMatrix, alfa, rightSubMatrix, res);
+	}
+
+	/**
+	 * Writes <tt>left + alfa x right</tt> in res for the rows ranging between startRow and endRow-1. Only the rows having non-zero elements in 
+	 * any of the sub-matrices are visited, and each of them is computed by merging the non-zero elements of both rows in a {@link SparseAccumulator}.
+	 * @param startRow coordinate of the first row to add
+	 * @param endRow coordinate of the last row to add
+	 * @param left left summand of the operation
+	 * @param alfa scalar by which the right summand is multiplied
+	 * @param right right summand of the operation
+	 * @param res Matrix in which the result is written
+	 */
+	static void merge(int startRow, int endRow, Matrix left, float alfa, Matrix right, Matrix res){
+		Set<Integer> leftRows = new HashSet<Integer>(left.getRows());
+		Set<Integer> rightRows = new HashSet<Integer>(right.getRows());
+		Set<Integer> allRows = new TreeSet<Integer>(leftRows);
+		allRows.addAll(rightRows);
+		
+		SparseAccumulator accumulator = SparseAccumulator.forThread(left.columnSize());
+		for(int row:allRows){
+			if(row < startRow || row >= endRow)
+				continue;
+			Collection<Integer> leftColumns = leftRows.contains(row) ? left.getColumns(row) : Collections.<Integer>emptyList();
+			Collection<Integer> rightColumns = rightRows.contains(row) ? right.getColumns(row) : Collections.<Integer>emptyList();
+			
+			accumulator.reserve(leftColumns.size() + rightColumns.size());
+			for(int j:leftColumns)
+				accumulator.add(j, left.getValue(row, j));
+			for(int j:rightColumns)
+				accumulator.add(j, alfa*right.getValue(row, j));
+			accumulator.gather(row, res);
 		}
 	}
 
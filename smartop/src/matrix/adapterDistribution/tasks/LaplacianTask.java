@@ -21,6 +21,7 @@ import matrix.factory.FactoryMatrix;
 import matrix.factory.FactoryMatrixHolder;
 import matrix.matrixComp.MatrixComputationSparseDistributed;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSC;
 
 /**
  * This class calculates the values of the Laplacian matrix L[i,i] for startRow <= i < endRow.
@@ -28,7 +29,8 @@ import matrix.matrixImpl.Matrix;
  * 
  * <p>It requires the following data to be shared by means of a {@link IDataShared}
  * <ul>
- * <li>The input {@link Matrix} associated to the key <tt>"A"</tt></li>
+ * <li>The input {@link Matrix} associated to the key <tt>"A"</tt>. When it is a {@link MatrixCSC}, the columns are summed
+ * visiting only their non-zero elements</li>
  * <li>A {@link FactoryMatrix} for creating the result matrix associated to the key <tt>"factory"</tt></li>
  * </ul>
  * </p>
@@ -70,6 +72,13 @@ public class LaplacianTask extends ITask{
 		
 		Matrix AMatrix = (Matrix) dataShared.getValue(MatrixComputationSparseDistributed.LAPLACIAN_MATRIX);
 		
+		if(AMatrix instanceof MatrixCSC){
+			MatrixCSC columns = (MatrixCSC) AMatrix;
+			for (int row = startRow; row < endRow; row++)
+				res.setValue(0, row, columns.getColumnSum(row));
+			return;
+		}
+		
 		for (int row = startRow; row < endRow; row++) {
 			float sum = 0;
 			for (int j = 0; j < colSize; j++) {
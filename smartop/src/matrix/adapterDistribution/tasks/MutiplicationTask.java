@@ -16,16 +16,23 @@
 package matrix.adapterDistribution.tasks;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
 
 import matrix.adapterDistribution.IDataShared;
 import matrix.adapterDistribution.ITask;
 import matrix.factory.FactoryMatrix;
 import matrix.matrixComp.MatrixComputationSparseDistributed;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.SparseAccumulator;
 
 /**
  * This task is used for distributing the matrix multiplication operation. It only multiplies the non-zero rows
- * in the left matrix that is set in the constructor.
+ * in the left matrix that is set in the constructor. Each row is computed with a {@link SparseAccumulator}, so only the
+ * rows of the right matrix selected by the non-zero elements of the left row are visited.
  * 
  * <p>It requires the following data to be shared by means of a {@link IDataShared}
  * <ul>
@@ -34,6 +41,7 @@ import matrix.matrixImpl.Matrix;
  * </ul>
  * </p>
  * @see MatrixComputationSparseDistributed#multiply(Matrix, Matrix)
+ * @see MatrixComputationSparseDistributed#multiplyAdd(float, Matrix, Matrix, float, Matrix)
  * @author Antonela Tommasel
  *
  */
@@ -45,6 +53,9 @@ public class MutiplicationTask extends ITask{
 	private static final long serialVersionUID = 1L;
 	
 	private Matrix leftMatrix = null;
+	private float alfa = 1;
+	private Matrix addend = null;
+	private float beta = 0;
 
 	/**
 	 * Creates the multiplication task.
@@ -54,23 +65,46 @@ public class MutiplicationTask extends ITask{
 		this.leftMatrix = leftMatrix;
 	}
 
+	/**
+	 * Creates the task computing <tt>alfa x left x right + beta x addend</tt>. Each row of the addend is added to the accumulator of the
+	 * same row of the product, so the product is never built on its own.
+	 * @param alfa scalar by which the product is multiplied
+	 * @param leftMatrix the rows of the left Matrix to multiply
+	 * @param beta scalar by which the addend is multiplied
+	 * @param addend the same rows of the Matrix to add to the product
+	 */
+	public MutiplicationTask(float alfa, Matrix leftMatrix, float beta, Matrix addend) {
+		this.alfa = alfa;
+		this.leftMatrix = leftMatrix;
+		this.beta = beta;
+		this.addend = addend;
+	}
+
 	@Override
 	public void run() {
-		Matrix rightMatrix = (Matrix) dataShared.getValue(MatrixComputationSparseDistributed.SECOND_MATRIX);
+		Matrix shared = (Matrix) dataShared.getValue(MatrixComputationSparseDistributed.SECOND_MATRIX);
+		MatrixCSR rightMatrix = shared instanceof MatrixCSR ? (MatrixCSR) shared : new MatrixCSR(shared);
 		res=((FactoryMatrix)dataShared.getValue(MatrixComputationSparseDistributed.FACTORY)).createMatrix(leftMatrix.rowSize(), rightMatrix.columnSize());
-		Collection<Integer> filas=leftMatrix.getRows();
+		Set<Integer> filas=new HashSet<Integer>(leftMatrix.getRows());
+		Set<Integer> addendRows=addend == null ? Collections.<Integer>emptySet() : new HashSet<Integer>(addend.getRows());
+		Set<Integer> allRows=new TreeSet<Integer>(filas);
+		allRows.addAll(addendRows);
 
-		for(Integer row:filas){
+		SparseAccumulator accumulator = SparseAccumulator.forThread(rightMatrix.columnSize());
+		for(Integer row:allRows){
 
-			Collection<Integer> col = leftMatrix.getColumns(row);
+			Collection<Integer> col = filas.contains(row) ? leftMatrix.getColumns(row) : Collections.<Integer>emptyList();
+			Collection<Integer> added = addendRows.contains(row) ? addend.getColumns(row) : Collections.<Integer>emptyList();
 
-			for(int j=0; j<rightMatrix.columnSize(); j++){
-				float aux=0;
-				for(int k:col)
-					aux+=leftMatrix.getValue(row,k)*rightMatrix.getValue(k, j);
-				if (aux != 0) 
-					res.setValue(row, j, aux);
-			}
+			long flops = added.size();
+			for(int k:col)
+				flops += (long) rightMatrix.getNonZerosRow(k);
+			accumulator.reserve(flops);
+			for(int k:col)
+				accumulator.scatter(alfa*leftMatrix.getValue(row,k), rightMatrix, k);
+			for(int j:added)
+				accumulator.add(j, beta*addend.getValue(row,j));
+			accumulator.gather(row, res);
 		}
 	}
 
@@ -25,6 +25,7 @@ import matrix.matrixImpl.Matrix;
 /**
  * This class implements the task of subtracting two sub-matrices. The rows in the sub-matrices range 
  * between startRow and endRow. It is used for distributing the operation of subtracting two Matrix.
+ * Only the non-zero elements of the sub-matrices are visited, see {@link AddRowTask}.
  * 
  * <p>It requires the following data to be shared by means of a {@link IDataShared}
  * <ul>
@@ -68,13 +69,7 @@ public class SubtractRowTask extends ITask{
 		
 		this.res = FactoryMatrixHolder.getFactory().createMatrix(leftSubMatrix.rowSize(), leftSubMatrix.columnSize());
 		
-		for (int row = startRow; row < endRow; row++) {
-			for (int j = 0; j < colSize; j++) {
-				float result = leftSubMatrix.getValue(row, j) - rightSubMatrix.getValue(row, j);
-				if (result != 0.0f)
-					res.setValue(row, j, result);
-			}
-		}
+		AddRowTask.merge(startRow, endRow, leftSubMatrix, -1, rightSubMatrix, res);
 	}
 
 }
@@ -0,0 +1,52 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * This interface defines the protocol for the factorizations used for solving linear systems. Each factorization is split in two phases:
+ * the symbolic analysis, performed when the factorization is created, which only depends on the dimensions and on the positions of the 
+ * non-zero elements of the Matrix (e.g. the ordering, the elimination tree and the pattern of the factors); and the numeric factorization 
+ * performed by {@link #factorize(Matrix)}, which computes the values of the factors.
+ * <br>
+ * Hence, when a sequence of matrices with the same pattern has to be solved, as in iterative algorithms that only update some values, 
+ * the same factorization can be factorized again for each Matrix, reusing the symbolic analysis.
+ * @author Antonela Tommasel
+ *
+ */
+public interface Factorization {
+
+	/**
+	 * Computes the numeric factorization of the Matrix, reusing the symbolic analysis. The values of a previous factorization are discarded.
+	 * @param m the Matrix to factorize, with the dimensions of the analysed one and, for the factorizations that rely on it, its pattern
+	 * @return whether the Matrix could be factorized, e.g. false when the Matrix is singular or, for Cholesky, not positive definite
+	 * @throws IllegalArgumentException may be thrown when the pattern of the Matrix does not match the analysed one, as {@link SupernodalCholesky} does.
+	 * {@link FactorizationLU} and {@link FactorizationQR} accept any pattern, as the analysed one only determines their ordering
+	 * @throws ArrayIndexOutOfBoundsException when the dimensions of the Matrix do not match the analysed one
+	 */
+	boolean factorize(Matrix m);
+
+	/**
+	 * Solves <tt>m x X = B</tt> for the last factorized Matrix m, in the least squares sense when m is not square.
+	 * @param b the right-hand sides, with as many rows as the factorized Matrix
+	 * @return the solution X, with as many rows as columns has the factorized Matrix and as many columns as B
+	 * @throws ArrayIndexOutOfBoundsException when the number of rows of B does not match the factorized Matrix
+	 * @throws IllegalStateException when no Matrix was factorized
+	 */
+	Matrix solve(Matrix b);
+
+}
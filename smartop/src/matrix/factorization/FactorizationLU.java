@@ -0,0 +1,107 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import matrix.factory.FactoryMatrixHolder;
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Implements the LU factorization with partial pivoting <tt>P x A x transpose(P) = L x U</tt> of a square Matrix, where P is the fill-reducing 
+ * permutation computed by an {@link Ordering}. The factors are computed by {@link Matrix#fastLU(int[])}, so they are stored according to the 
+ * representation of the Matrix.
+ * <br>
+ * The symbolic analysis is the ordering, which only depends on the pattern of the Matrix. As the pivoting depends on the values, the pattern 
+ * of the factors is computed along with them.
+ * @author Antonela Tommasel
+ *
+ */
+public class FactorizationLU implements Factorization {
+
+	private final int size;
+	private final int [] perm;
+	private Matrix LU;
+	private int [] piv;
+
+	/**
+	 * Analyses the pattern of the Matrix. {@link #factorize(Matrix)} has to be called before solving.
+	 * @param m the square Matrix to analyse
+	 * @param ordering the fill-reducing ordering to apply
+	 * @throws IllegalArgumentException when the Matrix is not square
+	 */
+	public FactorizationLU(Matrix m, Ordering ordering) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		size = m.rowSize();
+		int [] order = ordering.order(m);
+		perm = Permutation.isIdentity(order) ? null : order;
+	}
+
+	/**
+	 * Analyses and factorizes the Matrix.
+	 * @param m the square Matrix to factorize
+	 * @param ordering the fill-reducing ordering to apply
+	 * @return the factorization, or null when the Matrix is singular
+	 * @throws IllegalArgumentException when the Matrix is not square
+	 */
+	public static FactorizationLU factorize(Matrix m, Ordering ordering){
+		FactorizationLU lu = new FactorizationLU(m, ordering);
+		return lu.factorize(m) ? lu : null;
+	}
+
+	/**
+	 * @return the permutation applied to the rows and columns, or null when the Matrix is kept in its natural order
+	 */
+	public int [] getPermutation(){
+		return perm;
+	}
+
+	/**
+	 * Any pattern is accepted, as the pivoting does not depend on the analysis. The ordering of the analysed Matrix is kept, 
+	 * so a different pattern may only produce more fill.
+	 * @return false when the Matrix is singular
+	 */
+	@Override
+	public boolean factorize(Matrix m){
+		if(m.rowSize()!=size || m.columnSize()!=size)
+			throw new ArrayIndexOutOfBoundsException("The dimensions of the Matrix do not match the analysed one.");
+		LU = null;
+		Matrix a = perm==null ? m : FactoryMatrixHolder.getFactory().createMatrix(Permutation.symmetric(m, perm));
+		int [] pivots = new int[size];
+		Matrix factors = a.fastLU(pivots);
+		if(factors.isSingular())
+			return false;
+		LU = factors;
+		piv = pivots;
+		return true;
+	}
+
+	/**
+	 * The returned Matrix is created with the factory in {@link FactoryMatrixHolder}.
+	 */
+	@Override
+	public Matrix solve(Matrix b){
+		if(LU == null)
+			throw new IllegalStateException("The Matrix has not been factorized.");
+		if(b.rowSize()!=size)
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the factorized Matrix.");
+		//P x A x transpose(P) x P x X = P x B
+		Matrix rhs = perm==null ? b : FactoryMatrixHolder.getFactory().createMatrix(Permutation.rows(b, perm));
+		Matrix x = FactoryMatrixHolder.getFactory().createMatrix(size, b.columnSize());
+		x.findFastSolution(LU, rhs, piv);
+		return perm==null ? x : FactoryMatrixHolder.getFactory().createMatrix(Permutation.rows(x, Permutation.inverse(perm)));
+	}
+
+}
@@ -0,0 +1,81 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import matrix.factory.FactoryMatrixHolder;
+import matrix.matrixComp.MatrixComputationFD;
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Implements the QR factorization by Householder reflections of a Matrix with at least as many rows as columns, used for solving systems 
+ * in the least squares sense. The factorization is stored as in {@link MatrixComputationFD#solveQR(Matrix, float[])}: the Householder vectors 
+ * below the diagonal and the diagonal of R in a separate array, which is kept along with them instead of being passed by the caller.
+ * <br>
+ * The factorization has no symbolic analysis besides the dimensions, as the Householder reflections fill in the columns.
+ * @author Antonela Tommasel
+ *
+ */
+public class FactorizationQR implements Factorization {
+
+	private final int rows;
+	private final int columns;
+	private Matrix QR;
+	private float [] Rdiag;
+
+	/**
+	 * Creates the factorization for matrices with the dimensions of the given one. {@link #factorize(Matrix)} has to be called before solving.
+	 * @param m the Matrix to analyse
+	 * @throws IllegalArgumentException when the Matrix has less rows than columns
+	 */
+	public FactorizationQR(Matrix m) {
+		if(m.rowSize()<m.columnSize())
+			throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+		rows = m.rowSize();
+		columns = m.columnSize();
+	}
+
+	/**
+	 * Any pattern is accepted, as there is no symbolic analysis besides the dimensions.
+	 * @return false when the Matrix is rank deficient
+	 */
+	@Override
+	public boolean factorize(Matrix m){
+		if(m.rowSize()!=rows || m.columnSize()!=columns)
+			throw new ArrayIndexOutOfBoundsException("The dimensions of the Matrix do not match the analysed one.");
+		QR = null;
+		float [] diagonal = new float[columns];
+		Matrix factors = new MatrixComputationFD().solveQR(m, diagonal);
+		for(float r:diagonal) //the diagonal of R, as QR only holds the Householder vectors below it
+			if(r==0)
+				return false;
+		QR = factors;
+		Rdiag = diagonal;
+		return true;
+	}
+
+	/**
+	 * The returned Matrix is created with the factory in {@link FactoryMatrixHolder}.
+	 */
+	@Override
+	public Matrix solve(Matrix b){
+		if(QR == null)
+			throw new IllegalStateException("The Matrix has not been factorized.");
+		if(b.rowSize()!=rows)
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the factorized Matrix.");
+		return new MatrixComputationFD().solveLeastSquare(QR, FactoryMatrixHolder.getFactory().createMatrix(b), Rdiag);
+	}
+
+}
@@ -0,0 +1,90 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+
+/**
+ * Adjacency structure of the undirected graph of a square Matrix, where vertices <tt>i</tt> and <tt>j</tt> are adjacent when either 
+ * <tt>(i,j)</tt> or <tt>(j,i)</tt> is a non-zero element. The diagonal is ignored. The neighbours of vertex <tt>i</tt> are stored in 
+ * positions <tt>[pointers[i], pointers[i+1])</tt> of <tt>indices</tt>, as in the CSR format.
+ * @author Antonela Tommasel
+ *
+ */
+final class Graph {
+
+	final int size;
+	final int [] pointers;
+	final int [] indices;
+
+	/**
+	 * Builds the graph of the Matrix in time linear in its number of non-zero elements.
+	 * @param m the square Matrix
+	 * @throws IllegalArgumentException when the Matrix is not square
+	 */
+	Graph(Matrix m) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		int [] rowPointers = csr.getRowPointers();
+		int [] columnIndices = csr.getColumnIndices();
+		size = m.rowSize();
+
+		//the transpose is only needed for its pattern
+		int [] tPointers = new int[size+1];
+		for(int p=0;p<rowPointers[size];p++)
+			tPointers[columnIndices[p]+1]++;
+		for(int i=0;i<size;i++)
+			tPointers[i+1] += tPointers[i];
+		int [] tIndices = new int[rowPointers[size]];
+		int [] next = new int[size];
+		System.arraycopy(tPointers, 0, next, 0, size);
+		for(int i=0;i<size;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				tIndices[next[columnIndices[p]]++] = i;
+
+		//merges the row and the column of each vertex, skipping the repeated neighbours
+		int [] marker = new int[size];
+		for(int i=0;i<size;i++)
+			marker[i] = -1;
+		pointers = new int[size+1];
+		int [] aux = new int[2*rowPointers[size]];
+		int q = 0;
+		for(int i=0;i<size;i++){
+			marker[i] = i;
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				if(marker[columnIndices[p]]!=i){
+					marker[columnIndices[p]] = i;
+					aux[q++] = columnIndices[p];
+				}
+			for(int p=tPointers[i];p<tPointers[i+1];p++)
+				if(marker[tIndices[p]]!=i){
+					marker[tIndices[p]] = i;
+					aux[q++] = tIndices[p];
+				}
+			pointers[i+1] = q;
+		}
+		indices = aux;
+	}
+
+	/**
+	 * @return the number of neighbours of the vertex
+	 */
+	int degree(int i){
+		return pointers[i+1]-pointers[i];
+	}
+}
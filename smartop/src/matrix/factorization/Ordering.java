@@ -0,0 +1,40 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * This interface defines the protocol for implementing strategies that reorder the rows and columns of a square Matrix before factorizing it.
+ * The same permutation is applied to rows and columns, so that a symmetric Matrix remains symmetric. A good ordering reduces the number of 
+ * elements that become non-zero during the factorization (the fill-in), and thus its time and memory. 
+ * <br>
+ * Only the positions of the non-zero elements are considered, and a non-symmetric Matrix is ordered according to the pattern of <tt>m + transpose(m)</tt>.
+ * @see Permutation
+ * @author Antonela Tommasel
+ *
+ */
+public interface Ordering {
+
+	/**
+	 * Computes the order in which the rows and columns of the Matrix are to be eliminated.
+	 * @param m the square Matrix to order
+	 * @return the permutation, where position <tt>k</tt> holds the original coordinate of the row and column placed at <tt>k</tt>
+	 * @throws IllegalArgumentException when the Matrix is not square
+	 */
+	int [] order(Matrix m);
+	
+}
@@ -0,0 +1,188 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import java.util.Arrays;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Implements an approximate minimum degree ordering, following "An Approximate Minimum Degree Ordering Algorithm" by Amestoy, Davis and Duff.
+ * The elimination is simulated on the quotient graph of the Matrix: each eliminated vertex becomes an element holding the set of vertices 
+ * that form a clique after its elimination, so the graph never grows beyond its original size. At each step the vertex of minimum degree 
+ * is eliminated, and the degrees of its neighbours are replaced by an upper bound that is computed in time proportional to the size of 
+ * their adjacency lists, instead of the exact degree.
+ * <br>
+ * Elements included in the new element are absorbed, both those adjacent to the eliminated vertex and those whose vertices all belong to it.
+ * Indistinguishable vertices are not merged, so matrices with many identical rows are ordered more slowly than with the original algorithm.
+ * @author Antonela Tommasel
+ *
+ */
+public class OrderingApproximateMinimumDegree implements Ordering {
+
+	private static final byte VARIABLE = 0;
+	private static final byte ELEMENT = 1;
+	private static final byte ABSORBED = 2;
+
+	@Override
+	public int[] order(Matrix m) {
+		Graph g = new Graph(m);
+		int n = g.size;
+
+		byte [] state = new byte[n];
+		int [][] variables = new int[n][]; //adjacent vertices not yet eliminated
+		int [] variableCount = new int[n];
+		int [][] elements = new int[n][]; //adjacent elements
+		int [] elementCount = new int[n];
+		int [][] members = new int[n][]; //vertices of each element
+
+		//vertices are kept in linked lists by degree
+		int [] degree = new int[n];
+		int [] head = new int[n];
+		int [] next = new int[n];
+		int [] previous = new int[n];
+		Arrays.fill(head, -1);
+		for(int i=0;i<n;i++){
+			variables[i] = Arrays.copyOfRange(g.indices, g.pointers[i], g.pointers[i+1]);
+			variableCount[i] = variables[i].length;
+			elements[i] = new int[4];
+			degree[i] = variableCount[i];
+			insert(i, degree, head, next, previous);
+		}
+
+		int [] mark = new int[n];
+		int [] weight = new int[n];
+		int [] weightMark = new int[n];
+		int [] buffer = new int[n];
+		int tag = 0;
+		int [] perm = new int[n];
+		int min = 0;
+
+		for(int k=0;k<n;k++){
+			while(head[min]==-1)
+				min++;
+			int p = head[min];
+			remove(p, degree, head, next, previous);
+			perm[k] = p;
+			state[p] = ELEMENT;
+
+			//the new element joins the adjacent vertices and the vertices of the adjacent elements, which are absorbed
+			tag++;
+			mark[p] = tag;
+			int size = 0;
+			for(int t=0;t<variableCount[p];t++){
+				int v = variables[p][t];
+				if(state[v]==VARIABLE && mark[v]!=tag){
+					mark[v] = tag;
+					buffer[size++] = v;
+				}
+			}
+			for(int t=0;t<elementCount[p];t++){
+				int e = elements[p][t];
+				if(state[e]!=ELEMENT)
+					continue;
+				for(int v:members[e])
+					if(state[v]==VARIABLE && mark[v]!=tag){
+						mark[v] = tag;
+						buffer[size++] = v;
+					}
+				state[e] = ABSORBED;
+				members[e] = null;
+			}
+			int [] lp = Arrays.copyOf(buffer, size);
+			members[p] = lp;
+			variables[p] = null;
+			elements[p] = null;
+
+			//the neighbours are now adjacent to the new element, and to the vertices of the element only through it
+			for(int i:lp){
+				remove(i, degree, head, next, previous);
+				int [] ei = elements[i];
+				int count = 0;
+				for(int t=0;t<elementCount[i];t++)
+					if(state[ei[t]]==ELEMENT)
+						ei[count++] = ei[t];
+				if(count==ei.length)
+					elements[i] = ei = Arrays.copyOf(ei, 2*ei.length);
+				ei[count++] = p;
+				elementCount[i] = count;
+
+				int [] ai = variables[i];
+				count = 0;
+				for(int t=0;t<variableCount[i];t++)
+					if(state[ai[t]]==VARIABLE && mark[ai[t]]!=tag)
+						ai[count++] = ai[t];
+				variableCount[i] = count;
+			}
+
+			//|Le \ Lp| for every element adjacent to the new one
+			for(int i:lp)
+				for(int t=0;t<elementCount[i];t++){
+					int e = elements[i][t];
+					if(e==p)
+						continue;
+					if(weightMark[e]!=tag){
+						weightMark[e] = tag;
+						weight[e] = members[e].length;
+					}
+					weight[e]--;
+				}
+
+			//approximate degrees
+			int remaining = n-k-1;
+			for(int i:lp){
+				long d = variableCount[i] + size - 1;
+				for(int t=0;t<elementCount[i];t++){
+					int e = elements[i][t];
+					if(e==p)
+						continue;
+					if(weight[e]==0){ //all its vertices belong to the new element
+						state[e] = ABSORBED;
+						members[e] = null;
+					}
+					else
+						d += weight[e];
+				}
+				d = Math.min(d, (long) degree[i] + size - 1);
+				d = Math.min(d, remaining - 1);
+				degree[i] = (int) d;
+				insert(i, degree, head, next, previous);
+				if(degree[i]<min)
+					min = degree[i];
+			}
+		}
+		return perm;
+	}
+
+	private static void insert(int i, int [] degree, int [] head, int [] next, int [] previous){
+		int d = degree[i];
+		next[i] = head[d];
+		previous[i] = -1;
+		if(head[d]!=-1)
+			previous[head[d]] = i;
+		head[d] = i;
+	}
+
+	private static void remove(int i, int [] degree, int [] head, int [] next, int [] previous){
+		if(previous[i]!=-1)
+			next[previous[i]] = next[i];
+		else
+			head[degree[i]] = next[i];
+		if(next[i]!=-1)
+			previous[next[i]] = previous[i];
+	}
+
+}
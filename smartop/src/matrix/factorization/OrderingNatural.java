@@ -0,0 +1,37 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Keeps the rows and columns in their original order, i.e. disables the reordering.
+ * @author Antonela Tommasel
+ *
+ */
+public class OrderingNatural implements Ordering {
+
+	@Override
+	public int[] order(Matrix m) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		int [] perm = new int[m.rowSize()];
+		for(int i=0;i<perm.length;i++)
+			perm[i] = i;
+		return perm;
+	}
+
+}
@@ -0,0 +1,132 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import java.util.Arrays;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Implements the reverse Cuthill-McKee ordering, which reduces the bandwidth and the profile of the Matrix. Each connected component of the graph 
+ * of the Matrix is traversed in breadth-first order, starting from a pseudo-peripheral vertex found with the George-Liu algorithm and visiting 
+ * the neighbours of each vertex in increasing order of degree. The final order is reversed, which usually reduces the fill-in of a Cholesky 
+ * factorization. Its cost is linear in the number of non-zero elements.
+ * <br>
+ * It suits matrices arising from meshes or other banded structures. For general sparse matrices, {@link OrderingApproximateMinimumDegree} usually 
+ * produces less fill-in.
+ * @author Antonela Tommasel
+ *
+ */
+public class OrderingReverseCuthillMcKee implements Ordering {
+
+	@Override
+	public int[] order(Matrix m) {
+		Graph g = new Graph(m);
+		int n = g.size;
+		int [] perm = new int[n];
+		int [] depth = new int[n];
+		int [] mark = new int[n];
+		boolean [] visited = new boolean[n];
+		int stamp = 0;
+
+		int maxDegree = 0;
+		for(int i=0;i<n;i++)
+			maxDegree = Math.max(maxDegree, g.degree(i));
+		long [] keys = new long[maxDegree];
+
+		int k = 0;
+		for(int i=0;i<n;i++){
+			if(visited[i])
+				continue;
+
+			//the unfilled part of perm is used as the queue for finding the starting vertex
+			int root = i;
+			int end = levels(g, root, perm, k, depth, mark, ++stamp);
+			int height = depth[perm[end-1]];
+			while(true){
+				int candidate = perm[end-1];
+				for(int q=end-1;q>=k && depth[perm[q]]==height;q--)
+					if(g.degree(perm[q])<g.degree(candidate))
+						candidate = perm[q];
+				int candidateEnd = levels(g, candidate, perm, k, depth, mark, ++stamp);
+				int candidateHeight = depth[perm[candidateEnd-1]];
+				if(candidateHeight<=height)
+					break;
+				root = candidate;
+				height = candidateHeight;
+				end = candidateEnd;
+			}
+
+			//Cuthill-McKee from the pseudo-peripheral vertex
+			int head = k;
+			perm[k++] = root;
+			visited[root] = true;
+			while(head<k){
+				int v = perm[head++];
+				int count = 0;
+				for(int p=g.pointers[v];p<g.pointers[v+1];p++){
+					int w = g.indices[p];
+					if(!visited[w]){
+						visited[w] = true;
+						keys[count++] = ((long) g.degree(w) << 32) | w;
+					}
+				}
+				Arrays.sort(keys, 0, count);
+				for(int t=0;t<count;t++)
+					perm[k++] = (int) keys[t];
+			}
+		}
+
+		for(int i=0, j=n-1;i<j;i++, j--){
+			int aux = perm[i];
+			perm[i] = perm[j];
+			perm[j] = aux;
+		}
+		return perm;
+	}
+
+	/**
+	 * Computes the level structure rooted at the vertex, i.e. the breadth-first traversal of its connected component.
+	 * @param g graph to traverse
+	 * @param root vertex from which the traversal starts
+	 * @param queue array in which the vertices are written in breadth-first order, starting at offset
+	 * @param offset first position of the queue
+	 * @param depth array in which the level of each traversed vertex is written
+	 * @param mark array in which the traversed vertices are marked
+	 * @param stamp value marking the vertices traversed by this call
+	 * @return the position of the queue after the last traversed vertex
+	 */
+	private static int levels(Graph g, int root, int [] queue, int offset, int [] depth, int [] mark, int stamp){
+		int head = offset;
+		int tail = offset;
+		queue[tail++] = root;
+		mark[root] = stamp;
+		depth[root] = 0;
+		while(head<tail){
+			int v = queue[head++];
+			for(int p=g.pointers[v];p<g.pointers[v+1];p++){
+				int w = g.indices[p];
+				if(mark[w]!=stamp){
+					mark[w] = stamp;
+					depth[w] = depth[v]+1;
+					queue[tail++] = w;
+				}
+			}
+		}
+		return tail;
+	}
+
+}
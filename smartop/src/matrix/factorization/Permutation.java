@@ -0,0 +1,121 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import java.util.Arrays;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+
+/**
+ * Applies the permutations computed by an {@link Ordering}. A permutation is represented by an array where position <tt>k</tt> holds the 
+ * original coordinate of the element placed at <tt>k</tt>.
+ * @author Antonela Tommasel
+ *
+ */
+public final class Permutation {
+
+	private Permutation() {
+	}
+
+	/**
+	 * @param perm the permutation
+	 * @return the permutation that undoes perm, i.e. the new position of each original coordinate
+	 */
+	public static int [] inverse(int [] perm){
+		int [] inv = new int[perm.length];
+		for(int k=0;k<perm.length;k++)
+			inv[perm[k]] = k;
+		return inv;
+	}
+
+	/**
+	 * @param perm the permutation
+	 * @return whether the permutation keeps every element in its place
+	 */
+	public static boolean isIdentity(int [] perm){
+		for(int k=0;k<perm.length;k++)
+			if(perm[k]!=k)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Permutes the rows of a Matrix, i.e. computes <tt>P x m</tt>, whose row <tt>i</tt> is the row <tt>perm[i]</tt> of m.
+	 * @param m the Matrix to permute
+	 * @param perm the permutation of its rows
+	 * @return the permuted Matrix, in CSR format
+	 * @throws ArrayIndexOutOfBoundsException when the size of the permutation does not match the Matrix
+	 */
+	public static MatrixCSR rows(Matrix m, int [] perm){
+		if(m.rowSize()!=perm.length)
+			throw new ArrayIndexOutOfBoundsException("The permutation does not match the size of the Matrix.");
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		int [] rowPointers = csr.getRowPointers();
+		int n = perm.length;
+		int [] pointers = new int[n+1];
+		for(int i=0;i<n;i++)
+			pointers[i+1] = pointers[i] + rowPointers[perm[i]+1] - rowPointers[perm[i]];
+		int [] columns = new int[pointers[n]];
+		float [] values = new float[pointers[n]];
+		for(int i=0;i<n;i++){ //the columns of each row are already sorted
+			System.arraycopy(csr.getColumnIndices(), rowPointers[perm[i]], columns, pointers[i], pointers[i+1]-pointers[i]);
+			System.arraycopy(csr.getValues(), rowPointers[perm[i]], values, pointers[i], pointers[i+1]-pointers[i]);
+		}
+		return new MatrixCSR(n, m.columnSize(), pointers, columns, values);
+	}
+
+	/**
+	 * Permutes the rows and the columns of a square Matrix, i.e. computes <tt>P x m x transpose(P)</tt>, whose element <tt>(i,j)</tt> is
+	 * the element <tt>(perm[i],perm[j])</tt> of m. The cost is linear in the number of non-zero elements, plus sorting the columns of each row.
+	 * @param m the square Matrix to permute
+	 * @param perm the permutation of its rows and columns
+	 * @return the permuted Matrix, in CSR format
+	 * @throws ArrayIndexOutOfBoundsException when the size of the permutation does not match the Matrix
+	 */
+	public static MatrixCSR symmetric(Matrix m, int [] perm){
+		if(m.rowSize()!=perm.length || m.columnSize()!=perm.length)
+			throw new ArrayIndexOutOfBoundsException("The permutation does not match the size of the Matrix.");
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		int [] rowPointers = csr.getRowPointers();
+		int [] columnIndices = csr.getColumnIndices();
+		float [] values = csr.getValues();
+		int n = perm.length;
+		int [] inv = inverse(perm);
+
+		int [] pointers = new int[n+1];
+		for(int i=0;i<n;i++)
+			pointers[i+1] = pointers[i] + rowPointers[perm[i]+1] - rowPointers[perm[i]];
+		int [] columns = new int[pointers[n]];
+		float [] permuted = new float[pointers[n]];
+		long [] keys = new long[0];
+		for(int i=0;i<n;i++){
+			int start = rowPointers[perm[i]];
+			int length = rowPointers[perm[i]+1] - start;
+			if(keys.length<length)
+				keys = new long[Math.max(length, 2*keys.length)];
+			for(int t=0;t<length;t++) //the new column and the old position are sorted together
+				keys[t] = ((long) inv[columnIndices[start+t]] << 32) | (start+t);
+			Arrays.sort(keys, 0, length);
+			for(int t=0;t<length;t++){
+				columns[pointers[i]+t] = (int) (keys[t] >>> 32);
+				permuted[pointers[i]+t] = values[(int) keys[t]];
+			}
+		}
+		return new MatrixCSR(n, n, pointers, columns, permuted);
+	}
+
+}
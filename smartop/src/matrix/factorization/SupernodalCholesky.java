@@ -0,0 +1,342 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import java.util.Arrays;
+
+import matrix.adapterDistribution.Configuration;
+import matrix.factory.FactoryMatrixHolder;
+import matrix.factory.MatrixBuilder;
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+
+/**
+ * Implements the sparse Cholesky factorization <tt>P x A x transpose(P) = L x transpose(L)</tt> of a symmetric positive definite Matrix,
+ * where P is the permutation chosen by the {@link SymbolicCholesky}.
+ * <br>
+ * The factor is stored by supernodes: the columns of each supernode form a dense column-major block with one row per row of its pattern.
+ * The factorization is left-looking: before factorizing a supernode, the supernodes of its subtree whose patterns include any of its columns
+ * subtract their contribution, which is computed as a dense product and then scattered. The supernode is then factorized with a dense 
+ * Cholesky of its diagonal block that also solves the rows below it. Hence, the work is done by dense loops over contiguous arrays and the 
+ * elements that remain zero are never visited.
+ * @author Antonela Tommasel
+ *
+ */
+public class SupernodalCholesky implements Factorization {
+
+	/**
+	 * Number of right-hand sides solved together by {@link #solve(Matrix)}.
+	 */
+	static final int BLOCK = 64;
+
+	private final SymbolicCholesky symbolic;
+	private float [][] blocks;
+
+	/**
+	 * Creates the factorization for matrices with the analysed pattern. {@link #factorize(Matrix)} has to be called before solving.
+	 * @param symbolic the symbolic analysis of the pattern
+	 */
+	public SupernodalCholesky(SymbolicCholesky symbolic) {
+		this.symbolic = symbolic;
+	}
+
+	/**
+	 * Analyses and factorizes the Matrix.
+	 * @param m the symmetric positive definite Matrix to factorize
+	 * @param ordering the fill-reducing ordering to apply
+	 * @return the factorization, or null when the Matrix is not symmetric positive definite
+	 * @throws IllegalArgumentException when the Matrix is not square
+	 */
+	public static SupernodalCholesky factorize(Matrix m, Ordering ordering){
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		if(!isSymmetric(m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m))) //before spending the analysis
+			return null;
+		SupernodalCholesky cholesky = new SupernodalCholesky(new SymbolicCholesky(m, ordering));
+		return cholesky.factorizePermuted(Permutation.symmetric(m, cholesky.symbolic.perm)) ? cholesky : null;
+	}
+
+	/**
+	 * @return the symbolic analysis used by the factorization
+	 */
+	public SymbolicCholesky getSymbolic(){
+		return symbolic;
+	}
+
+	/**
+	 * Computes the numeric factorization of the Matrix, whose non-zero elements must lie in the analysed pattern.
+	 * The values of a previous factorization are discarded.
+	 * @param m the symmetric positive definite Matrix to factorize
+	 * @return whether the Matrix is symmetric positive definite, and thus it could be factorized
+	 * @throws IllegalArgumentException when the Matrix has non-zero elements outside the analysed pattern
+	 * @throws ArrayIndexOutOfBoundsException when the size of the Matrix does not match the analysed one
+	 */
+	@Override
+	public boolean factorize(Matrix m){
+		MatrixCSR a = Permutation.symmetric(m, symbolic.perm);
+		if(!isSymmetric(a)){
+			blocks = null;
+			return false;
+		}
+		return factorizePermuted(a);
+	}
+
+	/**
+	 * Computes the numeric factorization of the permuted Matrix, whose symmetry has already been checked.
+	 */
+	private boolean factorizePermuted(MatrixCSR a){
+		blocks = null;
+		int [] rowPointers = a.getRowPointers();
+		int [] columnIndices = a.getColumnIndices();
+		float [] values = a.getValues();
+		int [] superStart = symbolic.superStart;
+		int [] superOf = symbolic.superOf;
+		int supernodes = superStart.length-1;
+
+		float [][] factor = new float[supernodes][];
+		int [] relative = new int[symbolic.size];
+		int [] head = new int[supernodes]; //supernodes still to be applied to each supernode, linked through next
+		int [] next = new int[supernodes];
+		int [] position = new int[supernodes]; //first row of each supernode not yet applied
+		Arrays.fill(head, -1);
+		float [] update = new float[0];
+
+		for(int s=0;s<supernodes;s++){
+			int first = superStart[s];
+			int last = superStart[s+1];
+			int width = last-first;
+			int [] rows = symbolic.superRows[s];
+			int height = rows.length;
+			float [] block = new float[height*width];
+			for(int t=0;t<height;t++)
+				relative[rows[t]] = t;
+
+			//the lower triangle of the columns, i.e. the upper triangle of the rows
+			for(int j=first;j<last;j++)
+				for(int p=rowPointers[j];p<rowPointers[j+1];p++){
+					int i = columnIndices[p];
+					if(i<j)
+						continue;
+					int t = relative[i];
+					if(t>=height || rows[t]!=i)
+						throw new IllegalArgumentException("The Matrix has non-zero elements outside the analysed pattern.");
+					block[t+(j-first)*height] = values[p];
+				}
+
+			//contributions of the descendants
+			int k = head[s];
+			while(k!=-1){
+				int following = next[k];
+				int [] kRows = symbolic.superRows[k];
+				float [] kBlock = factor[k];
+				int kHeight = kRows.length;
+				int kWidth = superStart[k+1]-superStart[k];
+				int start = position[k];
+				int end = start;
+				while(end<kHeight && kRows[end]<last)
+					end++;
+				int updateRows = kHeight-start;
+				int updateColumns = end-start;
+				if(update.length<updateRows*updateColumns)
+					update = new float[Math.max(updateRows*updateColumns, 2*update.length)];
+				product(kBlock, kHeight, kWidth, start, updateRows, updateColumns, update);
+				for(int c=0;c<updateColumns;c++){
+					int offset = (kRows[start+c]-first)*height;
+					for(int r=c;r<updateRows;r++)
+						block[relative[kRows[start+r]]+offset] -= update[r+c*updateRows];
+				}
+				position[k] = end;
+				if(end<kHeight){
+					int target = superOf[kRows[end]];
+					next[k] = head[target];
+					head[target] = k;
+				}
+				k = following;
+			}
+
+			if(!factorizePanel(block, height, width))
+				return false;
+			factor[s] = block;
+			if(width<height){
+				position[s] = width;
+				int target = superOf[rows[width]];
+				next[s] = head[target];
+				head[target] = s;
+			}
+		}
+		blocks = factor;
+		return true;
+	}
+
+	/**
+	 * Checks the symmetry of the Matrix. The elements <tt>(i,j)</tt> and <tt>(j,i)</tt> may differ by {@link Configuration#tolerance} relative to
+	 * the largest of their magnitudes, so the check does not depend on the scale of the Matrix.
+	 */
+	private static boolean isSymmetric(MatrixCSR a){
+		int [] rowPointers = a.getRowPointers();
+		int [] columnIndices = a.getColumnIndices();
+		float [] values = a.getValues();
+		for(int i=0;i<a.rowSize();i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++){
+				int j = columnIndices[p];
+				if(j==i)
+					continue;
+				float v = values[p];
+				float t = a.getValue(j, i);
+				if(Math.abs(v-t)>Configuration.tolerance*Math.max(Math.abs(v), Math.abs(t)))
+					return false;
+			}
+		return true;
+	}
+
+	/**
+	 * Computes the product of the rows of the block starting at start by the transpose of its first updateColumns rows from start, 
+	 * i.e. the contribution of the supernode to the columns of the pattern between start and start+updateColumns.
+	 * Only the lower triangle of the result is computed.
+	 * @param block the factorized supernode, column-major with height rows
+	 * @param update array in which the result is written, column-major with updateRows rows
+	 */
+	private static void product(float [] block, int height, int width, int start, int updateRows, int updateColumns, float [] update){
+		for(int c=0;c<updateColumns;c++){
+			int offset = c*updateRows;
+			Arrays.fill(update, offset+c, offset+updateRows, 0);
+			for(int k=0;k<width;k++){
+				int column = k*height+start;
+				float a = block[column+c];
+				if(a==0)
+					continue;
+				for(int r=c;r<updateRows;r++)
+					update[offset+r] += block[column+r]*a;
+			}
+		}
+	}
+
+	/**
+	 * Factorizes the dense block of a supernode in place. The diagonal block becomes its Cholesky factor and the rows below are divided by 
+	 * its transpose. Each column is updated with the previous ones of the supernode and then scaled.
+	 * @param block column-major block with height rows and width columns
+	 * @return whether the diagonal block is positive definite
+	 */
+	private static boolean factorizePanel(float [] block, int height, int width){
+		for(int j=0;j<width;j++){
+			int column = j*height;
+			for(int k=0;k<j;k++){
+				int previous = k*height;
+				float a = block[previous+j];
+				if(a==0)
+					continue;
+				for(int i=j;i<height;i++)
+					block[column+i] -= block[previous+i]*a;
+			}
+			float d = block[column+j];
+			if(!(d>0))
+				return false;
+			float root = (float) Math.sqrt(d);
+			block[column+j] = root;
+			for(int i=j+1;i<height;i++)
+				block[column+i] /= root;
+		}
+		return true;
+	}
+
+	/**
+	 * Solves the system <tt>A x X = B</tt> for the factorized Matrix A. The right-hand sides are solved by blocks of columns, so only the columns
+	 * of B are visited and no inverse is formed. The returned Matrix is created with the factory in {@link FactoryMatrixHolder}.
+	 * @param b the right-hand sides, with as many rows as the factorized Matrix
+	 * @return the solution X
+	 * @throws ArrayIndexOutOfBoundsException when the number of rows of B does not match the factorized Matrix
+	 * @throws IllegalStateException when the Matrix was not factorized
+	 */
+	@Override
+	public Matrix solve(Matrix b){
+		if(blocks == null)
+			throw new IllegalStateException("The Matrix has not been factorized.");
+		int n = symbolic.size;
+		if(b.rowSize()!=n)
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the factorized Matrix.");
+		int columns = b.columnSize();
+		MatrixCSR bt = (MatrixCSR) (b instanceof MatrixCSR ? b : new MatrixCSR(b)).fastTrans(); //each row holds a right-hand side
+		int [] rowPointers = bt.getRowPointers();
+		int [] columnIndices = bt.getColumnIndices();
+		float [] values = bt.getValues();
+
+		MatrixBuilder builder = new MatrixBuilder(n, columns, (int) Math.min(bt.getNonZeros(), Integer.MAX_VALUE));
+		float [] x = new float[n*Math.min(BLOCK, Math.max(columns, 1))];
+		for(int c0=0;c0<columns;c0+=BLOCK){
+			int width = Math.min(BLOCK, columns-c0);
+			Arrays.fill(x, 0, n*width, 0);
+			for(int c=0;c<width;c++)
+				for(int p=rowPointers[c0+c];p<rowPointers[c0+c+1];p++)
+					x[symbolic.inverse[columnIndices[p]]*width+c] = values[p];
+			solve(x, width);
+			for(int k=0;k<n;k++)
+				for(int c=0;c<width;c++)
+					if(x[k*width+c]!=0)
+						builder.add(symbolic.perm[k], c0+c, x[k*width+c]);
+		}
+		return builder.build(FactoryMatrixHolder.getFactory());
+	}
+
+	/**
+	 * Solves <tt>L x transpose(L) x X = B</tt> in place, for width right-hand sides in the permuted order stored row-major, i.e. the value of 
+	 * row k and right-hand side c is at <tt>k*width+c</tt>.
+	 */
+	private void solve(float [] x, int width){
+		int [] superStart = symbolic.superStart;
+		int supernodes = superStart.length-1;
+		for(int s=0;s<supernodes;s++){ //L x Y = B
+			int [] rows = symbolic.superRows[s];
+			float [] block = blocks[s];
+			int height = rows.length;
+			for(int j=0;j<superStart[s+1]-superStart[s];j++){
+				int column = j*height;
+				int xj = rows[j]*width;
+				float diagonal = block[column+j];
+				for(int c=0;c<width;c++)
+					x[xj+c] /= diagonal;
+				for(int i=j+1;i<height;i++){
+					float l = block[column+i];
+					if(l==0)
+						continue;
+					int xi = rows[i]*width;
+					for(int c=0;c<width;c++)
+						x[xi+c] -= l*x[xj+c];
+				}
+			}
+		}
+		for(int s=supernodes-1;s>=0;s--){ //transpose(L) x X = Y
+			int [] rows = symbolic.superRows[s];
+			float [] block = blocks[s];
+			int height = rows.length;
+			for(int j=superStart[s+1]-superStart[s]-1;j>=0;j--){
+				int column = j*height;
+				int xj = rows[j]*width;
+				for(int i=j+1;i<height;i++){
+					float l = block[column+i];
+					if(l==0)
+						continue;
+					int xi = rows[i]*width;
+					for(int c=0;c<width;c++)
+						x[xj+c] -= l*x[xi+c];
+				}
+				float diagonal = block[column+j];
+				for(int c=0;c<width;c++)
+					x[xj+c] /= diagonal;
+			}
+		}
+	}
+
+}
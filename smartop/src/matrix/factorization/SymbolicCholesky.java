@@ -0,0 +1,241 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factorization;
+
+import java.util.Arrays;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Symbolic analysis of the Cholesky factorization of a symmetric Matrix, i.e. everything that depends only on the positions of its 
+ * non-zero elements. It can be computed once and reused by every {@link SupernodalCholesky} of a Matrix with the same pattern.
+ * <br>
+ * The analysis consists of:
+ * <ul>
+ * <li>The fill-reducing ordering of the rows and columns, followed by a postorder of the elimination tree so that the columns of each 
+ * subtree are consecutive.</li>
+ * <li>The elimination tree, where the parent of column <tt>j</tt> is the row of the first non-zero element below the diagonal in column 
+ * <tt>j</tt> of the factor. It is computed with Liu's algorithm with path compression.</li>
+ * <li>The number of non-zero elements of each column of the factor, counted by traversing the subtree of the elimination tree reached by each row.</li>
+ * <li>The partition of the columns into supernodes, i.e. runs of consecutive columns sharing the same pattern below the diagonal block, 
+ * and the rows of each supernode. The columns of a supernode are stored and factorized together as a dense block.</li>
+ * </ul>
+ * @author Antonela Tommasel
+ *
+ */
+public class SymbolicCholesky {
+
+	final int size;
+	final int [] perm;
+	final int [] inverse;
+	final int [] parent;
+	final int [] columnCounts;
+	final int [] superStart;
+	final int [] superOf;
+	final int [][] superRows;
+
+	/**
+	 * Analyses the pattern of the Matrix. Only the pattern of <tt>m + transpose(m)</tt> is considered, so the Matrix is assumed to be symmetric.
+	 * @param m the square Matrix to analyse
+	 * @param ordering the fill-reducing ordering to apply
+	 * @throws IllegalArgumentException when the Matrix is not square
+	 */
+	public SymbolicCholesky(Matrix m, Ordering ordering) {
+		Graph g = new Graph(m);
+		size = g.size;
+		int n = size;
+
+		//the tree of the ordered Matrix is postordered, which does not change the fill-in
+		int [] order = ordering.order(m);
+		int [] tree = eliminationTree(g, order, Permutation.inverse(order));
+		int [] post = postorder(tree);
+		perm = new int[n];
+		for(int k=0;k<n;k++)
+			perm[k] = order[post[k]];
+		inverse = Permutation.inverse(perm);
+		int [] inversePost = Permutation.inverse(post);
+		parent = new int[n];
+		for(int k=0;k<n;k++)
+			parent[k] = tree[post[k]]==-1 ? -1 : inversePost[tree[post[k]]];
+
+		//the row i of the factor has the columns of the subtree reached from the non-zero elements of row i
+		columnCounts = new int[n];
+		Arrays.fill(columnCounts, 1);
+		int [] mark = new int[n];
+		Arrays.fill(mark, -1);
+		for(int i=0;i<n;i++){
+			mark[i] = i;
+			int v = perm[i];
+			for(int p=g.pointers[v];p<g.pointers[v+1];p++)
+				for(int j=inverse[g.indices[p]];j!=-1 && j<i && mark[j]!=i;j=parent[j]){
+					mark[j] = i;
+					columnCounts[j]++;
+				}
+		}
+
+		//a column joins the supernode of the previous one when it is its parent and has the same pattern below it
+		superOf = new int[n];
+		int [] starts = new int[n+1];
+		int supernodes = 0;
+		for(int j=0;j<n;j++){
+			if(j==0 || parent[j-1]!=j || columnCounts[j-1]!=columnCounts[j]+1)
+				starts[supernodes++] = j;
+			superOf[j] = supernodes-1;
+		}
+		starts[supernodes] = n;
+		superStart = Arrays.copyOf(starts, supernodes+1);
+
+		//the pattern of a supernode is the pattern of its first column, whose rows are found in increasing order
+		superRows = new int[supernodes][];
+		int [] filled = new int[supernodes];
+		int [] lastRow = new int[supernodes];
+		for(int s=0;s<supernodes;s++){
+			superRows[s] = new int[columnCounts[superStart[s]]];
+			superRows[s][0] = superStart[s];
+			filled[s] = 1;
+			lastRow[s] = superStart[s];
+		}
+		Arrays.fill(mark, -1);
+		for(int i=0;i<n;i++){
+			mark[i] = i;
+			int v = perm[i];
+			for(int p=g.pointers[v];p<g.pointers[v+1];p++)
+				for(int j=inverse[g.indices[p]];j!=-1 && j<i && mark[j]!=i;j=parent[j]){
+					mark[j] = i;
+					int s = superOf[j];
+					if(lastRow[s]!=i){
+						lastRow[s] = i;
+						superRows[s][filled[s]++] = i;
+					}
+				}
+		}
+	}
+
+	/**
+	 * Computes the elimination tree of the ordered graph.
+	 * @return the parent of each column, or -1 for the roots
+	 */
+	private static int [] eliminationTree(Graph g, int [] order, int [] inverse){
+		int n = g.size;
+		int [] parent = new int[n];
+		int [] ancestor = new int[n];
+		for(int i=0;i<n;i++){
+			parent[i] = -1;
+			ancestor[i] = -1;
+			int v = order[i];
+			for(int p=g.pointers[v];p<g.pointers[v+1];p++){
+				int r = inverse[g.indices[p]];
+				if(r>=i)
+					continue;
+				while(ancestor[r]!=-1 && ancestor[r]!=i){ //path compression
+					int t = ancestor[r];
+					ancestor[r] = i;
+					r = t;
+				}
+				if(ancestor[r]==-1){
+					ancestor[r] = i;
+					parent[r] = i;
+				}
+			}
+		}
+		return parent;
+	}
+
+	/**
+	 * Computes a postorder of the forest.
+	 * @return the vertex placed at each position of the postorder
+	 */
+	private static int [] postorder(int [] parent){
+		int n = parent.length;
+		int [] head = new int[n];
+		int [] next = new int[n];
+		int [] stack = new int[n];
+		Arrays.fill(head, -1);
+		for(int j=n-1;j>=0;j--) //children are kept in increasing order
+			if(parent[j]!=-1){
+				next[j] = head[parent[j]];
+				head[parent[j]] = j;
+			}
+		int [] post = new int[n];
+		int k = 0;
+		for(int root=0;root<n;root++){
+			if(parent[root]!=-1)
+				continue;
+			int top = 0;
+			stack[0] = root;
+			while(top>=0){
+				int v = stack[top];
+				int child = head[v];
+				if(child==-1){
+					post[k++] = v;
+					top--;
+				}
+				else{
+					head[v] = next[child];
+					stack[++top] = child;
+				}
+			}
+		}
+		return post;
+	}
+
+	/**
+	 * @return the number of rows and columns of the analysed Matrix
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * @return the permutation applied to the rows and columns before factorizing, where position <tt>k</tt> holds the original coordinate 
+	 * of the row and column placed at <tt>k</tt>. The array is not copied.
+	 */
+	public int [] getPermutation(){
+		return perm;
+	}
+
+	/**
+	 * @return the elimination tree of the permuted Matrix, as the parent of each column or -1 for the roots. The array is not copied.
+	 */
+	public int [] getEliminationTree(){
+		return parent;
+	}
+
+	/**
+	 * @return the number of non-zero elements of each column of the factor, including the diagonal. The array is not copied.
+	 */
+	public int [] getColumnCounts(){
+		return columnCounts;
+	}
+
+	/**
+	 * @return the number of supernodes
+	 */
+	public int getSupernodes(){
+		return superStart.length-1;
+	}
+
+	/**
+	 * @return the number of non-zero elements of the factor
+	 */
+	public long getNonZeros(){
+		long nnz = 0;
+		for(int c:columnCounts)
+			nnz += c;
+		return nnz;
+	}
+
+}
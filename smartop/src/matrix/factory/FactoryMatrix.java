@@ -48,6 +48,20 @@ public interface FactoryMatrix extends Serializable{
 	 */
 	public Matrix createMatrix(String pathToCopy);
 	
+	/**
+	 * Creates a Matrix from its elements in coordinate format, i.e. the element <tt>k</tt> is placed in row <tt>ri[k]</tt> and
+	 * column <tt>ci[k]</tt> with value <tt>v[k]</tt>. The elements can be in any order, and elements with the same coordinates are summed.
+	 * The matrix is built at once, without inserting the elements one at a time.
+	 * @param rowSize number of rows of the matrix to be created
+	 * @param colSize number of columns of the matrix to be created
+	 * @param ri row coordinates of the elements
+	 * @param ci column coordinates of the elements
+	 * @param v values of the elements
+	 * @return the created matrix
+	 * @see MatrixBuilder
+	 */
+	public Matrix createMatrix(int rowSize, int colSize, int [] ri, int [] ci, float [] v);
+	
 	/**
 	 * Creates an Identity Matrix of rowSize x rowSize
 	 * @param rowSize dimensionality of the Identity
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factory;
+
+import java.io.IOException;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixBCSR;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.MatrixOffHeap;
+
+/**
+ * This class creates matrices represented in the Block Compressed Sparse Row format, i.e. dense tiles of
+ * {@link MatrixBCSR#DEFAULT_BLOCK_SIZE} x {@link MatrixBCSR#DEFAULT_BLOCK_SIZE} elements holding the non-zero elements.
+ * Matrices loaded from disk are grouped in tiles in a single pass, without inserting the elements one at a time.
+ * @see MatrixBCSR
+ * @author Antonela Tommasel
+ *
+ */
+public class FactoryMatrixBCSR implements FactoryMatrix{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -4108263561948921740L;
+
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize) {
+		return new MatrixBCSR(rowSize, colSize);
+	}
+
+	@Override
+	public Matrix createMatrix(Matrix toCopy) {
+		return new MatrixBCSR(toCopy);
+	}
+
+	@Override
+	public Matrix createIdentity(int rowSize) {
+		int [] rowPointers = new int[rowSize+1];
+		int [] columnIndices = new int[rowSize];
+		float [] values = new float[rowSize];
+		for(int i=0;i<rowSize;i++){
+			rowPointers[i+1] = i+1;
+			columnIndices[i] = i;
+			values[i] = 1;
+		}
+		return new MatrixBCSR(new MatrixCSR(rowSize, rowSize, rowPointers, columnIndices, values));
+	}
+
+	@Override
+	public Matrix createMatrix(String pathToCopy) {
+
+		Matrix loaded = null;
+		try {
+			if(MatrixOffHeap.isBinary(pathToCopy))
+				loaded = createMatrix(MatrixOffHeap.map(pathToCopy));
+			else
+				loaded = MatrixBuilder.load(pathToCopy).build(this);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return loaded;
+	}
+
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize, int [] ri, int [] ci, float [] v) {
+		return new MatrixBCSR(MatrixCSR.fromTriplets(rowSize, colSize, ri, ci, v, ri.length));
+	}
+
+}
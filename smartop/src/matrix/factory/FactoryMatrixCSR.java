@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factory;
+
+import java.io.IOException;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.MatrixOffHeap;
+
+/**
+ * This class creates matrices represented in the Compressed Sparse Row format, i.e. three primitive arrays holding
+ * the start of each row, and the sorted column coordinates and values of the non-zero elements.
+ * Matrices loaded from disk are built in a single pass, without inserting the elements one at a time.
+ * @see MatrixCSR
+ * @author Antonela Tommasel
+ *
+ */
+public class FactoryMatrixCSR implements FactoryMatrix{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 6302775419856044148L;
+
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize) {
+		return new MatrixCSR(rowSize, colSize);
+	}
+
+	@Override
+	public Matrix createMatrix(Matrix toCopy) {
+		return new MatrixCSR(toCopy);
+	}
+
+	@Override
+	public Matrix createIdentity(int rowSize) {
+		int [] rowPointers = new int[rowSize+1];
+		int [] columnIndices = new int[rowSize];
+		float [] values = new float[rowSize];
+		for(int i=0;i<rowSize;i++){
+			rowPointers[i+1] = i+1;
+			columnIndices[i] = i;
+			values[i] = 1;
+		}
+		return new MatrixCSR(rowSize, rowSize, rowPointers, columnIndices, values);
+	}
+
+	@Override
+	public Matrix createMatrix(String pathToCopy) {
+
+		Matrix loaded = null;
+		try {
+			if(MatrixOffHeap.isBinary(pathToCopy))
+				loaded = createMatrix(MatrixOffHeap.map(pathToCopy));
+			else
+				loaded = MatrixBuilder.load(pathToCopy).build(this);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return loaded;
+	}
+
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize, int [] ri, int [] ci, float [] v) {
+		return MatrixCSR.fromTriplets(rowSize, colSize, ri, ci, v, ri.length);
+	}
+
+}
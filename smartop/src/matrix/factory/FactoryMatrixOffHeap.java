@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factory;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.MatrixOffHeap;
+
+/**
+ * This class creates matrices in the Compressed Sparse Row format whose elements are stored outside the Java heap,
+ * in direct buffers. The garbage collector does not need to scan the elements of the matrices.
+ * @see MatrixOffHeap
+ * @author Antonela Tommasel
+ *
+ */
+public class FactoryMatrixOffHeap implements FactoryMatrix{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2461316580347946307L;
+
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize) {
+		return new MatrixOffHeap(rowSize, colSize);
+	}
+
+	@Override
+	public Matrix createMatrix(Matrix toCopy) {
+		return new MatrixOffHeap(toCopy);
+	}
+
+	@Override
+	public Matrix createIdentity(int rowSize) {
+		IntBuffer rowPointers = MatrixOffHeap.allocateInts(rowSize+1);
+		IntBuffer columnIndices = MatrixOffHeap.allocateInts(rowSize);
+		FloatBuffer values = MatrixOffHeap.allocateFloats(rowSize);
+		for(int i=0;i<rowSize;i++){
+			rowPointers.put(i+1, i+1);
+			columnIndices.put(i, i);
+			values.put(i, 1);
+		}
+		return new MatrixOffHeap(rowSize, rowSize, rowPointers, columnIndices, values);
+	}
+
+	@Override
+	public Matrix createMatrix(String pathToCopy) {
+
+		Matrix loaded = null;
+		try {
+			if(MatrixOffHeap.isBinary(pathToCopy))
+				loaded = MatrixOffHeap.map(pathToCopy);
+			else
+				loaded = MatrixBuilder.load(pathToCopy).build(this);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return loaded;
+	}
+
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize, int [] ri, int [] ci, float [] v) {
+		return new MatrixOffHeap(MatrixCSR.fromTriplets(rowSize, colSize, ri, ci, v, ri.length));
+	}
+
+}
@@ -15,14 +15,13 @@
  */
 package matrix.factory;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 import matrix.adapterDistribution.Configuration;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
 import matrix.matrixImpl.MatrixFloat;
+import matrix.matrixImpl.MatrixOffHeap;
 import matrix.matrixImpl.MatrixSparseHash;
 import matrix.matrixImpl.MatrixThreshold;
 
@@ -77,34 +76,12 @@ public class FactoryMatrixThreshold implements FactoryMatrix {
 	@Override
 	public Matrix createMatrix(String pathToCopy) {
 
-		BufferedReader io;
 		Matrix loaded = null;
 		try {
-			io = new BufferedReader(new InputStreamReader(new FileInputStream(pathToCopy)));
-			String l = io.readLine();
-			String [] sizes = l.split(",");
-			loaded = new MatrixThreshold(Integer.parseInt(sizes[0]),Integer.parseInt(sizes[1]),threshold);
-			if(sizes.length == 2){ //dense csv format
-				l = io.readLine();
-				int i = 0;
-				while(l!=null){
-					String [] row = l.split(",");
-					for(int j=0;j<row.length;j++)
-						loaded.setValue(i, j, Float.parseFloat(row[j]));
-					l = io.readLine();
-					i++;
-				}
-			}else{
-				if(sizes.length == 3){ //sparse csv format
-					l = io.readLine();
-					while(l!=null){
-						String [] element = l.split(",");
-						loaded.setValue(Integer.parseInt(element[0]),Integer.parseInt(element[1]), Float.parseFloat(element[2]));
-						l = io.readLine();
-					}
-				}
-			}
-			io.close();
+			if(MatrixOffHeap.isBinary(pathToCopy))
+				loaded = createMatrix(MatrixOffHeap.map(pathToCopy));
+			else
+				loaded = MatrixBuilder.load(pathToCopy).build(this);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -112,4 +89,9 @@ public class FactoryMatrixThreshold implements FactoryMatrix {
 		return loaded;
 	}
 
+	@Override
+	public Matrix createMatrix(int rowSize, int colSize, int [] ri, int [] ci, float [] v) {
+		return new MatrixThreshold(MatrixCSR.fromTriplets(rowSize, colSize, ri, ci, v, ri.length),threshold);
+	}
+
 }
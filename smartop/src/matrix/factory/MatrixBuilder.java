@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.factory;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixPattern;
+
+/**
+ * Collects the non-zero elements of a matrix in coordinate format (row, column, value) and builds
+ * the matrix at once by means of {@link FactoryMatrix#createMatrix(int, int, int[], int[], float[])}.
+ * Elements can be added in any order, and elements added more than once for the same coordinates are summed.
+ * <br>
+ * Building a matrix this way avoids inserting its elements one at a time with {@link Matrix#setValue(int, int, float)}.
+ * The builder is not thread-safe.
+ * @author Antonela Tommasel
+ *
+ */
+public class MatrixBuilder {
+
+	private int rows;
+	private int columns;
+
+	private int [] rowIndices;
+	private int [] columnIndices;
+	private float [] values;
+	private int size = 0;
+
+	/**
+	 * Creates a builder for a matrix of rowSize x colSize
+	 * @param rowSize number of rows of the matrix to be built
+	 * @param colSize number of columns of the matrix to be built
+	 */
+	public MatrixBuilder(int rowSize, int colSize) {
+		this(rowSize, colSize, 16);
+	}
+
+	/**
+	 * Creates a builder for a matrix of rowSize x colSize
+	 * @param rowSize number of rows of the matrix to be built
+	 * @param colSize number of columns of the matrix to be built
+	 * @param expected expected number of non-zero elements
+	 */
+	public MatrixBuilder(int rowSize, int colSize, int expected) {
+		rows = rowSize;
+		columns = colSize;
+		expected = Math.max(expected, 16);
+		rowIndices = new int[expected];
+		columnIndices = new int[expected];
+		values = new float[expected];
+	}
+
+	/**
+	 * Adds an element to the matrix. If the coordinates were already added, the values are summed.
+	 * @param i the index of the row-coordinate
+	 * @param j the index of the column-coordinate
+	 * @param v value to add
+	 */
+	public void add(int i, int j, float v) {
+		if(i<0 || i>=rows || j<0 || j>=columns)
+			throw new ArrayIndexOutOfBoundsException();
+		if(v==0)
+			return;
+		if(size==rowIndices.length){
+			int capacity = size + (size >> 1);
+			rowIndices = Arrays.copyOf(rowIndices, capacity);
+			columnIndices = Arrays.copyOf(columnIndices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		rowIndices[size] = i;
+		columnIndices[size] = j;
+		values[size] = v;
+		size++;
+	}
+
+	/**
+	 * @return the number of elements added so far
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of rows of the matrix to be built
+	 */
+	public int rowSize() {
+		return rows;
+	}
+
+	/**
+	 * @return number of columns of the matrix to be built
+	 */
+	public int columnSize() {
+		return columns;
+	}
+
+	/**
+	 * Builds the matrix with the given factory.
+	 * @param factory the factory determining the representation of the matrix
+	 * @return the built matrix
+	 */
+	public Matrix build(FactoryMatrix factory) {
+		return factory.createMatrix(rows, columns, Arrays.copyOf(rowIndices, size), Arrays.copyOf(columnIndices, size), Arrays.copyOf(values, size));
+	}
+
+	/**
+	 * Builds the matrix with the factory in {@link FactoryMatrixHolder}.
+	 * @return the built matrix
+	 */
+	public Matrix build() {
+		return build(FactoryMatrixHolder.getFactory());
+	}
+
+	/**
+	 * Builds a {@link MatrixPattern} holding a 1 in the coordinates of every added element, regardless of its value.
+	 * It suits 0/1 matrices such as adjacency or membership matrices, as the values are not stored.
+	 * @return the built matrix
+	 */
+	public MatrixPattern buildPattern() {
+		return MatrixPattern.fromCoordinates(rows, columns, rowIndices, columnIndices, size);
+	}
+
+	/**
+	 * Reads the elements of a matrix stored in a csv file. The first line contains the number of rows and columns.
+	 * In the dense format, each of the following lines contains a row of the matrix. In the sparse format, the first line also
+	 * contains the number of non-zero elements, and each of the following lines contains the row, column and value of an element.
+	 * @param pathToCopy path to the file containing the Matrix
+	 * @return a builder holding the elements of the file
+	 * @throws IOException opens and reads the file
+	 */
+	public static MatrixBuilder load(String pathToCopy) throws IOException {
+
+		BufferedReader io = new BufferedReader(new InputStreamReader(new FileInputStream(pathToCopy)));
+		String l = io.readLine();
+		String [] sizes = l.split(",");
+		int rowSize = Integer.parseInt(sizes[0]);
+		int colSize = Integer.parseInt(sizes[1]);
+
+		MatrixBuilder builder;
+		if(sizes.length == 2){ //dense csv format
+			builder = new MatrixBuilder(rowSize, colSize);
+			l = io.readLine();
+			int i = 0;
+			while(l!=null){
+				String [] row = l.split(",");
+				for(int j=0;j<row.length;j++)
+					builder.add(i, j, Float.parseFloat(row[j]));
+				l = io.readLine();
+				i++;
+			}
+		}
+		else{
+			builder = new MatrixBuilder(rowSize, colSize, sizes.length == 3 ? (int) Math.min(Integer.MAX_VALUE - 8, Long.parseLong(sizes[2])) : 16);
+			if(sizes.length == 3){ //sparse csv format
+				l = io.readLine();
+				while(l!=null){
+					String [] element = l.split(",");
+					builder.add(Integer.parseInt(element[0]), Integer.parseInt(element[1]), Float.parseFloat(element[2]));
+					l = io.readLine();
+				}
+			}
+		}
+		io.close();
+
+		return builder;
+	}
+
+}
@@ -0,0 +1,256 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.iterative;
+
+import java.util.logging.Level;
+
+import matrix.adapterDistribution.Configuration;
+import matrix.factory.FactoryMatrixHolder;
+import matrix.factory.MatrixBuilder;
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+
+/**
+ * Implements the preconditioned conjugate gradient method for solving <tt>m x X = B</tt>, where m is a symmetric positive definite Matrix.
+ * <br>
+ * The method only accesses the Matrix by means of products by a panel of vectors, see {@link Matrix#fastMult(float[][], float[][])}, hence
+ * it needs no memory besides the Matrix, the preconditioner and a few dense vectors per right-hand side, whereas a factorization fills in the 
+ * Matrix. The right-hand sides are solved together by blocks, so that each iteration traverses the Matrix once for the whole block. Each 
+ * right-hand side has its own step sizes and stops when its residual is small enough, after which it no longer takes part of the products.
+ * <br>
+ * The iteration for a right-hand side stops when <tt>||b - m x x|| <= tolerance x ||b||</tt>, or after the maximum number of iterations. In 
+ * the latter case, the last approximation is returned and a warning is logged.
+ * @author Antonela Tommasel
+ *
+ */
+public class ConjugateGradient {
+
+	/**
+	 * Number of right-hand sides solved together by {@link #solve(Matrix)}.
+	 */
+	static final int BLOCK = 64;
+
+	private final Matrix m;
+	private final Preconditioner preconditioner;
+	private final float tolerance;
+	private final int maxIterations;
+
+	private int iterations;
+	private boolean converged;
+
+	/**
+	 * Creates a solver for the systems of the Matrix.
+	 * @param m the symmetric positive definite Matrix of the systems
+	 * @param preconditioner the preconditioner built for the Matrix
+	 * @param tolerance the relative norm of the residual below which a right-hand side is considered solved
+	 * @param maxIterations the maximum number of iterations for each right-hand side
+	 * @throws IllegalArgumentException when the Matrix is not square, or the tolerance or the maximum number of iterations are not positive
+	 */
+	public ConjugateGradient(Matrix m, Preconditioner preconditioner, float tolerance, int maxIterations) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		if(tolerance<=0 || maxIterations<=0)
+			throw new IllegalArgumentException("The tolerance and the maximum number of iterations must be positive.");
+		this.m = m;
+		this.preconditioner = preconditioner;
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * @return the largest number of iterations performed for a right-hand side by the last call to {@link #solve(Matrix)}
+	 */
+	public int getIterations(){
+		return iterations;
+	}
+
+	/**
+	 * @return whether all the right-hand sides of the last call to {@link #solve(Matrix)} reached the tolerance
+	 */
+	public boolean hasConverged(){
+		return converged;
+	}
+
+	/**
+	 * Solves the system for each column of B.
+	 * @param b the right-hand sides, with as many rows as the Matrix
+	 * @return the solution X, with as many columns as B
+	 * @throws ArrayIndexOutOfBoundsException when the number of rows of B does not match the Matrix
+	 * @throws IllegalArgumentException when the Matrix turns out not to be positive definite
+	 */
+	public Matrix solve(Matrix b){
+		int n = m.rowSize();
+		if(b.rowSize()!=n)
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the Matrix.");
+		int columns = b.columnSize();
+		MatrixCSR bt = (MatrixCSR) (b instanceof MatrixCSR ? b : new MatrixCSR(b)).fastTrans(); //each row holds a right-hand side
+		int [] rowPointers = bt.getRowPointers();
+		int [] columnIndices = bt.getColumnIndices();
+		float [] values = bt.getValues();
+
+		iterations = 0;
+		converged = true;
+		MatrixBuilder builder = new MatrixBuilder(n, columns, (int) Math.min(bt.getNonZeros(), Integer.MAX_VALUE));
+		for(int c0=0;c0<columns;c0+=BLOCK){
+			int width = Math.min(BLOCK, columns-c0);
+			float [][] r = new float[n][width];
+			for(int c=0;c<width;c++)
+				for(int p=rowPointers[c0+c];p<rowPointers[c0+c+1];p++)
+					r[columnIndices[p]][c] = values[p];
+			solve(r, c0, builder);
+		}
+		return builder.build(FactoryMatrixHolder.getFactory());
+	}
+
+	/**
+	 * Solves a block of right-hand sides, starting from <tt>x = 0</tt>, and adds the solutions to the builder.
+	 * @param r the right-hand sides, stored by rows, which are overwritten with the residuals
+	 * @param first the column of the first right-hand side of the block
+	 */
+	private void solve(float [][] r, int first, MatrixBuilder builder){
+		int n = r.length;
+		int width = r.length > 0 ? r[0].length : 0;
+		int [] active = new int[width]; //the right-hand side of each column of the panels
+		double [] limit = new double[width];
+		for(int c=0;c<width;c++){
+			active[c] = first+c;
+			double norm = 0;
+			for(int i=0;i<n;i++)
+				norm += r[i][c]*r[i][c];
+			limit[c] = tolerance*tolerance*norm;
+		}
+		float [][] x = new float[n][width];
+		float [][] z = new float[n][width];
+		float [][] q = new float[n][width];
+		preconditioner.apply(r, z);
+		float [][] p = new float[n][width];
+		double [] rz = new double[width];
+		for(int i=0;i<n;i++)
+			for(int c=0;c<width;c++){
+				p[i][c] = z[i][c];
+				rz[c] += r[i][c]*z[i][c];
+			}
+
+		int iteration = 0;
+		double [] alfa = new double[width];
+		boolean [] done = new boolean[width];
+		while(true){
+			int remaining = 0;
+			for(int c=0;c<width;c++){
+				double norm = 0;
+				for(int i=0;i<n;i++)
+					norm += r[i][c]*r[i][c];
+				done[c] = norm<=limit[c];
+				if(!done[c])
+					remaining++;
+			}
+			if(remaining<width){ //the solved right-hand sides are written and removed from the panels
+				for(int c=0;c<width;c++)
+					if(done[c])
+						for(int i=0;i<n;i++)
+							if(x[i][c]!=0)
+								builder.add(i, active[c], x[i][c]);
+				if(remaining==0)
+					break;
+				int [] keep = new int[remaining];
+				for(int c=0, k=0;c<width;c++)
+					if(!done[c])
+						keep[k++] = c;
+				active = select(active, keep);
+				limit = select(limit, keep);
+				rz = select(rz, keep);
+				x = select(x, keep);
+				r = select(r, keep);
+				p = select(p, keep);
+				width = remaining;
+				z = new float[n][width];
+				q = new float[n][width];
+				alfa = new double[width];
+				done = new boolean[width];
+			}
+			if(iteration==maxIterations){
+				converged = false;
+				Configuration.logger.log(Level.WARNING, "ConjugateGradient: "+width+" right-hand sides did not converge after "+maxIterations+" iterations.");
+				for(int c=0;c<width;c++)
+					for(int i=0;i<n;i++)
+						if(x[i][c]!=0)
+							builder.add(i, active[c], x[i][c]);
+				break;
+			}
+
+			m.fastMult(p, q);
+			for(int c=0;c<width;c++){
+				double pq = 0;
+				for(int i=0;i<n;i++)
+					pq += p[i][c]*q[i][c];
+				if(!(pq>0))
+					throw new IllegalArgumentException("Matrix is not positive definite.");
+				alfa[c] = rz[c]/pq;
+			}
+			for(int i=0;i<n;i++){
+				float [] xi = x[i];
+				float [] ri = r[i];
+				float [] pi = p[i];
+				float [] qi = q[i];
+				for(int c=0;c<width;c++){
+					xi[c] += alfa[c]*pi[c];
+					ri[c] -= alfa[c]*qi[c];
+				}
+			}
+			iteration++;
+			iterations = Math.max(iterations, iteration);
+
+			preconditioner.apply(r, z);
+			double [] beta = new double[width];
+			for(int c=0;c<width;c++){
+				double s = 0;
+				for(int i=0;i<n;i++)
+					s += r[i][c]*z[i][c];
+				beta[c] = s/rz[c];
+				rz[c] = s;
+			}
+			for(int i=0;i<n;i++){
+				float [] pi = p[i];
+				float [] zi = z[i];
+				for(int c=0;c<width;c++)
+					pi[c] = (float) (zi[c]+beta[c]*pi[c]);
+			}
+		}
+	}
+
+	private static int [] select(int [] v, int [] keep){
+		int [] res = new int[keep.length];
+		for(int k=0;k<keep.length;k++)
+			res[k] = v[keep[k]];
+		return res;
+	}
+
+	private static double [] select(double [] v, int [] keep){
+		double [] res = new double[keep.length];
+		for(int k=0;k<keep.length;k++)
+			res[k] = v[keep[k]];
+		return res;
+	}
+
+	private static float [][] select(float [][] panel, int [] keep){
+		float [][] res = new float[panel.length][keep.length];
+		for(int i=0;i<panel.length;i++)
+			for(int k=0;k<keep.length;k++)
+				res[i][k] = panel[i][keep[k]];
+		return res;
+	}
+
+}
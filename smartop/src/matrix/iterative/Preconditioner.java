@@ -0,0 +1,37 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.iterative;
+
+/**
+ * This interface defines the protocol for implementing preconditioners of the {@link ConjugateGradient}. A preconditioner approximates the
+ * inverse of the Matrix of the system by a symmetric positive definite operator <tt>M^-1</tt> that is cheap to apply, so that the preconditioned 
+ * system has its eigenvalues clustered and the method converges in fewer iterations.
+ * <br>
+ * The preconditioner is built for a given Matrix, and once built it is not modified by {@link #apply(float[][], float[][])}, so it can be shared
+ * by several solvers.
+ * @author Antonela Tommasel
+ *
+ */
+public interface Preconditioner {
+
+	/**
+	 * Applies the preconditioner to a panel of residuals, i.e. <tt>z = M^-1 x r</tt>, where the vectors are the columns of the panels.
+	 * @param r panel of residuals, with one row per row of the Matrix and rows of the same length
+	 * @param z panel in which the result is written, with the same dimensions than <tt>r</tt>. Its previous values are overwritten.
+	 */
+	void apply(float [][] r, float [][] z);
+
+}
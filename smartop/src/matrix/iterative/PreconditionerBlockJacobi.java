@@ -0,0 +1,145 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.iterative;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+
+/**
+ * Block-Jacobi preconditioner, which splits the rows in consecutive blocks and solves the diagonal block of the Matrix corresponding to each of them.
+ * Each block is factorized with a dense Cholesky, so the preconditioner stores <tt>blockSize</tt> values per row. The elements coupling rows of 
+ * the same block are taken into account, hence it is more effective than {@link PreconditionerJacobi} when the related rows are close, 
+ * e.g. after reordering the Matrix with {@link matrix.factorization.OrderingReverseCuthillMcKee}.
+ * <br>
+ * Only the lower triangle of the Matrix is read.
+ * @author Antonela Tommasel
+ *
+ */
+public class PreconditionerBlockJacobi implements Preconditioner {
+
+	/**
+	 * Number of rows of each block when it is not given.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 32;
+
+	private final int n;
+	private final int blockSize;
+	private final float [][] factors;
+
+	/**
+	 * Builds the preconditioner for the Matrix, with blocks of {@link #DEFAULT_BLOCK_SIZE} rows.
+	 * @param m the symmetric positive definite Matrix of the system
+	 * @throws IllegalArgumentException when the Matrix is not square or not positive definite
+	 */
+	public PreconditionerBlockJacobi(Matrix m) {
+		this(m, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Builds the preconditioner for the Matrix.
+	 * @param m the symmetric positive definite Matrix of the system
+	 * @param blockSize the number of rows of each block, the last block may be smaller
+	 * @throws IllegalArgumentException when the Matrix is not square or not positive definite, or the size of the blocks is not positive
+	 */
+	public PreconditionerBlockJacobi(Matrix m, int blockSize) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		if(blockSize<=0)
+			throw new IllegalArgumentException("The size of the blocks must be positive.");
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		int [] rowPointers = csr.getRowPointers();
+		int [] columnIndices = csr.getColumnIndices();
+		float [] values = csr.getValues();
+
+		this.n = m.rowSize();
+		this.blockSize = blockSize;
+		factors = new float[(n+blockSize-1)/blockSize][];
+		for(int b=0;b<factors.length;b++){
+			int start = b*blockSize;
+			int size = Math.min(blockSize, n-start);
+			float [] block = new float[size*size]; //row-major, only the lower triangle is used
+			for(int i=0;i<size;i++)
+				for(int p=rowPointers[start+i];p<rowPointers[start+i+1];p++){
+					int j = columnIndices[p]-start;
+					if(j>=0 && j<=i)
+						block[i*size+j] = values[p];
+				}
+			factorize(block, size);
+			factors[b] = block;
+		}
+	}
+
+	/**
+	 * Dense Cholesky factorization in place, leaving L in the lower triangle.
+	 */
+	private static void factorize(float [] block, int size){
+		for(int j=0;j<size;j++){
+			double d = block[j*size+j];
+			for(int k=0;k<j;k++)
+				d -= block[j*size+k]*block[j*size+k];
+			if(d<=0)
+				throw new IllegalArgumentException("Matrix is not positive definite.");
+			float diagonal = (float) Math.sqrt(d);
+			block[j*size+j] = diagonal;
+			for(int i=j+1;i<size;i++){
+				double s = block[i*size+j];
+				for(int k=0;k<j;k++)
+					s -= block[i*size+k]*block[j*size+k];
+				block[i*size+j] = (float) (s/diagonal);
+			}
+		}
+	}
+
+	@Override
+	public void apply(float [][] r, float [][] z) {
+		for(int i=0;i<n;i++)
+			System.arraycopy(r[i], 0, z[i], 0, r[i].length);
+		for(int b=0;b<factors.length;b++){
+			int start = b*blockSize;
+			int size = Math.min(blockSize, n-start);
+			float [] block = factors[b];
+			for(int i=0;i<size;i++){ //L x y = r
+				float [] zi = z[start+i];
+				for(int k=0;k<i;k++){
+					float l = block[i*size+k];
+					if(l==0)
+						continue;
+					float [] zk = z[start+k];
+					for(int c=0;c<zi.length;c++)
+						zi[c] -= l*zk[c];
+				}
+				float diagonal = block[i*size+i];
+				for(int c=0;c<zi.length;c++)
+					zi[c] /= diagonal;
+			}
+			for(int i=size-1;i>=0;i--){ //transpose(L) x z = y
+				float [] zi = z[start+i];
+				float diagonal = block[i*size+i];
+				for(int c=0;c<zi.length;c++)
+					zi[c] /= diagonal;
+				for(int k=0;k<i;k++){
+					float l = block[i*size+k];
+					if(l==0)
+						continue;
+					float [] zk = z[start+k];
+					for(int c=0;c<zi.length;c++)
+						zk[c] -= l*zi[c];
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.iterative;
+
+import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+
+/**
+ * Incomplete Cholesky preconditioner without fill-in, i.e. <tt>M = L x transpose(L)</tt> where L is computed as in the Cholesky factorization, 
+ * but only keeping the elements in the positions of the non-zero elements of the lower triangle of the Matrix. Thus, it needs the same memory 
+ * than the lower triangle, while it usually reduces the number of iterations far more than {@link PreconditionerJacobi}.
+ * <br>
+ * The incomplete factorization of a positive definite Matrix can break down with a non-positive pivot. In that case, it is computed again for 
+ * the Matrix with its diagonal scaled by <tt>1+shift</tt>, doubling the shift until it succeeds.
+ * <br>
+ * Only the lower triangle of the Matrix is read.
+ * @author Antonela Tommasel
+ *
+ */
+public class PreconditionerIncompleteCholesky implements Preconditioner {
+
+	private static final float INITIAL_SHIFT = 0.001f;
+
+	private final int n;
+	private final int [] rowPointers;
+	private final int [] columnIndices;
+	private final float [] values;
+	private float shift;
+
+	/**
+	 * Builds the preconditioner for the Matrix.
+	 * @param m the symmetric positive definite Matrix of the system
+	 * @throws IllegalArgumentException when the Matrix is not square, or any element of its diagonal is not positive
+	 */
+	public PreconditionerIncompleteCholesky(Matrix m) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		int [] ap = csr.getRowPointers();
+		int [] aj = csr.getColumnIndices();
+		float [] av = csr.getValues();
+
+		n = m.rowSize();
+		rowPointers = new int[n+1];
+		for(int i=0;i<n;i++){
+			int count = 0;
+			for(int p=ap[i];p<ap[i+1] && aj[p]<=i;p++)
+				count++;
+			rowPointers[i+1] = rowPointers[i]+count;
+		}
+		columnIndices = new int[rowPointers[n]];
+		float [] lower = new float[rowPointers[n]];
+		for(int i=0;i<n;i++){
+			System.arraycopy(aj, ap[i], columnIndices, rowPointers[i], rowPointers[i+1]-rowPointers[i]);
+			System.arraycopy(av, ap[i], lower, rowPointers[i], rowPointers[i+1]-rowPointers[i]);
+			int last = rowPointers[i+1]-1; //the columns are sorted, so the diagonal is the last element of the row
+			if(last<rowPointers[i] || columnIndices[last]!=i || lower[last]<=0)
+				throw new IllegalArgumentException("Matrix is not positive definite.");
+		}
+
+		values = new float[lower.length];
+		shift = 0;
+		while(!factorize(lower))
+			shift = shift==0 ? INITIAL_SHIFT : 2*shift;
+	}
+
+	/**
+	 * @return the shift applied to the diagonal so that the incomplete factorization did not break down, 0 when it was not needed
+	 */
+	public float getShift(){
+		return shift;
+	}
+
+	/**
+	 * Computes the incomplete factor of the lower triangle, with the current shift.
+	 * @return false when a pivot is not positive
+	 */
+	private boolean factorize(float [] lower){
+		for(int i=0;i<n;i++){
+			int diagonal = rowPointers[i+1]-1;
+			for(int p=rowPointers[i];p<diagonal;p++){ //L(i,k) = (A(i,k) - L(i,0:k-1) x L(k,0:k-1)) / L(k,k)
+				int k = columnIndices[p];
+				double s = lower[p];
+				int q = rowPointers[i];
+				int r = rowPointers[k];
+				int end = rowPointers[k+1]-1;
+				while(q<p && r<end){ //both rows are sorted, so the common columns are found by merging them
+					if(columnIndices[q]<columnIndices[r])
+						q++;
+					else
+					if(columnIndices[q]>columnIndices[r])
+						r++;
+					else
+						s -= values[q++]*values[r++];
+				}
+				values[p] = (float) (s/values[end]);
+			}
+			double d = lower[diagonal]*(1+(double)shift);
+			for(int p=rowPointers[i];p<diagonal;p++)
+				d -= values[p]*values[p];
+			if(!(d>0) || Double.isInfinite(d))
+				return false;
+			values[diagonal] = (float) Math.sqrt(d);
+		}
+		return true;
+	}
+
+	@Override
+	public void apply(float [][] r, float [][] z) {
+		for(int i=0;i<n;i++){ //L x y = r
+			float [] zi = z[i];
+			System.arraycopy(r[i], 0, zi, 0, zi.length);
+			int diagonal = rowPointers[i+1]-1;
+			for(int p=rowPointers[i];p<diagonal;p++){
+				float l = values[p];
+				float [] zk = z[columnIndices[p]];
+				for(int c=0;c<zi.length;c++)
+					zi[c] -= l*zk[c];
+			}
+			float d = values[diagonal];
+			for(int c=0;c<zi.length;c++)
+				zi[c] /= d;
+		}
+		for(int i=n-1;i>=0;i--){ //transpose(L) x z = y, visiting L by rows
+			float [] zi = z[i];
+			int diagonal = rowPointers[i+1]-1;
+			float d = values[diagonal];
+			for(int c=0;c<zi.length;c++)
+				zi[c] /= d;
+			for(int p=rowPointers[i];p<diagonal;p++){
+				float l = values[p];
+				float [] zk = z[columnIndices[p]];
+				for(int c=0;c<zi.length;c++)
+					zk[c] -= l*zi[c];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.iterative;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Jacobi preconditioner, which scales each row of the residual by the inverse of the corresponding diagonal element of the Matrix.
+ * It only stores one value per row and is trivially applied, but it only corrects the differences of scale between the rows.
+ * @author Antonela Tommasel
+ *
+ */
+public class PreconditionerJacobi implements Preconditioner {
+
+	private final float [] inverseDiagonal;
+
+	/**
+	 * Builds the preconditioner for the Matrix.
+	 * @param m the symmetric positive definite Matrix of the system
+	 * @throws IllegalArgumentException when the Matrix is not square, or any element of its diagonal is not positive
+	 */
+	public PreconditionerJacobi(Matrix m) {
+		if(m.rowSize()!=m.columnSize())
+			throw new IllegalArgumentException("Matrix must be square.");
+		inverseDiagonal = new float[m.rowSize()];
+		for(int i=0;i<inverseDiagonal.length;i++){
+			float d = m.getValue(i, i);
+			if(d<=0)
+				throw new IllegalArgumentException("Matrix is not positive definite.");
+			inverseDiagonal[i] = 1/d;
+		}
+	}
+
+	@Override
+	public void apply(float [][] r, float [][] z) {
+		for(int i=0;i<inverseDiagonal.length;i++){
+			float d = inverseDiagonal[i];
+			float [] ri = r[i];
+			float [] zi = z[i];
+			for(int c=0;c<ri.length;c++)
+				zi[c] = d*ri[c];
+		}
+	}
+
+}
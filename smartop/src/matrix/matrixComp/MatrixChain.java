@@ -0,0 +1,145 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixComp;
+
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Chooses the order in which a chain of matrices is multiplied, following the classic dynamic programming solution to the matrix chain problem.
+ * <br>
+ * The cost of multiplying two sparse matrices is estimated as the number of multiplications performed by Gustavson's algorithm, i.e. each non-zero
+ * element of the left matrix multiplied by the average number of non-zero elements in a row of the right one, plus the number of non-zero
+ * elements of the result. The density of each partial product is estimated assuming that the non-zero elements are uniformly distributed:
+ * an element of the product of a <tt>r x k</tt> matrix of density <tt>da</tt> by a <tt>k x c</tt> matrix of density <tt>db</tt> is zero
+ * with probability <tt>(1-da*db)^k</tt>.
+ * <br>
+ * Any matrix of the chain can be transposed. Only its dimensions are swapped for estimating the costs, and it is multiplied by means of
+ * {@link MatrixComputation#multiply(Matrix, Matrix, boolean, boolean)}, so the transposed matrix is never created.
+ * @author Antonela Tommasel
+ *
+ */
+final class MatrixChain {
+
+	private final Matrix [] ms;
+	private final boolean [] transposed;
+	private final int [][] split;
+	private final double [][] cost;
+	private final double [][] density;
+
+	/**
+	 * Computes the cheapest order for multiplying the matrices.
+	 * @param ms the matrices to multiply, in order
+	 * @param transposed whether each matrix is transposed
+	 */
+	MatrixChain(Matrix [] ms, boolean [] transposed) {
+		if(ms.length==0)
+			throw new IllegalArgumentException("At least one matrix is needed");
+		if(transposed.length!=ms.length)
+			throw new IllegalArgumentException("A transpose flag is needed for each matrix");
+		this.ms = ms;
+		this.transposed = transposed;
+		for(int t=1;t<ms.length;t++)
+			if(columnSize(t-1)!=rowSize(t))
+				throw new ArrayIndexOutOfBoundsException("The number of columns of matrix "+(t-1)+" does not match the number of rows of matrix "+t);
+
+		int n = ms.length;
+		split = new int[n][n];
+		cost = new double[n][n];
+		density = new double[n][n];
+		for(int t=0;t<n;t++)
+			density[t][t] = density(ms[t]);
+
+		for(int length=1;length<n;length++)
+			for(int i=0;i+length<n;i++){
+				int j = i+length;
+				cost[i][j] = Double.POSITIVE_INFINITY;
+				for(int s=i;s<j;s++){
+					double r = rowSize(i);
+					double k = columnSize(s);
+					double c = columnSize(j);
+					double da = density[i][s];
+					double db = density[s+1][j];
+					double d = -Math.expm1(k*Math.log1p(-Math.min(1, da*db))); //1-(1-da*db)^k, accurate for small densities
+					double total = cost[i][s] + cost[s+1][j] + da*r*k*db*c + d*r*c;
+					if(total<cost[i][j]){
+						cost[i][j] = total;
+						density[i][j] = d;
+						split[i][j] = s;
+					}
+				}
+			}
+	}
+
+	private int rowSize(int t){
+		return transposed[t] ? ms[t].columnSize() : ms[t].rowSize();
+	}
+
+	private int columnSize(int t){
+		return transposed[t] ? ms[t].rowSize() : ms[t].columnSize();
+	}
+
+	private static double density(Matrix m){
+		double size = (double) m.rowSize() * (double) m.columnSize();
+		return size == 0 ? 0 : Math.min(1, m.getNonZeros() / size);
+	}
+
+	/**
+	 * @return the chosen order, as a parenthesized expression of the indexes of the matrices
+	 */
+	@Override
+	public String toString(){
+		return toString(0, ms.length-1);
+	}
+
+	private String toString(int i, int j){
+		if(i==j)
+			return transposed[i] ? i+"t" : Integer.toString(i);
+		return "("+toString(i, split[i][j])+" x "+toString(split[i][j]+1, j)+")";
+	}
+
+	/**
+	 * Multiplies the chain in the chosen order. The scalar is applied to the operand with the least non-zero elements, so that it costs as few
+	 * multiplications as possible. When the chain has a single matrix and the scalar is 1, the matrix is returned as is, or transposed.
+	 * @param algebra instance performing each multiplication
+	 * @param alfa scalar by which the product is multiplied
+	 * @return the product of the chain multiplied by alfa
+	 */
+	Matrix multiply(MatrixComputation algebra, float alfa){
+		Matrix [] operands = ms;
+		if(alfa!=1){
+			int smallest = 0;
+			for(int t=1;t<ms.length;t++)
+				if(ms[t].getNonZeros()<ms[smallest].getNonZeros())
+					smallest = t;
+			operands = ms.clone();
+			operands[smallest] = algebra.multiply(alfa, ms[smallest]);
+		}
+		return multiply(algebra, operands, 0, ms.length-1);
+	}
+
+	/**
+	 * Multiplies the matrices from i to j. The transposed matrices are passed with their flag to the product in which they are operands,
+	 * while the partial products are never transposed.
+	 */
+	private Matrix multiply(MatrixComputation algebra, Matrix [] operands, int i, int j){
+		if(i==j)
+			return transposed[i] ? algebra.transpose(operands[i]) : operands[i];
+		int s = split[i][j];
+		Matrix left = s==i ? operands[i] : multiply(algebra, operands, i, s);
+		Matrix right = s+1==j ? operands[j] : multiply(algebra, operands, s+1, j);
+		return algebra.multiply(left, right, s==i && transposed[i], s+1==j && transposed[j]);
+	}
+}
@@ -15,6 +15,8 @@
  */
 package matrix.matrixComp;
 
+import matrix.factorization.Factorization;
+import matrix.iterative.Preconditioner;
 import matrix.matrixImpl.Matrix;
 
 /**
@@ -41,6 +43,13 @@ public interface MatrixComputation {
 	 */
 	public Matrix multiplyByTranspose(Matrix m);
 	
+	/**
+	 * Separates the special case of multiplying the transpose of a Matrix by the Matrix, i.e. <tt>m^t x m</tt>, in order to avoid creating its transpose.
+	 * @param m the Matrix whose transpose multiplies it
+	 * @return the result of multiplying the transpose of the Matrix m by m
+	 */
+	public Matrix transposeMultiply(Matrix m);
+	
 	/**
 	 * Multiplies a matrix by a scalar value. 
 	 * The returned Matrix is created with the same type than the original.
@@ -58,6 +67,80 @@ public interface MatrixComputation {
 	 * @return the result of multiplying the two matrices
 	 */
 	public Matrix multiply(Matrix m, Matrix m1);
+	
+	/**
+	 * Multiplies two matrices, any of which can be transposed, without creating the transposed matrices.
+	 * The returned Matrix is created with the same type than the original.
+	 * @param m the left matrix of the multiplication
+	 * @param m1 the right matrix of the multiplication
+	 * @param transposeM whether the left matrix is transposed
+	 * @param transposeM1 whether the right matrix is transposed
+	 * @return the result of multiplying <tt>op(m) x op(m1)</tt>, where <tt>op(x)</tt> is either <tt>x</tt> or its transpose
+	 */
+	public Matrix multiply(Matrix m, Matrix m1, boolean transposeM, boolean transposeM1);
+
+	/**
+	 * Multiplies two matrices dropping the elements of the result whose absolute value is below {@link matrix.adapterDistribution.Configuration#tolerance}.
+	 * The elements are dropped while they are accumulated, so they never reach the result.
+	 * @param m the left matrix of the multiplication
+	 * @param m1 the right matrix of the multiplication
+	 * @return the result of multiplying the two matrices, without its smallest elements
+	 */
+	public Matrix multiplyPruned(Matrix m, Matrix m1);
+
+	/**
+	 * Multiplies two matrices dropping the elements of the result whose absolute value is below tolerance, and optionally keeping only
+	 * the elements with the largest absolute values of each row. The elements are dropped while they are accumulated, so they never reach the result.
+	 * @param m the left matrix of the multiplication
+	 * @param m1 the right matrix of the multiplication
+	 * @param tolerance minimum absolute value of the elements of the result
+	 * @param top maximum number of elements of each row of the result, or 0 for no limit
+	 * @return the result of multiplying the two matrices, without its smallest elements
+	 */
+	public Matrix multiplyPruned(Matrix m, Matrix m1, float tolerance, int top);
+
+	/**
+	 * Multiplies a chain of matrices in the order that minimises the estimated cost, which depends on the dimensions and on the number of non-zero
+	 * elements of the matrices. A bad order could build partial products far denser than needed.
+	 * @param ms the matrices to multiply, in order
+	 * @return the result of multiplying the matrices
+	 */
+	public Matrix multiplyChain(Matrix... ms);
+
+	/**
+	 * Multiplies a chain of matrices by a scalar in the order that minimises the estimated cost, see {@link #multiplyChain(Matrix...)}.
+	 * The scalar is applied to the matrix with the least non-zero elements.
+	 * @param alfa the scalar by which the product is multiplied
+	 * @param ms the matrices to multiply, in order
+	 * @return the result of multiplying the matrices and the scalar
+	 */
+	public Matrix multiplyChain(float alfa, Matrix... ms);
+
+	/**
+	 * Multiplies a chain of matrices, any of which can be transposed, by a scalar in the order that minimises the estimated cost, see {@link #multiplyChain(float, Matrix...)}.
+	 * The transposed matrices are not created, but multiplied by means of {@link #multiply(Matrix, Matrix, boolean, boolean)}.
+	 * @param alfa the scalar by which the product is multiplied
+	 * @param ms the matrices to multiply, in order
+	 * @param transposed whether each matrix is transposed
+	 * @return the result of multiplying the matrices, each of them either as is or transposed, and the scalar
+	 */
+	public Matrix multiplyChain(float alfa, Matrix [] ms, boolean [] transposed);
+
+	/**
+	 * Multiplies a matrix by a dense vector, without converting the vector into a Matrix.
+	 * @param m the matrix to multiply
+	 * @param x the vector to multiply, with one element per column of <tt>m</tt>
+	 * @return a vector with one element per row of <tt>m</tt> containing the result of <tt>m x x</tt>
+	 */
+	public float[] multiply(Matrix m, float [] x);
+
+	/**
+	 * Multiplies a matrix by a dense panel of vectors, stored by rows, without converting the panel into a Matrix.
+	 * @param m the matrix to multiply
+	 * @param panel the panel to multiply, with one row per column of <tt>m</tt>. All its rows must have the same length
+	 * @return a panel with one row per row of <tt>m</tt> and the same number of columns than <tt>panel</tt>, containing the result of <tt>m x panel</tt>
+	 */
+	public float[][] multiply(Matrix m, float [][] panel);
 
 	/**
 	 * Adds two matrices.
@@ -67,6 +150,28 @@ public interface MatrixComputation {
 	 * @return the result of adding the two matrices
 	 */
 	public Matrix add(Matrix m, Matrix m1);
+
+	/**
+	 * Adds a matrix and a scaled matrix in a single pass, without building the scaled matrix.
+	 * The returned Matrix is created with the same type than the original.
+	 * @param m the first summand of the addition
+	 * @param alfa the scalar by which the second summand is multiplied
+	 * @param m1 the second summand of the addition
+	 * @return the result of <tt>m + alfa x m1</tt>
+	 */
+	public Matrix add(Matrix m, float alfa, Matrix m1);
+
+	/**
+	 * Multiplies two matrices and adds a third one, scaling the product and the addend, without building any intermediate matrix.
+	 * The returned Matrix is created with the same type than the original.
+	 * @param alfa the scalar by which the product is multiplied
+	 * @param m the left matrix of the multiplication
+	 * @param m1 the right matrix of the multiplication
+	 * @param beta the scalar by which the addend is multiplied
+	 * @param m2 the addend, with as many rows as m and as many columns as m1
+	 * @return the result of <tt>alfa x m x m1 + beta x m2</tt>
+	 */
+	public Matrix multiplyAdd(float alfa, Matrix m, Matrix m1, float beta, Matrix m2);
 	
 	/**
 	 * Returns the inverse or pseudo-inverse of matrix <tt>m</tt>.
@@ -77,6 +182,43 @@ public interface MatrixComputation {
 	 * @throws IllegalArgumentException when the matrix <tt>m>/tt> is singular
 	 */
 	public Matrix invert(Matrix m);
+
+	/**
+	 * Solves the linear system <tt>m x X = b</tt> without computing the inverse of <tt>m</tt>. The factorization depends on the Matrix:
+	 * Cholesky for symmetric positive definite matrices, LU for other square matrices, and QR for non-square matrices, in which case X is 
+	 * the least squares solution. Only the columns of b are solved, so it is much cheaper than <tt>invert(m) x b</tt> when b has few columns.
+	 * The returned Matrix is created with the same type than the original.
+	 * @param m the Matrix of the system
+	 * @param b the right-hand sides of the system, with as many rows as m
+	 * @return the solution X, with as many rows as columns has m and as many columns as b
+	 * @throws IllegalArgumentException when the Matrix <tt>m</tt> is singular
+	 */
+	public Matrix solveSystem(Matrix m, Matrix b);
+
+	/**
+	 * Factorizes the Matrix as {@link #solveSystem(Matrix, Matrix)} does, but returns the factorization so that it can solve several right-hand sides,
+	 * and be factorized again for other matrices with the same pattern, reusing its symbolic analysis, see {@link Factorization}.
+	 * @param m the Matrix to factorize
+	 * @return the factorization of the Matrix
+	 * @throws IllegalArgumentException when the Matrix <tt>m</tt> is singular
+	 */
+	public Factorization factorize(Matrix m);
+
+	/**
+	 * Solves the linear system <tt>m x X = b</tt> for a symmetric positive definite Matrix by means of the preconditioned conjugate gradient method, 
+	 * see {@link matrix.iterative.ConjugateGradient}. Unlike {@link #solveSystem(Matrix, Matrix)}, no factor is built, as the method only multiplies 
+	 * <tt>m</tt> by dense vectors, so it only needs memory for the preconditioner and a few vectors per right-hand side.
+	 * The returned Matrix is created with the same type than the original.
+	 * @param m the symmetric positive definite Matrix of the system
+	 * @param b the right-hand sides of the system, with as many rows as m
+	 * @param preconditioner the preconditioner built for m, e.g. {@link matrix.iterative.PreconditionerJacobi}, {@link matrix.iterative.PreconditionerBlockJacobi}
+	 * or {@link matrix.iterative.PreconditionerIncompleteCholesky}
+	 * @param tolerance the relative norm of the residual below which a right-hand side is considered solved
+	 * @param maxIterations the maximum number of iterations for each right-hand side, after which the last approximation is returned
+	 * @return the solution X, with as many columns as b
+	 * @throws IllegalArgumentException when the Matrix <tt>m</tt> is not square or not positive definite
+	 */
+	public Matrix solveIterative(Matrix m, Matrix b, Preconditioner preconditioner, float tolerance, int maxIterations);
 	
 	/**
 	 * Returns the inverse computed by the Cholesky method for an arbitrary square Matrix.
@@ -100,6 +242,16 @@ public interface MatrixComputation {
 	 */
 	public Matrix subtract(Matrix m, Matrix m1); 
 
+	/**
+	 * Subtracts a matrix from a diagonal matrix, such as the degree matrix of a Laplacian, without building the diagonal matrix.
+	 * Only the diagonal of <tt>m</tt> is modified, apart from the change of sign.
+	 * The returned Matrix is created with the same type than the original.
+	 * @param diagonal the elements of the diagonal of the minuend
+	 * @param m the subtrahend of the subtraction, a square matrix with as many rows as elements in the diagonal
+	 * @return the result of <tt>diag(diagonal) - m</tt>
+	 */
+	public Matrix subtractFromDiagonal(float [] diagonal, Matrix m);
+
 	/**
 	 * Computes the Laplacian of a matrix
 	 * La= Da - a
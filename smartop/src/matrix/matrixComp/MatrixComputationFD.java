@@ -17,8 +17,17 @@ package matrix.matrixComp;
 
 import java.util.logging.Level;
 import matrix.adapterDistribution.Configuration;
+import matrix.factorization.Factorization;
+import matrix.factorization.FactorizationLU;
+import matrix.factorization.FactorizationQR;
+import matrix.factorization.OrderingNatural;
+import matrix.factorization.SupernodalCholesky;
 import matrix.factory.FactoryMatrixHolder;
+import matrix.iterative.ConjugateGradient;
+import matrix.iterative.Preconditioner;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixSymmetric;
+import matrix.matrixImpl.SparseAccumulator;
 
 /** 
  * Provides the implementation for performing arithmetic operations between dense float matrices. All operations are performed in a single thread.
@@ -68,16 +77,153 @@ public class MatrixComputationFD implements MatrixComputation{
 		return aux;
 	}
 
+	@Override
+	public Matrix multiply(Matrix m, Matrix m1, boolean transposeM, boolean transposeM1) {
+
+		int rows = transposeM ? m.columnSize() : m.rowSize();
+		int inner = transposeM ? m.rowSize() : m.columnSize();
+		int columns = transposeM1 ? m1.rowSize() : m1.columnSize();
+		if(inner!=(transposeM1 ? m1.columnSize() : m1.rowSize()))
+			throw new ArrayIndexOutOfBoundsException("The number of columns of the left matrix does not match the number of rows of the right matrix");
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-transposed-serial", m, m1, null));
+
+		Matrix aux=FactoryMatrixHolder.getFactory().createMatrix(rows,columns); 
+		float sum=0;
+		for(int k=0;k<rows;k++)
+			for(int j=0;j<columns;j++){
+				sum=0;
+				for(int i=0;i<inner;i++){
+					sum+=(transposeM ? m.getValue(i, k) : m.getValue(k, i))*(transposeM1 ? m1.getValue(j, i) : m1.getValue(i, j));
+				}
+				aux.setValue(k, j, sum);
+			}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-transposed-serial",System.currentTimeMillis()-startTime, null, aux));
+
+		return aux;
+	}
+
+	@Override
+	public Matrix multiplyPruned(Matrix m, Matrix m1) {
+		return multiplyPruned(m, m1, Configuration.tolerance, 0);
+	}
+
+	@Override
+	public Matrix multiplyPruned(Matrix m, Matrix m1, float tolerance, int top) {
+
+		if(m.columnSize()!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException("The number of columns of the left matrix does not match the number of rows of the right matrix");
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-pruned-serial", m, m1, null));
+
+		Matrix aux=FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(),m1.columnSize());
+		SparseAccumulator row = new SparseAccumulator(m1.columnSize());
+		int [] columns = new int[m1.columnSize()];
+		float [] values = new float[m1.columnSize()];
+		float sum=0;
+		for(int k=0;k<m.rowSize();k++){
+			for(int j=0;j<m1.columnSize();j++){
+				sum=0;
+				for(int i=0;i<m.columnSize();i++){
+					sum+=m.getValue(k, i)*m1.getValue(i, j);
+				}
+				row.add(j, sum);
+			}
+			int n = row.gather(columns, values, 0, tolerance, top); //the row is pruned before being stored
+			for(int t=0;t<n;t++)
+				aux.setValue(k, columns[t], values[t]);
+		}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-pruned-serial",System.currentTimeMillis()-startTime, null, aux));
+
+		return aux;
+	}
+
+	@Override
+	public Matrix multiplyChain(Matrix... ms) {
+		return multiplyChain(1, ms);
+	}
+
+	@Override
+	public Matrix multiplyChain(float alfa, Matrix... ms) {
+		return multiplyChain(alfa, ms, new boolean[ms.length]);
+	}
+
+	@Override
+	public Matrix multiplyChain(float alfa, Matrix [] ms, boolean [] transposed) {
+
+		long startTime = System.currentTimeMillis();
+		MatrixChain chain = new MatrixChain(ms, transposed);
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-chain-serial "+chain, ms[0], ms[ms.length-1], null));
+
+		Matrix aux = chain.multiply(this, alfa);
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-chain-serial",System.currentTimeMillis()-startTime, null, aux));
+
+		return aux;
+	}
+
+	@Override
+	public float[] multiply(Matrix m, float [] x) {
+
+		if(m.columnSize()!=x.length)
+			throw new ArrayIndexOutOfBoundsException("The number of columns of the matrix does not match the length of the vector");
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-vector-serial", m, null, null));
+
+		float [] y = new float[m.rowSize()];
+		float sum=0;
+		for(int k=0;k<y.length;k++){
+			sum=0;
+			for(int i=0;i<x.length;i++)
+				sum+=m.getValue(k, i)*x[i];
+			y[k]=sum;
+		}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-vector-serial",System.currentTimeMillis()-startTime, null, m));
+
+		return y;
+	}
+
+	@Override
+	public float[][] multiply(Matrix m, float [][] panel) {
+
+		if(m.columnSize()!=panel.length)
+			throw new ArrayIndexOutOfBoundsException("The number of columns of the matrix does not match the number of rows of the panel");
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-panel-serial", m, null, null));
+
+		int width = panel.length > 0 ? panel[0].length : 0;
+		float [][] y = new float[m.rowSize()][width];
+		float sum=0;
+		for(int k=0;k<y.length;k++)
+			for(int j=0;j<width;j++){
+				sum=0;
+				for(int i=0;i<panel.length;i++)
+					sum+=m.getValue(k, i)*panel[i][j];
+				y[k][j]=sum;
+			}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-panel-serial",System.currentTimeMillis()-startTime, null, m));
+
+		return y;
+	}
+
 	@Override
 	public Matrix multiplyByTranspose(Matrix m){
 
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-by-transpose-serial", m,null, null));
 
-		Matrix aux=FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(),m.rowSize());
+		Matrix aux=new MatrixSymmetric(m.rowSize()); //the result is symmetric, so only the upper triangle is computed
 		float sum;
 		for(int k=0;k<m.rowSize();k++)
-			for(int i=0;i<m.rowSize();i++){
+			for(int i=k;i<m.rowSize();i++){
 				sum=0;
 				for(int j=0;j<m.columnSize();j++){
 					sum+=m.getValue(k, j)*m.getValue(i, j);
@@ -89,6 +235,27 @@ public class MatrixComputationFD implements MatrixComputation{
 		return aux;
 	}
 
+	@Override
+	public Matrix transposeMultiply(Matrix m){
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("transpose-multiply-serial", m,null, null));
+
+		Matrix aux=new MatrixSymmetric(m.columnSize()); //the result is symmetric, so only the upper triangle is computed
+		float sum;
+		for(int k=0;k<m.columnSize();k++)
+			for(int i=k;i<m.columnSize();i++){
+				sum=0;
+				for(int j=0;j<m.rowSize();j++){
+					sum+=m.getValue(j, k)*m.getValue(j, i);
+				}
+				aux.setValue(k, i, sum);
+			}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("transpose-multiply-serial",System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
 	@Override
 	public Matrix multiply(float alfa, Matrix m) {
 
@@ -122,6 +289,47 @@ public class MatrixComputationFD implements MatrixComputation{
 		return aux;
 	}
 
+	@Override
+	public Matrix add(Matrix m, float alfa, Matrix m1) {
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("adding-scaled-serial", m,m1, null));
+
+		Matrix aux=FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), m.columnSize());		
+		for(int i=0;i<m.rowSize();i++)
+			for(int j=0;j<m.columnSize();j++)
+				aux.setValue(i, j, m.getValue(i, j)+alfa*m1.getValue(i, j));
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("adding-scaled-serial",System.currentTimeMillis()-startTime, null, aux));
+
+		return aux;
+	}
+
+	@Override
+	public Matrix multiplyAdd(float alfa, Matrix m, Matrix m1, float beta, Matrix m2) {
+
+		if(m.columnSize()!=m1.rowSize() || m2.rowSize()!=m.rowSize() || m2.columnSize()!=m1.columnSize())
+			throw new ArrayIndexOutOfBoundsException("The dimensions of the matrices do not match");
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-add-serial", m, m1, null));
+
+		Matrix aux=FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(),m1.columnSize()); 
+		float sum=0;
+		for(int k=0;k<m.rowSize();k++)
+			for(int j=0;j<m1.columnSize();j++){
+				sum=0;
+				for(int i=0;i<m.columnSize();i++){
+					sum+=m.getValue(k, i)*m1.getValue(i, j);
+				}
+				aux.setValue(k, j, alfa*sum+beta*m2.getValue(k, j));
+			}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-add-serial",System.currentTimeMillis()-startTime, null, aux));
+
+		return aux;
+	}
+
 	@Override
 	public Matrix invert(Matrix m) {
 		long startTime = System.currentTimeMillis();
@@ -147,7 +355,7 @@ public class MatrixComputationFD implements MatrixComputation{
 			//first try Cholesky Decomposition.. if that fails, try LU
 			Matrix cholesky = solveCholesky(m);
 			if(cholesky!=null){
-				inverse = solve(cholesky,identity);
+				inverse = solveByCholesky(cholesky,identity);
 				System.out.println("solved by cholesky");
 				return inverse;
 			}
@@ -171,13 +379,94 @@ public class MatrixComputationFD implements MatrixComputation{
 		return inverse;
 	}
 
+	@Override
+	public Matrix solveSystem(Matrix m, Matrix b) {
+		if(m.rowSize()!=b.rowSize())
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the Matrix.");
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("solve-serial", m,b, null));
+
+		Matrix x;
+		if(m.isSquare()){
+			Matrix cholesky = solveCholesky(m);
+			if(cholesky!=null)
+				x = solveByCholesky(cholesky,b);
+			else{
+				int [] piv = new int[m.rowSize()];
+				Matrix LU = solveLU(m,piv);
+				if(LU.isSingular())
+					throw new IllegalArgumentException("Matrix is Singular!");
+				x = solve(LU,b,piv);
+			}
+		}
+		else{ //least squares
+			float [] Rdiag = new float[m.columnSize()];
+			Matrix QR = solveQR(m,Rdiag);
+			if(!isFullRank(Rdiag)) //the diagonal of R, as QR only holds the Householder vectors below it
+				throw new IllegalArgumentException("Matrix is Singular!");
+			x = solveLeastSquare(QR,FactoryMatrixHolder.getFactory().createMatrix(b),Rdiag);
+		}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("solve-serial",System.currentTimeMillis()-startTime, null, x));
+		return x;
+	}
+
+	/**
+	 * As in {@link #solveSystem(Matrix, Matrix)}, the Matrix is kept in its natural order.
+	 */
+	@Override
+	public Factorization factorize(Matrix m) {
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("factorize-serial", m,null, null));
+
+		Factorization factorization;
+		if(m.isSquare()){
+			factorization = SupernodalCholesky.factorize(m, new OrderingNatural());
+			if(factorization==null)
+				factorization = FactorizationLU.factorize(m, new OrderingNatural());
+		}
+		else{
+			FactorizationQR qr = new FactorizationQR(m);
+			factorization = qr.factorize(m) ? qr : null;
+		}
+		if(factorization==null)
+			throw new IllegalArgumentException("Matrix is Singular!");
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("factorize-serial",System.currentTimeMillis()-startTime, factorization.getClass().getSimpleName(), m));
+		return factorization;
+	}
+
+	@Override
+	public Matrix solveIterative(Matrix m, Matrix b, Preconditioner preconditioner, float tolerance, int maxIterations){
+		if(m.rowSize()!=b.rowSize())
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the Matrix.");
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("solveIterative-serial", m,b, null));
+		ConjugateGradient cg = new ConjugateGradient(m, preconditioner, tolerance, maxIterations);
+		Matrix x = cg.solve(b);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("solveIterative-serial iterations "+cg.getIterations(),System.currentTimeMillis()-startTime, null, x));
+		return x;
+	}
+
 	/**
 	 * Solves the inverse by computing the Cholesky decomposition
 	 * @param cholesky L
 	 * @param identity identity 
 	 * @return the inverse matrix computed by the Cholesky method
+	 * @deprecated use {@link #solveByCholesky(Matrix, Matrix)}; to solve a system use {@link #solveSystem(Matrix, Matrix)}
 	 */
+	@Deprecated
 	public Matrix solve(Matrix cholesky, Matrix identity) {
+		return solveByCholesky(cholesky,identity);
+	}
+
+	/**
+	 * Solves the inverse by computing the Cholesky decomposition
+	 * @param cholesky L
+	 * @param identity identity 
+	 * @return the inverse matrix computed by the Cholesky method
+	 */
+	public Matrix solveByCholesky(Matrix cholesky, Matrix identity) {
 
 		Matrix X = FactoryMatrixHolder.getFactory().createMatrix(identity);
 		int n = cholesky.rowSize();
@@ -596,6 +885,26 @@ public class MatrixComputationFD implements MatrixComputation{
 		return aux;
 	} 
 
+	@Override
+	public Matrix subtractFromDiagonal(float [] diagonal, Matrix m) {
+
+		if(m.rowSize()!=diagonal.length || m.columnSize()!=diagonal.length)
+			throw new ArrayIndexOutOfBoundsException("The matrix must be square, with as many rows as elements in the diagonal");
+
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("subtract-from-diagonal-serial", m,null, null));
+
+		Matrix aux=FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), m.columnSize());		
+		for(int i=0;i<m.rowSize();i++) {
+			for(int j=0;j<m.columnSize();j++)
+				aux.setValue(i, j, (i==j ? diagonal[i] : 0)-m.getValue(i, j));
+		}
+
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("subtract-from-diagonal-serial",System.currentTimeMillis()-startTime, null, aux));
+
+		return aux;
+	} 
+
 
 	/**
 	 * Converts a Matrix representation into a double[][]
@@ -633,17 +942,23 @@ public class MatrixComputationFD implements MatrixComputation{
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("laplacian-serial", m,null, null));
 
-		Matrix Da=FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(),m.columnSize());
+		if(m instanceof MatrixSymmetric){
+			Matrix La = ((MatrixSymmetric) m).fastLaplacian();
+			Configuration.logger.log(Level.INFO, Configuration.getLogTime("laplacian-serial",System.currentTimeMillis()-startTime, null, La));
+			return La;
+		}
+
+		float [] degrees = new float[m.columnSize()];
 
 		float sum;
-		for(int i=0;i<Da.rowSize();i++){
+		for(int i=0;i<degrees.length;i++){
 			sum=0;
-			for(int j=0;j<Da.columnSize();j++)
+			for(int j=0;j<m.rowSize();j++)
 				sum+=m.getValue(j, i);
-			Da.setValue(i, i, sum);
+			degrees[i]=sum;
 		}
 
-		Da=subtract(Da,m);
+		Matrix Da=subtractFromDiagonal(degrees,m);
 
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("laplacian-serial",System.currentTimeMillis()-startTime, null, Da));
 
@@ -667,8 +982,8 @@ public class MatrixComputationFD implements MatrixComputation{
 			throw new IllegalArgumentException("Matrix is non-Herminian!");
 		Matrix identity = FactoryMatrixHolder.getFactory().createIdentity(m.rowSize());
 		System.out.println("invert by cholesky - cholesky\n"+cholesky);
-		Matrix inverse = solve(cholesky,identity);
-		inverse = multiply(transpose(m), inverse);
+		Matrix inverse = solveByCholesky(cholesky,identity);
+		inverse = multiply(m, inverse, true, false);
 
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("invert-by-Cholesky-serial-",System.currentTimeMillis()-startTime, null, inverse));
 		return inverse;
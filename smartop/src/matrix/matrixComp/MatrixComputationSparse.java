@@ -19,7 +19,17 @@ import java.util.logging.Level;
 
 import matrix.adapterDistribution.Configuration;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.MatrixDiagonal;
+import matrix.matrixImpl.MatrixFloat;
+import matrix.matrixImpl.MatrixSymmetric;
 import matrix.factory.FactoryMatrixHolder; 
+import matrix.factorization.Factorization;
+import matrix.factorization.FactorizationLU;
+import matrix.factorization.FactorizationQR;
+import matrix.factorization.SupernodalCholesky;
+import matrix.iterative.ConjugateGradient;
+import matrix.iterative.Preconditioner;
 
 /**
  * @author Antonela Tommasel
@@ -46,21 +56,142 @@ public abstract class MatrixComputationSparse implements MatrixComputation{
 	public Matrix multiply(Matrix m, Matrix m1){
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-"+name, m, m1, null));
-		Matrix aux = m.fastMult(m1);
+		Matrix aux = m1 instanceof MatrixDiagonal ? ((MatrixDiagonal) m1).fastMultLeft(m) : m.fastMult(m1); //multiplying by a diagonal matrix scales the columns
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-"+name,System.currentTimeMillis()-startTime, null, aux));
 		return aux;
 	}
 
+	@Override
+	public Matrix multiply(Matrix m, Matrix m1, boolean transposeM, boolean transposeM1){
+		if(!transposeM && !transposeM1)
+			return multiply(m, m1);
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-transposed-"+name, m, m1, null));
+		Matrix aux;
+		if(m instanceof MatrixFloat || m1 instanceof MatrixFloat) //dense matrices are transposed and multiplied by blocks
+			aux = (transposeM ? m.fastTrans() : m).fastMult(transposeM1 ? m1.fastTrans() : m1);
+		else //the transposed matrices are read by columns, without copying them
+			aux = FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.multiply(toCSR(m), transposeM, toCSR(m1), transposeM1));
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-transposed-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
+	@Override
+	public float[] multiply(Matrix m, float [] x){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-vector-"+name, m, null, null));
+		float [] y = new float[m.rowSize()];
+		m.fastMult(x, y); //each representation traverses its own storage, without building a Matrix for the vector
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-vector-"+name,System.currentTimeMillis()-startTime, null, m));
+		return y;
+	}
+
+	@Override
+	public float[][] multiply(Matrix m, float [][] panel){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-panel-"+name, m, null, null));
+		float [][] y = new float[m.rowSize()][panel.length > 0 ? panel[0].length : 0];
+		m.fastMult(panel, y);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-panel-"+name,System.currentTimeMillis()-startTime, null, m));
+		return y;
+	}
+
+	@Override
+	public Matrix multiplyChain(Matrix... ms){
+		return multiplyChain(1, ms);
+	}
+
+	@Override
+	public Matrix multiplyChain(float alfa, Matrix... ms){
+		return multiplyChain(alfa, ms, new boolean[ms.length]);
+	}
+
+	@Override
+	public Matrix multiplyChain(float alfa, Matrix [] ms, boolean [] transposed){
+		long startTime = System.currentTimeMillis();
+		MatrixChain chain = new MatrixChain(ms, transposed);
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-chain-"+name+" "+chain, ms[0], ms[ms.length-1], null));
+		Matrix aux = chain.multiply(this, alfa);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-chain-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
+	@Override
+	public Matrix multiplyPruned(Matrix m, Matrix m1){
+		return multiplyPruned(m, m1, Configuration.tolerance, 0);
+	}
+
+	@Override
+	public Matrix multiplyPruned(Matrix m, Matrix m1, float tolerance, int top){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-pruned-"+name, m, m1, null));
+		Matrix aux = FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.multiply(toCSR(m), false, toCSR(m1), false, tolerance, top));
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-pruned-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
+	/**
+	 * The rows of both matrices are merged, see {@link MatrixCSR#add(float, MatrixCSR, float, MatrixCSR)}.
+	 */
+	@Override
+	public Matrix add(Matrix m, float alfa, Matrix m1){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("adding-scaled-"+name, m, m1, null));
+		Matrix aux;
+		if(m instanceof MatrixDiagonal || m1 instanceof MatrixDiagonal) //only the diagonal of the other matrix changes
+			aux = m instanceof MatrixDiagonal ? ((MatrixDiagonal) m).fastAdd(1, m1, alfa) : ((MatrixDiagonal) m1).fastAdd(alfa, m, 1);
+		else
+			aux = FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.add(1, toCSR(m), alfa, toCSR(m1)));
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("adding-scaled-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
+	/**
+	 * The rows of the addend are added to the accumulators of the rows of the product, see {@link MatrixCSR#multiplyAdd(float, MatrixCSR, MatrixCSR, float, MatrixCSR)}.
+	 */
+	@Override
+	public Matrix multiplyAdd(float alfa, Matrix m, Matrix m1, float beta, Matrix m2){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-add-"+name, m, m1, null));
+		Matrix aux = FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.multiplyAdd(alfa, toCSR(m), toCSR(m1), beta, toCSR(m2)));
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-add-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
+	@Override
+	public Matrix subtractFromDiagonal(float [] diagonal, Matrix m){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("subtract-from-diagonal-"+name, m, null, null));
+		Matrix aux = new MatrixDiagonal(diagonal).fastAdd(1, m, -1); //only the diagonal of m changes
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("subtract-from-diagonal-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
+	/**
+	 * @return the Matrix itself if it already is in CSR format, or a CSR copy of it otherwise
+	 */
+	protected static MatrixCSR toCSR(Matrix m){
+		return m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+	}
+
 	@Override
 	public Matrix multiplyByTranspose(Matrix m){
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-by-transpose-"+name, m,null, null));
-		Matrix m1=this.transpose(m);
-		Matrix aux = this.multiply(m, m1);
+		Matrix aux = MatrixSymmetric.multiplyByTranspose(m); //only the upper triangle is computed
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-by-transpose-"+name,System.currentTimeMillis()-startTime, null, aux));
 		return aux;
 	}
 
+	@Override
+	public Matrix transposeMultiply(Matrix m){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("transpose-multiply-"+name, m,null, null));
+		Matrix aux = MatrixSymmetric.transposeMultiply(m); //only the upper triangle is computed, without transposing m
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("transpose-multiply-"+name,System.currentTimeMillis()-startTime, null, aux));
+		return aux;
+	}
+
 	@Override
 	public Matrix multiply(float alfa, Matrix m){
 		long startTime = System.currentTimeMillis();
@@ -75,7 +206,7 @@ public abstract class MatrixComputationSparse implements MatrixComputation{
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("invert-"+name, m,null, null));
 		if(m.isSquare() && m.isDiagonal()){
-			Matrix inv = FactoryMatrixHolder.getFactory().createMatrix(m);
+			Matrix inv = new MatrixDiagonal(m); //only the diagonal is copied and inverted
 			inv.invertDiagonal();
 			return inv;
 		}
@@ -87,37 +218,10 @@ public abstract class MatrixComputationSparse implements MatrixComputation{
 
 	private Matrix solve(Matrix m) {
 
-		
-		Matrix identity = FactoryMatrixHolder.getFactory().createIdentity(m.rowSize());
-		if(m.isSquare()){ //exact inverse
-			
-			Matrix cholesky = m.fastCholesky();
-			if(cholesky!=null){
-				identity.findFastSolution(cholesky);
-				return identity;
-			}
-			else{
-				int [] piv = new int[m.rowSize()];
-				
-				long startTime = System.currentTimeMillis();
-				Configuration.logger.log(Level.INFO,Configuration.getLogString("fastLU-"+name, m,null, null));
-				
-				Matrix LU = m.fastLU(piv);
-				
-				Configuration.logger.log(Level.INFO, Configuration.getLogTime("fastLU-"+name,System.currentTimeMillis()-startTime, null, LU));
-				
-				startTime = System.currentTimeMillis();
-				Configuration.logger.log(Level.INFO,Configuration.getLogString("solutionLinearSystem-"+name, m,null, null));
-				if(LU.isSingular())
-					throw new IllegalArgumentException("Matrix is Singular!");
-				Matrix inverse = FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), identity.columnSize());
-				inverse.findFastSolution(LU,identity,piv);
-				
-				Configuration.logger.log(Level.INFO, Configuration.getLogTime("solutionLinearSystem-"+name,System.currentTimeMillis()-startTime, null, inverse));
-				return inverse;
-			}
-		}
+		if(m.isSquare()) //exact inverse
+			return solve(factorize(m), m, FactoryMatrixHolder.getFactory().createIdentity(m.rowSize()));
 		else{ //pseudo-inverse
+			Matrix identity = FactoryMatrixHolder.getFactory().createIdentity(m.rowSize());
 			float [] Rdiag = new float[m.columnSize()];
 			
 			long startTime = System.currentTimeMillis();
@@ -137,7 +241,101 @@ public abstract class MatrixComputationSparse implements MatrixComputation{
 			return identity;
 		}
 	}
-	
+
+	/**
+	 * Solves the system with the factorization chosen by {@link #factorize(Matrix)}. {@link SupernodalCholesky#solve(Matrix)} only visits the columns of b.
+	 */
+	@Override
+	public Matrix solveSystem(Matrix m, Matrix b){
+		if(m.rowSize()!=b.rowSize())
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the Matrix.");
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("solve-"+name, m,b, null));
+		Matrix x;
+		if(m.isSquare() && m.isDiagonal())
+			x = multiply(invert(m), b);
+		else
+			x = solve(factorize(m), m, b);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("solve-"+name,System.currentTimeMillis()-startTime, null, x));
+		return x;
+	}
+
+	@Override
+	public Matrix solveIterative(Matrix m, Matrix b, Preconditioner preconditioner, float tolerance, int maxIterations){
+		if(m.rowSize()!=b.rowSize())
+			throw new ArrayIndexOutOfBoundsException("The number of rows of the right-hand sides does not match the Matrix.");
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("solveIterative-"+name, m,b, null));
+		ConjugateGradient cg = new ConjugateGradient(m, preconditioner, tolerance, maxIterations);
+		Matrix x = cg.solve(b);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("solveIterative-"+name+" iterations "+cg.getIterations(),System.currentTimeMillis()-startTime, null, x));
+		return x;
+	}
+
+	private Matrix solve(Factorization factorization, Matrix m, Matrix b) {
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("solutionLinearSystem-"+name, m,b, null));
+		Matrix x = factorization.solve(b);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("solutionLinearSystem-"+name,System.currentTimeMillis()-startTime, null, x));
+		return x;
+	}
+
+	/**
+	 * Uses the Cholesky factorization when the Matrix is symmetric positive definite, the LU factorization for other square matrices, 
+	 * both of the Matrix ordered by {@link Configuration#ordering}, and the QR factorization for non-square matrices.
+	 */
+	@Override
+	public Factorization factorize(Matrix m){
+		Factorization factorization;
+		if(!m.isSquare())
+			factorization = qr(m);
+		else{
+			factorization = cholesky(m);
+			if(factorization==null)
+				factorization = lu(m);
+		}
+		return factorization;
+	}
+
+	/**
+	 * The sparse implementations of {@link Matrix#findFastSolutionSquares(Matrix, float[])} compute the pseudo-inverse, regardless of the
+	 * right-hand sides, so the least squares solution relies on {@link MatrixComputationFD}, see {@link FactorizationQR}.
+	 */
+	private Factorization qr(Matrix m){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("fastQR-"+name, m,null, null));
+		FactorizationQR qr = new FactorizationQR(m);
+		if(!qr.factorize(m))
+			throw new IllegalArgumentException("Matrix is Singular!");
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("fastQR-"+name,System.currentTimeMillis()-startTime, null, m));
+		return qr;
+	}
+
+	/**
+	 * Computes the LU factorization of the Matrix ordered by {@link Configuration#ordering}, see {@link FactorizationLU}.
+	 */
+	private Factorization lu(Matrix m){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("fastLU-"+name, m,null, null));
+		FactorizationLU lu = FactorizationLU.factorize(m, Configuration.ordering);
+		if(lu==null)
+			throw new IllegalArgumentException("Matrix is Singular!");
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("fastLU-"+name,System.currentTimeMillis()-startTime, Configuration.ordering.getClass().getSimpleName(), m));
+		return lu;
+	}
+
+	/**
+	 * Computes the sparse Cholesky factorization of the Matrix ordered by {@link Configuration#ordering}, see {@link SupernodalCholesky}.
+	 * @return the factorization, or null if the Matrix is not symmetric positive definite
+	 */
+	private SupernodalCholesky cholesky(Matrix m){
+		long startTime = System.currentTimeMillis();
+		Configuration.logger.log(Level.INFO,Configuration.getLogString("fastCholesky-"+name, m,null, null));
+		SupernodalCholesky cholesky = SupernodalCholesky.factorize(m, Configuration.ordering);
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("fastCholesky-"+name,System.currentTimeMillis()-startTime, cholesky==null ? "not positive definite" : cholesky.getSymbolic().getSupernodes()+" supernodes, "+cholesky.getSymbolic().getNonZeros()+" non-zeros", m));
+		return cholesky;
+	}
+
 	@Override
 	public Matrix invertByCholesky(Matrix m) {
 		
@@ -149,14 +347,13 @@ public abstract class MatrixComputationSparse implements MatrixComputation{
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("invert-by-Cholesky-"+name, m,null, null));
 
 		Matrix hermitian = multiplyByTranspose(m);
-		Matrix cholesky = hermitian.fastCholesky();
+		SupernodalCholesky cholesky = cholesky(hermitian);
 		
-		if(cholesky.isSingular())
+		if(cholesky==null)
 			throw new IllegalArgumentException("Matrix is Singular!");
 		
-		Matrix identity = FactoryMatrixHolder.getFactory().createIdentity(m.rowSize());
-		identity.findFastSolution(cholesky);
-		identity = m.fastTrans().fastMult(identity);
+		Matrix identity = cholesky.solve(FactoryMatrixHolder.getFactory().createIdentity(m.rowSize()));
+		identity = multiply(m, identity, true, false);
 
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("invert-by-Cholesky-"+name,System.currentTimeMillis()-startTime, null, identity));
 		return identity;
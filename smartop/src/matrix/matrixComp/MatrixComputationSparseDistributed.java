@@ -29,6 +29,9 @@ import matrix.adapterDistribution.tasks.MutiplicationTask;
 import matrix.adapterDistribution.tasks.SubtractRowTask;
 import matrix.factory.FactoryMatrixHolder;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSC;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.MatrixSymmetric;
 import matrix.reconstructionStrategy.LaplacianMatrixReconstructionStrategy;
 import matrix.reconstructionStrategy.RowMatrixReconstructionStrategy;
 
@@ -115,6 +118,57 @@ public class MatrixComputationSparseDistributed extends MatrixComputationSparse
 		
 	}
 	
+	/**
+	 * The tasks are created as in {@link #add(Matrix, Matrix)}, and each of them scales its rows of m1 while adding them.
+	 */
+	@Override
+	public Matrix add(Matrix m, float alfa, Matrix m1){
+
+		long startTime = System.currentTimeMillis();
+		
+		int PARALLEL_FACTOR = Configuration.policy.getTasksForAddOrSubstract(m, m1);
+		Matrix result = FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), m.columnSize());
+		IDataShared dataShared = adapter.getDataShared();
+		
+		try {
+			
+			Configuration.logger.log(Level.INFO,Configuration.getLogString("add-scaled-distributed", m, m1, PARALLEL_FACTOR));
+			
+			dataShared.putValue(FACTORY, FactoryMatrixHolder.getFactory());
+			
+			int rowsPerCore = m.rowSize() / PARALLEL_FACTOR;
+			if(rowsPerCore==0)
+				rowsPerCore++;
+
+			int endRow = 0;
+			List<ITask> tasks = new ArrayList<ITask>();
+			
+			for(int startRow=0;startRow<m.rowSize();startRow=endRow){
+				endRow = endRow + rowsPerCore;
+				
+				if(endRow>m.rowSize())
+					endRow=m.rowSize();
+				
+				ITask task = new AddRowTask(startRow, endRow, m.getSubmatrix(startRow, endRow), alfa, m1.getSubmatrix(startRow, endRow));
+				tasks.add(task);
+				Configuration.logger.log(Level.INFO,"Creating add task for: [" + startRow + "," + endRow + "]");
+			}
+			
+			adapter.createJob(tasks.size(),result,new RowMatrixReconstructionStrategy());
+			adapter.addTasks(tasks);
+			adapter.submit();
+			adapter.waitUntilComplete();
+			
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+		
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("add-scaled-distributed",System.currentTimeMillis()-startTime, Configuration.policy.getClass().toString(), result));
+		
+		return result;
+		
+	}
+	
 	@Override
 	public Matrix subtract(Matrix m, Matrix m1){
 
@@ -186,7 +240,7 @@ public class MatrixComputationSparseDistributed extends MatrixComputationSparse
 				
 				Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-distributed", m, sec, PARALLEL_FACTOR));
 				
-				dp.putValue(SECOND_MATRIX, sec);
+				dp.putValue(SECOND_MATRIX, sec instanceof MatrixCSR ? sec : new MatrixCSR(sec)); //the tasks traverse its rows
 				dp.putValue(FACTORY,FactoryMatrixHolder.getFactory());
 					
 				List<ITask> tasks = createTasks(m, PARALLEL_FACTOR);
@@ -204,6 +258,59 @@ public class MatrixComputationSparseDistributed extends MatrixComputationSparse
 			return result;
 		}
 
+	/**
+	 * The rows are split in ranges as in {@link #add(Matrix, Matrix)}, and each task multiplies its rows of m and adds the same rows of m2
+	 * while accumulating them, see {@link MutiplicationTask#MutiplicationTask(float, Matrix, float, Matrix)}.
+	 */
+	@Override
+	public Matrix multiplyAdd(float alfa, Matrix m, Matrix sec, float beta, Matrix m2){
+
+		if(m.columnSize()!=sec.rowSize() || m2.rowSize()!=m.rowSize() || m2.columnSize()!=sec.columnSize()) 
+			throw new ArrayIndexOutOfBoundsException();
+
+		long startTime = System.currentTimeMillis();
+
+		int PARALLEL_FACTOR = Configuration.policy.getTasksForMultiply(m, sec);
+		Matrix result = FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), sec.columnSize());
+		IDataShared dp = adapter.getDataShared();
+		try {
+
+			Configuration.logger.log(Level.INFO,Configuration.getLogString("multiply-add-distributed", m, sec, PARALLEL_FACTOR));
+
+			dp.putValue(SECOND_MATRIX, sec instanceof MatrixCSR ? sec : new MatrixCSR(sec)); //the tasks traverse its rows
+			dp.putValue(FACTORY,FactoryMatrixHolder.getFactory());
+
+			int rowsPerCore = m.rowSize() / PARALLEL_FACTOR;
+			if(rowsPerCore==0)
+				rowsPerCore++;
+
+			int endRow = 0;
+			List<ITask> tasks = new ArrayList<ITask>();
+
+			for(int startRow=0;startRow<m.rowSize();startRow=endRow){
+				endRow = endRow + rowsPerCore;
+
+				if(endRow>m.rowSize())
+					endRow=m.rowSize();
+
+				ITask task = new MutiplicationTask(alfa, m.getSubmatrix(startRow, endRow), beta, m2.getSubmatrix(startRow, endRow));
+				tasks.add(task);
+				Configuration.logger.log(Level.INFO,"Creating multiply-add task for: [" + startRow + "," + endRow + "]");
+			}
+
+			adapter.createJob(tasks.size(),result,new RowMatrixReconstructionStrategy());
+			adapter.addTasks(tasks);
+			adapter.submit();
+			adapter.waitUntilComplete();
+
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+		Configuration.logger.log(Level.INFO, Configuration.getLogTime("multiply-add-distributed",System.currentTimeMillis()-startTime, Configuration.policy.getClass().toString(), result));
+
+		return result;
+	}
+
 	/**
 	 * Creates the number of tasks that results of dividing the number of rows by the PARALLEL_FACTOR. 
 	 * If the division is not exact, it creates another task with the remaining rows.
@@ -245,6 +352,12 @@ public class MatrixComputationSparseDistributed extends MatrixComputationSparse
 		
 		long startTime = System.currentTimeMillis();
 		
+		if(A instanceof MatrixSymmetric){ //the degrees are computed in a single pass over the upper triangle, which is cheaper than distributing it
+			Matrix La = ((MatrixSymmetric) A).fastLaplacian();
+			Configuration.logger.log(Level.INFO, Configuration.getLogTime("laplacian-distributed",System.currentTimeMillis()-startTime, Configuration.policy.getClass().toString(), La));
+			return La;
+		}
+		
 		Matrix Da=FactoryMatrixHolder.getFactory().createMatrix(A.rowSize(),A.columnSize());
 		IDataShared dp = adapter.getDataShared();
 		int PARALLEL_FACTOR = Configuration.policy.getTasksForLaplacian(A);
@@ -253,7 +366,7 @@ public class MatrixComputationSparseDistributed extends MatrixComputationSparse
 			
 			Configuration.logger.log(Level.INFO,Configuration.getLogString("laplacian-distributed", A, null, PARALLEL_FACTOR));
 			
-			dp.putValue(LAPLACIAN_MATRIX, A);
+			dp.putValue(LAPLACIAN_MATRIX, A instanceof MatrixCSC ? A : new MatrixCSC(A)); //the tasks sum columns
 			dp.putValue(FACTORY, FactoryMatrixHolder.getFactory());
 				
 			int rowsPerCore = Da.rowSize() / PARALLEL_FACTOR;
@@ -287,7 +400,10 @@ public class MatrixComputationSparseDistributed extends MatrixComputationSparse
 			catch (Exception ex) {
 				ex.printStackTrace();
 			}
-		Da=subtract(Da,A);
+		float [] degrees = new float[Da.rowSize()];
+		for(int i=0;i<degrees.length;i++)
+			degrees[i]=Da.getValue(i, i);
+		Da=subtractFromDiagonal(degrees,A); //only the diagonal of A changes, which is cheaper than distributing it
 		
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("laplacian-distributed",System.currentTimeMillis()-startTime, Configuration.policy.getClass().toString(), Da));
 		return Da;
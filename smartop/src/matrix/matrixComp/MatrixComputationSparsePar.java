@@ -23,6 +23,10 @@ import java.util.logging.Level;
 import matrix.adapterDistribution.Configuration;
 import matrix.factory.FactoryMatrixHolder;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixCSC;
+import matrix.matrixImpl.MatrixCSR;
+import matrix.matrixImpl.MatrixDiagonal;
+import matrix.matrixImpl.MatrixSymmetric;
 
 /**
  * @author Antonela Tommasel
@@ -39,90 +43,44 @@ public class MatrixComputationSparsePar extends MatrixComputationSparse {
 		name = "multi-thread";
 	}
 	
+	/**
+	 * The rows of both matrices are merged in parallel, see {@link MatrixCSR#add(float, MatrixCSR, float, MatrixCSR)}.
+	 */
 	@Override
 	public Matrix subtract(final Matrix m, final Matrix m1) {
 
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("subtract-"+name, m, m1,Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors()));
-		
-		final Matrix aux = FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), m.columnSize());
-		
-		ExecutorService th = Executors.newFixedThreadPool(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors());
-		
-		final Semaphore sema = new Semaphore(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors() + 1);
-
-		for (int i = 0; i < m.rowSize(); i++) {
-			final int i1 = i;
-			try {
-				sema.acquire();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			Runnable r = new Runnable() {
-
-				@Override
-				public void run() {
-					for (int j = 0; j < m.columnSize(); j++)
-						aux.setValue(i1, j,
-								m.getValue(i1, j) - m1.getValue(i1, j));
-					sema.release();
-				}
-			};
-			th.submit(r);
-		}
 
-		try {
-			sema.acquire(Configuration.MAX_THREADS * Runtime.getRuntime().availableProcessors() + 1);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		if(m instanceof MatrixDiagonal || m1 instanceof MatrixDiagonal){ //only the diagonal of the other matrix changes
+			Matrix aux = m instanceof MatrixDiagonal ? ((MatrixDiagonal) m).fastAdd(1, m1, -1) : ((MatrixDiagonal) m1).fastAdd(-1, m, 1);
+			Configuration.logger.log(Level.INFO, Configuration.getLogTime("subtract-"+name,System.currentTimeMillis()-startTime, "Threads: "+Configuration.MAX_THREADS, aux));
+			return aux;
 		}
 		
-		th.shutdown();
+		Matrix aux = FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.add(1, toCSR(m), -1, toCSR(m1))); //only the non-zero elements of each row are merged
 		
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("subtract-"+name,System.currentTimeMillis()-startTime, "Threads: "+Configuration.MAX_THREADS, aux));
 		
 		return aux;
 	}
 
+	/**
+	 * The rows of both matrices are merged in parallel, see {@link MatrixCSR#add(float, MatrixCSR, float, MatrixCSR)}.
+	 */
 	@Override
 	public Matrix add(final Matrix m, final Matrix m1) {
 
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("adding-"+name, m, m1,Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors()));
 
-		final Matrix aux = FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), m.columnSize());
-
-		ExecutorService th = Executors.newFixedThreadPool(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors());
-		final Semaphore sema = new Semaphore(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors() + 1);
-
-		for (int i = 0; i < m.rowSize(); i++) {
-			final int i1 = i;
-			try {
-				sema.acquire();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-
-			Runnable r = new Runnable() {
-
-				@Override
-				public void run() { 
-					for (int j = 0; j < m.columnSize(); j++)
-						aux.setValue(i1, j,
-								m.getValue(i1, j) + m1.getValue(i1, j));
-
-					sema.release();
-				}
-			};
-			th.submit(r);
+		if(m instanceof MatrixDiagonal || m1 instanceof MatrixDiagonal){ //only the diagonal of the other matrix changes
+			Matrix aux = m instanceof MatrixDiagonal ? ((MatrixDiagonal) m).fastAdd(1, m1, 1) : ((MatrixDiagonal) m1).fastAdd(1, m, 1);
+			Configuration.logger.log(Level.INFO, Configuration.getLogTime("addition-multi-thread",System.currentTimeMillis()-startTime, "Threads: "+Configuration.MAX_THREADS, aux));
+			return aux;
 		}
 
-		try {
-			sema.acquire(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors() + 1);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		th.shutdown();
+		Matrix aux = FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.add(1, toCSR(m), 1, toCSR(m1))); //only the non-zero elements of each row are merged
 
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("addition-multi-thread",System.currentTimeMillis()-startTime, "Threads: "+Configuration.MAX_THREADS, aux));
 
@@ -135,43 +93,18 @@ public class MatrixComputationSparsePar extends MatrixComputationSparse {
 		long startTime = System.currentTimeMillis();
 		Configuration.logger.log(Level.INFO,Configuration.getLogString("laplacian-"+name, m, null,Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors()));
 		
-		final Matrix Da = FactoryMatrixHolder.getFactory().createMatrix(m.rowSize(), m.columnSize());
-		ExecutorService th = Executors.newFixedThreadPool(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors());
-		
-		final Semaphore sema = new Semaphore(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors() + 1);
-
-		for (int i = 0; i < Da.rowSize(); i++) {
-
-			final int i1 = i;
-			try {
-				sema.acquire();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-
-			Runnable r = new Runnable() {
-
-				@Override
-				public void run() {
-					float sum = 0;
-					for (int j = 0; j < Da.columnSize(); j++)
-						sum += m.getValue(j, i1);
-					Da.setValue(i1, i1, sum);
-					sema.release();
-				}
-			};
-
-			th.submit(r);
+		if(m instanceof MatrixSymmetric){ //the degrees are computed in a single pass over the upper triangle
+			Matrix La = ((MatrixSymmetric) m).fastLaplacian();
+			Configuration.logger.log(Level.INFO, Configuration.getLogTime("laplacian-"+name,System.currentTimeMillis()-startTime, "Threads: "+Configuration.MAX_THREADS, La));
+			return La;
 		}
 
-		try {
-			sema.acquire(Configuration.MAX_THREADS* Runtime.getRuntime().availableProcessors() + 1);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		th.shutdown();
+		final MatrixCSC byColumns = m instanceof MatrixCSC ? (MatrixCSC) m : new MatrixCSC(m); //column sums only visit the non-zero elements
+		float [] degrees = new float[m.columnSize()]; //the whole pass costs as much as the non-zero elements, so it is not split in threads
+		for (int i = 0; i < degrees.length; i++)
+			degrees[i] = byColumns.getColumnSum(i);
 
-		Matrix aux = subtract(Da, m);
+		Matrix aux = subtractFromDiagonal(degrees, m);
 		
 		Configuration.logger.log(Level.INFO, Configuration.getLogTime("laplacian-"+name,System.currentTimeMillis()-startTime, "Threads: "+Configuration.MAX_THREADS, aux));
 		
@@ -19,13 +19,21 @@ import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import matrix.factory.FactoryMatrixHolder;
+import matrix.matrixComp.MatrixComputationFD;
 
 /**
  *  Abstract class to represent 2D matrices Provides the signature of all methods and several common implementations.
@@ -101,9 +109,11 @@ public abstract class Matrix implements Serializable {
 
 	/**
 	 * @param i the index of the row
-	 * @return the sparsity of the specified row.
+	 * @return the sparsity of the specified row, i.e. the fraction of its elements that are zero, computed from {@link #getNonZerosRow(int)}.
 	 */
-	public abstract float getSparcityRow(int i);
+	public float getSparcityRow(int i) {
+		return (columns-getNonZerosRow(i))/(float)columns;
+	}
 
 	/**
 	 * @param i the index of the row
@@ -131,6 +141,64 @@ public abstract class Matrix implements Serializable {
 	 */
 	public abstract Matrix fastMult(Matrix m1);
 
+	/**
+	 * Multiplies the Matrix by a dense vector, i.e. <tt>y = this x x</tt>, without creating any Matrix. The result is written in <tt>y</tt>,
+	 * so that iterative methods can reuse the same vector in every iteration.
+	 * This implementation visits the non-zero elements by means of {@link #getRows()}, {@link #getColumns(int)} and {@link #getValue(int, int)},
+	 * and is overridden by the representations that can traverse their elements directly.
+	 * @param x vector to multiply, of length {@link #columnSize()}
+	 * @param y vector in which the result is written, of length {@link #rowSize()}. Its previous values are overwritten.
+	 */
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		for(int i:getRows()){
+			float sum = 0;
+			for(int j:getColumns(i))
+				sum += getValue(i, j)*x[j];
+			y[i] = sum;
+		}
+	}
+
+	/**
+	 * Multiplies the Matrix by a dense panel of vectors, i.e. <tt>y = this x x</tt>, where the vectors are the columns of the panels.
+	 * As in {@link #fastMult(float[], float[])}, the result is written in <tt>y</tt> and the representations override this implementation.
+	 * @param x panel to multiply, with {@link #columnSize()} rows of the same length
+	 * @param y panel in which the result is written, with {@link #rowSize()} rows of the same length than those of <tt>x</tt>. Its previous values are overwritten.
+	 */
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(float [] row:y)
+			Arrays.fill(row, 0);
+		for(int i:getRows()){
+			float [] yi = y[i];
+			for(int j:getColumns(i)){
+				float v = getValue(i, j);
+				float [] xj = x[j];
+				for(int c=0;c<width;c++)
+					yi[c] += v*xj[c];
+			}
+		}
+	}
+
+	/**
+	 * Checks that the panels of {@link #fastMult(float[][], float[][])} match the size of the Matrix and have rows of the same length.
+	 * @return the length of the rows of the panels, i.e. the number of vectors
+	 */
+	protected int checkPanels(float [][] x, float [][] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		int width = x.length>0 ? x[0].length : (y.length>0 ? y[0].length : 0);
+		for(float [] row:x)
+			if(row.length!=width)
+				throw new ArrayIndexOutOfBoundsException();
+		for(float [] row:y)
+			if(row.length!=width)
+				throw new ArrayIndexOutOfBoundsException();
+		return width;
+	}
+
 	/**
 	 * Computes sparseness statistics of the matrix. This method is used for computing the Parallel Factor for distributing the matrix operations.
 	 * @return statistics of the matrix sparseness. The array has length 3.
@@ -218,8 +286,8 @@ public abstract class Matrix implements Serializable {
 
 		if (j < columns) {
 			m = FactoryMatrixHolder.getFactory().createMatrix(rows, 1);
-			for (int i = 0; i < rows; i++)
-				m.setValue(i, 1, this.getValue(i, j));
+			for (int i : getRows()) //only the stored rows can have non-zero elements
+				m.setValue(i, 0, this.getValue(i, j));
 		}
 
 		return m;
@@ -235,8 +303,8 @@ public abstract class Matrix implements Serializable {
 
 		if (i < rows) {
 			m = FactoryMatrixHolder.getFactory().createMatrix(1, columns);
-			for (int j = 0; j < columns; j++)
-				m.setValue(i, 1, this.getValue(i, j));
+			for (int j : getColumns(i))
+				m.setValue(0, j, this.getValue(i, j));
 		}
 
 		return m;
@@ -354,6 +422,78 @@ public abstract class Matrix implements Serializable {
 		}
 	}
 	
+	/**
+	 * Saves the matrix to disk in a binary Compressed Sparse Row format, which can be loaded without parsing
+	 * by mapping the file into memory (see {@link MatrixOffHeap#map(String)}). All the factories recognise the format
+	 * when creating a matrix from a file.
+	 * <br>
+	 * The file contains a header of six little-endian ints (magic number, version, rows, columns, non-zero elements and a reserved
+	 * value), followed by the rows+1 row pointers, the column coordinates of the non-zero elements sorted within each row, and their values.
+	 * @param path path where to store the binary representation of the matrix
+	 * @throws IOException when the file cannot be written
+	 */
+	public void saveToBinary(String path) throws IOException{
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try{
+			FileChannel channel = file.getChannel();
+			channel.truncate(0);
+			List<Integer> sortedRows = new ArrayList<Integer>(getRows());
+			Collections.sort(sortedRows);
+			int [] pointers = new int[rows+1];
+			for(int i:sortedRows)
+				pointers[i+1] = getColumns(i).size();
+			for(int i=0;i<rows;i++)
+				pointers[i+1] += pointers[i];
+			int nnz = pointers[rows];
+
+			ByteBuffer header = ByteBuffer.allocate(MatrixOffHeap.HEADER_SIZE + 4*(rows+1)).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MatrixOffHeap.MAGIC).putInt(MatrixOffHeap.VERSION).putInt(rows).putInt(columns).putInt(nnz).putInt(0);
+			for(int p:pointers)
+				header.putInt(p);
+			header.flip();
+			long position = 0;
+			while(header.hasRemaining())
+				position += channel.write(header, position);
+
+			//the column coordinates and the values are written in two regions of the file at the same time
+			long indicesPosition = position;
+			long valuesPosition = position + 4L*nnz;
+			ByteBuffer indices = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			ByteBuffer values = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			for(int i:sortedRows){
+				int [] columns = new int[pointers[i+1]-pointers[i]];
+				int n = 0;
+				for(int j:getColumns(i))
+					columns[n++] = j;
+				Arrays.sort(columns);
+				for(int j:columns){
+					if(!indices.hasRemaining()){
+						indicesPosition = flush(channel, indices, indicesPosition);
+						valuesPosition = flush(channel, values, valuesPosition);
+					}
+					indices.putInt(j);
+					values.putFloat(getValue(i, j));
+				}
+			}
+			flush(channel, indices, indicesPosition);
+			flush(channel, values, valuesPosition);
+		}finally{
+			file.close(); //closes the channel as well
+		}
+	}
+
+	/**
+	 * Writes the content of the buffer at the given position of the channel, and clears the buffer.
+	 * @return the position after the written content
+	 */
+	private static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			position += channel.write(buffer, position);
+		buffer.clear();
+		return position;
+	}
+	
 	/** Analyses whether the matrix is square, i.e. the number of rows is equal to the number of columns
 	 * @return true if the matrix is square
 	 */
@@ -369,43 +509,76 @@ public abstract class Matrix implements Serializable {
 	
 	/**
 	 * Computes the LU decomposition of the Matrix leveraging the internal structure of the Matrix
+	 * <br>
+	 * As decompositions fill in the matrix, this implementation and the following ones regarding decompositions invoke the methods in 
+	 * {@link MatrixComputationFD}, and the solutions are stored in this Matrix by means of {@link #copyFrom(Matrix)}.
+	 * The representations that can decompose the Matrix in their own storage override them.
 	 * @param piv pivot array 
 	 * @return the LU decomposition of the Matrix
 	 */
-	public abstract Matrix fastLU(int [] piv);
+	public Matrix fastLU(int [] piv){
+		return new MatrixComputationFD().solveLU(this, piv);
+	}
 	
 	/**
-	 * Computes the QR decomposition of the Matrix leveraging the internal structure of the Matrix
+	 * Computes the QR decomposition of the Matrix leveraging the internal structure of the Matrix, see {@link #fastLU(int[])}.
 	 * @param Rdiag internal storage of the diagonal of R.
 	 * @return the QR decomposition of the Matrix
 	 */
-	public abstract Matrix fastQR(float [] Rdiag);
+	public Matrix fastQR(float [] Rdiag){
+		return new MatrixComputationFD().solveQR(this, Rdiag);
+	}
 	
 	/**
 	 * @param LU A*X = B
 	 * @param B Result matrix
 	 * @param piv pivot array
 	 */
-	public abstract void findFastSolution(Matrix LU,Matrix B,int [] piv);
+	public void findFastSolution(Matrix LU,Matrix B,int [] piv){
+		copyFrom(new MatrixComputationFD().solve(LU, B, piv));
+	}
 	
 	/**
 	 * @param QR A*X = B
 	 * @param Rdiag diagonal of R
 	 */
-	public abstract void findFastSolutionSquares(Matrix QR,float [] Rdiag);
+	public void findFastSolutionSquares(Matrix QR,float [] Rdiag){
+		copyFrom(new MatrixComputationFD().solveLeastSquare(QR, FactoryMatrixHolder.getFactory().createIdentity(QR.rowSize()), Rdiag));
+	}
 
 	
 	/**
 	 * Computes the Cholesky decomposition of the Matrix in case it exists. Otherwise it returns null.
 	 * @return the Cholesky decomposition of the Matrix
 	 */
-	public abstract Matrix fastCholesky();
+	public Matrix fastCholesky(){
+		return new MatrixComputationFD().solveCholesky(this);
+	}
 	
 	/**
 	 * Computes A*X = B for solving the inverse by means of the Cholesky decomposition
 	 * @param cholesky A
 	 */
-	public abstract void findFastSolution(Matrix cholesky);
+	public void findFastSolution(Matrix cholesky){
+		copyFrom(new MatrixComputationFD().solveByCholesky(cholesky, this));
+	}
+
+	/**
+	 * Replaces the content of this Matrix by the content of another one. This implementation sets each element by means of 
+	 * {@link #setValue(int, int, float)}, so the dimensions cannot change. The representations override it to replace their storage at once.
+	 * @param m Matrix from which to copy the values
+	 * @throws ArrayIndexOutOfBoundsException when the dimensions of the matrices do not match
+	 */
+	protected void copyFrom(Matrix m){
+		if(m.rowSize()!=rows || m.columnSize()!=columns)
+			throw new ArrayIndexOutOfBoundsException("The dimensions of the Matrix cannot be changed.");
+		for(int i:new ArrayList<Integer>(getRows()))
+			for(int j:new ArrayList<Integer>(getColumns(i)))
+				setValue(i, j, 0);
+		for(int i:m.getRows())
+			for(int j:m.getColumns(i))
+				setValue(i, j, m.getValue(i, j));
+	}
 	
 	/**
 	 * Inverts the diagonal matrix
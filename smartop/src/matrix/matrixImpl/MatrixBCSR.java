@@ -0,0 +1,639 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Provides implementation of a sparse 2d matrix in the Block Compressed Sparse Row (BCSR) format. The matrix is split in tiles of
+ * <tt>blockRows x blockColumns</tt> elements, and only the tiles holding a non-zero element are stored, as dense arrays:
+ * <ul>
+ * <li><tt>blockPointers</tt>, of length <tt>ceil(rows/blockRows)+1</tt>, where the tiles of block row <tt>I</tt> are stored in positions
+ * <tt>[blockPointers[I], blockPointers[I+1])</tt> of <tt>blockIndices</tt>.</li>
+ * <li><tt>blockIndices</tt>, with the block column coordinate of each tile, sorted within each block row.</li>
+ * <li><tt>blockValues</tt>, with the elements of each tile in row-major order. The tile in position <tt>b</tt> starts at <tt>b*blockRows*blockColumns</tt>.</li>
+ * </ul>
+ * The zeros inside stored tiles are kept, hence the representation suits matrices whose non-zero elements are clustered in dense regions.
+ * In exchange, the multiplication works on whole tiles: the inner loops are dense products of small tiles with no search on the right matrix.
+ * As in {@link MatrixCSR}, inserting a new tile shifts all the tiles after it.
+ * @author Antonela Tommasel
+ * */
+public class MatrixBCSR extends Matrix {
+
+	private static final long serialVersionUID = 8851640217725392407L;
+
+	/**
+	 * Number of rows and columns of the tiles when they are not given.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 4;
+
+	/**
+	 * Number of rows of each tile.
+	 */
+	protected int blockRows;
+
+	/**
+	 * Number of columns of each tile.
+	 */
+	protected int blockColumns;
+
+	/**
+	 * Positions in which each block row starts. Block row <tt>I</tt> ends where block row <tt>I+1</tt> starts.
+	 */
+	protected int [] blockPointers;
+
+	/**
+	 * Block column coordinates of the tiles, sorted within each block row.
+	 */
+	protected int [] blockIndices;
+
+	/**
+	 * Elements of the tiles, in row-major order.
+	 */
+	protected float [] blockValues;
+
+	/**
+	 * Class constructor, with tiles of {@link #DEFAULT_BLOCK_SIZE}.
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 */
+	public MatrixBCSR(int f, int c) {
+		this(f, c, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Class constructor
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 * @param r number of rows of each tile.
+	 * @param bc number of columns of each tile.
+	 */
+	public MatrixBCSR(int f, int c, int r, int bc) {
+		super(f, c);
+		if(r<=0 || bc<=0)
+			throw new IllegalArgumentException("The tiles must have at least one row and one column.");
+		blockRows = r;
+		blockColumns = bc;
+		blockPointers = new int[blocks(f, r)+1];
+		blockIndices = new int[0];
+		blockValues = new float[0];
+	}
+
+	private MatrixBCSR(int f, int c, int r, int bc, int [] blockPointers, int [] blockIndices, float [] blockValues) {
+		super(f, c);
+		blockRows = r;
+		blockColumns = bc;
+		this.blockPointers = blockPointers;
+		this.blockIndices = blockIndices;
+		this.blockValues = blockValues;
+		updateSparsity();
+	}
+
+	/**
+	 * Creates a Matrix by copying the values of the other Matrix, with tiles of {@link #DEFAULT_BLOCK_SIZE}.
+	 * @param toCopy Matrix to copy the values in the new Matrix
+	 */
+	public MatrixBCSR(Matrix toCopy){
+		this(toCopy, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a Matrix by copying the values of the other Matrix.
+	 * @param toCopy Matrix to copy the values in the new Matrix
+	 * @param r number of rows of each tile.
+	 * @param bc number of columns of each tile.
+	 */
+	public MatrixBCSR(Matrix toCopy, int r, int bc){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(r<=0 || bc<=0)
+			throw new IllegalArgumentException("The tiles must have at least one row and one column.");
+		blockRows = r;
+		blockColumns = bc;
+		if(toCopy instanceof MatrixBCSR && ((MatrixBCSR) toCopy).blockRows == r && ((MatrixBCSR) toCopy).blockColumns == bc){
+			MatrixBCSR bcsr = (MatrixBCSR) toCopy;
+			int nnzb = bcsr.blockPointers[bcsr.blockPointers.length-1];
+			blockPointers = Arrays.copyOf(bcsr.blockPointers, bcsr.blockPointers.length);
+			blockIndices = Arrays.copyOf(bcsr.blockIndices, nnzb);
+			blockValues = Arrays.copyOf(bcsr.blockValues, nnzb*r*bc);
+		}
+		else
+			fromCSR(toCopy instanceof MatrixCSR ? (MatrixCSR) toCopy : new MatrixCSR(toCopy));
+		updateSparsity();
+	}
+
+	private static int blocks(int n, int size){
+		return (n+size-1)/size;
+	}
+
+	/**
+	 * Groups the elements of a CSR matrix in tiles. The tiles of each block row are found in a first pass, and filled in a second one.
+	 */
+	private void fromCSR(MatrixCSR csr){
+		int nbr = blocks(rows, blockRows);
+		int nbc = blocks(columns, blockColumns);
+		int size = blockRows*blockColumns;
+		int [] marker = new int[nbc];
+		Arrays.fill(marker, -1);
+		int [] slot = new int[nbc];
+
+		blockPointers = new int[nbr+1];
+		for(int I=0;I<nbr;I++){
+			int count = 0;
+			for(int i=I*blockRows;i<Math.min(rows, (I+1)*blockRows);i++)
+				for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+					int J = csr.columnIndices[p]/blockColumns;
+					if(marker[J]!=I && csr.values[p]!=0){
+						marker[J] = I;
+						count++;
+					}
+				}
+			blockPointers[I+1] = blockPointers[I]+count;
+		}
+
+		int nnzb = blockPointers[nbr];
+		blockIndices = new int[nnzb];
+		blockValues = new float[nnzb*size];
+		Arrays.fill(marker, -1);
+		for(int I=0;I<nbr;I++){
+			int count = 0;
+			int start = blockPointers[I];
+			for(int i=I*blockRows;i<Math.min(rows, (I+1)*blockRows);i++)
+				for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+					int J = csr.columnIndices[p]/blockColumns;
+					if(marker[J]!=I && csr.values[p]!=0){
+						marker[J] = I;
+						blockIndices[start+count++] = J;
+					}
+				}
+			Arrays.sort(blockIndices, start, start+count);
+			for(int b=start;b<start+count;b++)
+				slot[blockIndices[b]] = b;
+			for(int i=I*blockRows;i<Math.min(rows, (I+1)*blockRows);i++)
+				for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++)
+					if(csr.values[p]!=0){
+						int j = csr.columnIndices[p];
+						blockValues[slot[j/blockColumns]*size + (i%blockRows)*blockColumns + j%blockColumns] = csr.values[p];
+					}
+		}
+	}
+
+	/**
+	 * @return number of rows of each tile
+	 */
+	public int getBlockRows() {
+		return blockRows;
+	}
+
+	/**
+	 * @return number of columns of each tile
+	 */
+	public int getBlockColumns() {
+		return blockColumns;
+	}
+
+	/**
+	 * @return the positions in which each block row starts. The array is not copied.
+	 */
+	public int[] getBlockPointers() {
+		return blockPointers;
+	}
+
+	/**
+	 * @return the block column coordinates of the tiles. The array is not copied.
+	 */
+	public int[] getBlockIndices() {
+		return blockIndices;
+	}
+
+	/**
+	 * @return the elements of the tiles in row-major order. The array is not copied.
+	 */
+	public float[] getBlockValues() {
+		return blockValues;
+	}
+
+	/**
+	 * @param I the index of the block row-coordinate.
+	 * @param J the index of the block column-coordinate.
+	 * @return the position of the tile, or <tt>-(insertion point)-1</tt> if the tile is not stored.
+	 */
+	protected int find(int I, int J){
+		return Arrays.binarySearch(blockIndices, blockPointers[I], blockPointers[I+1], J);
+	}
+
+	/**
+	 * As tiles are shifted when inserted, the method is synchronised so that several threads can set elements at the same time. Reads take no lock, so the Matrix must not be read while it is being modified.
+	 * Tiles whose elements become zero are kept.
+	 */
+	@Override
+	public synchronized void setValue(int i, int j, float v) {
+		if(i<0 || i>=rows || j<0 || j>=columns)
+			throw new ArrayIndexOutOfBoundsException();
+		int size = blockRows*blockColumns;
+		int I = i/blockRows;
+		int b = find(I, j/blockColumns);
+		if(b<0){
+			if(v==0)
+				return;
+			b = -b-1;
+			int nnzb = blockPointers[blockPointers.length-1];
+			if(nnzb == blockIndices.length){
+				int capacity = Math.max(16, nnzb + (nnzb >> 1));
+				blockIndices = Arrays.copyOf(blockIndices, capacity);
+				blockValues = Arrays.copyOf(blockValues, capacity*size);
+			}
+			System.arraycopy(blockIndices, b, blockIndices, b+1, nnzb-b);
+			System.arraycopy(blockValues, b*size, blockValues, (b+1)*size, (nnzb-b)*size);
+			blockIndices[b] = j/blockColumns;
+			Arrays.fill(blockValues, b*size, (b+1)*size, 0);
+			for(int r=I+1;r<blockPointers.length;r++)
+				blockPointers[r]++;
+		}
+		int p = b*size + (i%blockRows)*blockColumns + j%blockColumns;
+		if(blockValues[p]==0 && v!=0)
+			nonZeros++;
+		else
+			if(blockValues[p]!=0 && v==0)
+				nonZeros--;
+		blockValues[p] = v;
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		int b = find(i/blockRows, j/blockColumns);
+		if(b<0)
+			return 0;
+		return blockValues[b*blockRows*blockColumns + (i%blockRows)*blockColumns + j%blockColumns];
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = new float[rows][columns];
+		int size = blockRows*blockColumns;
+		for(int I=0;I<blockPointers.length-1;I++)
+			for(int b=blockPointers[I];b<blockPointers[I+1];b++)
+				for(int ii=0;ii<blockRows && I*blockRows+ii<rows;ii++)
+					for(int jj=0;jj<blockColumns && blockIndices[b]*blockColumns+jj<columns;jj++)
+						aux[I*blockRows+ii][blockIndices[b]*blockColumns+jj] = blockValues[b*size + ii*blockColumns + jj];
+		return aux;
+	}
+
+	@Override
+	public void setValues(float[][] m) {
+		MatrixCSR csr = new MatrixCSR(rows, columns);
+		csr.setValues(m);
+		fromCSR(csr);
+		updateSparsity();
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		int n = 0;
+		int I = i/blockRows;
+		int offset = (i%blockRows)*blockColumns;
+		for(int b=blockPointers[I];b<blockPointers[I+1];b++)
+			for(int jj=0;jj<blockColumns;jj++)
+				if(blockValues[b*blockRows*blockColumns + offset + jj]!=0)
+					n++;
+		return n;
+	}
+
+	@Override
+	public Matrix fastMult(float alfa) {
+		if(alfa==0)
+			return new MatrixBCSR(rows, columns, blockRows, blockColumns);
+		int nnzb = blockPointers[blockPointers.length-1];
+		float [] aux = new float[nnzb*blockRows*blockColumns];
+		for(int p=0;p<aux.length;p++)
+			aux[p] = alfa*blockValues[p];
+		return new MatrixBCSR(rows, columns, blockRows, blockColumns, Arrays.copyOf(blockPointers, blockPointers.length), Arrays.copyOf(blockIndices, nnzb), aux);
+	}
+
+	/**
+	 * The tiles of the transpose are the transposed tiles, of <tt>blockColumns x blockRows</tt>, grouped by block column with a counting sort.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		int nbr = blockPointers.length-1;
+		int nbc = blocks(columns, blockColumns);
+		int nnzb = blockPointers[nbr];
+		int size = blockRows*blockColumns;
+
+		int [] tPointers = new int[nbc+1];
+		for(int b=0;b<nnzb;b++)
+			tPointers[blockIndices[b]+1]++;
+		for(int J=0;J<nbc;J++)
+			tPointers[J+1] += tPointers[J];
+
+		int [] next = Arrays.copyOf(tPointers, nbc);
+		int [] tIndices = new int[nnzb];
+		float [] tValues = new float[nnzb*size];
+		for(int I=0;I<nbr;I++)
+			for(int b=blockPointers[I];b<blockPointers[I+1];b++){
+				int t = next[blockIndices[b]]++;
+				tIndices[t] = I;
+				for(int ii=0;ii<blockRows;ii++)
+					for(int jj=0;jj<blockColumns;jj++)
+						tValues[t*size + jj*blockRows + ii] = blockValues[b*size + ii*blockColumns + jj];
+			}
+		return new MatrixBCSR(columns, rows, blockColumns, blockRows, tPointers, tIndices, tValues);
+	}
+
+	/**
+	 * The product is computed tile by tile, skipping the padding of the tiles at the bottom and right edges.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		int r = blockRows;
+		int c = blockColumns;
+		int size = r*c;
+		for(int I=0;I<blockPointers.length-1;I++){
+			int i0 = I*r;
+			int ri = Math.min(r, rows-i0);
+			for(int p=blockPointers[I];p<blockPointers[I+1];p++){
+				int j0 = blockIndices[p]*c;
+				int cj = Math.min(c, columns-j0);
+				int o = p*size;
+				for(int ii=0;ii<ri;ii++){
+					float sum = 0;
+					for(int jj=0;jj<cj;jj++)
+						sum += blockValues[o + ii*c + jj]*x[j0+jj];
+					y[i0+ii] += sum;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		int r = blockRows;
+		int c = blockColumns;
+		int size = r*c;
+		for(int I=0;I<blockPointers.length-1;I++){
+			int i0 = I*r;
+			int ri = Math.min(r, rows-i0);
+			for(int p=blockPointers[I];p<blockPointers[I+1];p++){
+				int j0 = blockIndices[p]*c;
+				int cj = Math.min(c, columns-j0);
+				int o = p*size;
+				for(int ii=0;ii<ri;ii++){
+					float [] yi = y[i0+ii];
+					for(int jj=0;jj<cj;jj++){
+						float v = blockValues[o + ii*c + jj];
+						if(v!=0){
+							float [] xj = x[j0+jj];
+							for(int k=0;k<width;k++)
+								yi[k] += v*xj[k];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The product is computed tile by tile: for each block row of this matrix, the products of its tiles by the tiles of the matching block rows
+	 * of the right matrix are accumulated in dense tiles, indexed by block column. The right matrix is copied into a {@link MatrixBCSR}
+	 * whose tiles have as many rows as the tiles of this matrix have columns, unless it already is one.
+	 * <br>
+	 * The tiles of the result have the rows of the tiles of this matrix and the columns of the tiles of the right matrix.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		if(this.columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+
+		MatrixBCSR sec = m1 instanceof MatrixBCSR && ((MatrixBCSR) m1).blockRows == blockColumns ? (MatrixBCSR) m1 : new MatrixBCSR(m1, blockColumns, blockColumns);
+		int r = blockRows;
+		int c = blockColumns;
+		int c2 = sec.blockColumns;
+		int size = r*c;
+		int secSize = c*c2;
+		int resSize = r*c2;
+		int nbr = blockPointers.length-1;
+		int nbc2 = blocks(sec.columns, c2);
+
+		float [] accumulator = new float[nbc2*resSize];
+		int [] marker = new int[nbc2];
+		Arrays.fill(marker, -1);
+		int [] touched = new int[nbc2];
+
+		int [] resPointers = new int[nbr+1];
+		int [] resIndices = new int[Math.max(16, blockPointers[nbr])];
+		float [] resValues = new float[resIndices.length*resSize];
+		int nnzb = 0;
+
+		for(int I=0;I<nbr;I++){
+			int n = 0;
+			for(int p=blockPointers[I];p<blockPointers[I+1];p++){
+				int K = blockIndices[p];
+				for(int q=sec.blockPointers[K];q<sec.blockPointers[K+1];q++){
+					int J = sec.blockIndices[q];
+					if(marker[J]!=I){
+						marker[J] = I;
+						Arrays.fill(accumulator, J*resSize, (J+1)*resSize, 0);
+						touched[n++] = J;
+					}
+					if(r==4 && c==4 && c2==4)
+						multiplyTile4x4(blockValues, p*size, sec.blockValues, q*secSize, accumulator, J*resSize);
+					else
+						multiplyTile(r, c, c2, blockValues, p*size, sec.blockValues, q*secSize, accumulator, J*resSize);
+				}
+			}
+			Arrays.sort(touched, 0, n);
+			if(nnzb+n > resIndices.length){
+				int capacity = Math.max(nnzb+n, resIndices.length + (resIndices.length >> 1));
+				resIndices = Arrays.copyOf(resIndices, capacity);
+				resValues = Arrays.copyOf(resValues, capacity*resSize);
+			}
+			for(int t=0;t<n;t++){
+				int J = touched[t];
+				boolean zero = true;
+				for(int e=J*resSize;e<(J+1)*resSize && zero;e++)
+					zero = accumulator[e]==0;
+				if(!zero){
+					resIndices[nnzb] = J;
+					System.arraycopy(accumulator, J*resSize, resValues, nnzb*resSize, resSize);
+					nnzb++;
+				}
+			}
+			resPointers[I+1] = nnzb;
+		}
+		return new MatrixBCSR(rows, sec.columns, r, c2, resPointers, Arrays.copyOf(resIndices, nnzb), Arrays.copyOf(resValues, nnzb*resSize));
+	}
+
+	/**
+	 * Adds the product of the <tt>r x c</tt> tile of a starting at ao and the <tt>c x c2</tt> tile of b starting at bo to the <tt>r x c2</tt> tile of res starting at ro.
+	 */
+	private static void multiplyTile(int r, int c, int c2, float [] a, int ao, float [] b, int bo, float [] res, int ro){
+		for(int ii=0;ii<r;ii++)
+			for(int kk=0;kk<c;kk++){
+				float v = a[ao + ii*c + kk];
+				if(v==0)
+					continue;
+				int bRow = bo + kk*c2;
+				int resRow = ro + ii*c2;
+				for(int jj=0;jj<c2;jj++)
+					res[resRow+jj] += v*b[bRow+jj];
+			}
+	}
+
+	/**
+	 * Specialisation of {@link #multiplyTile(int, int, int, float[], int, float[], int, float[], int)} for 4x4 tiles, in which the tile of b
+	 * is kept in local variables and each row of the result is computed at once.
+	 */
+	private static void multiplyTile4x4(float [] a, int ao, float [] b, int bo, float [] res, int ro){
+		float b00 = b[bo], b01 = b[bo+1], b02 = b[bo+2], b03 = b[bo+3];
+		float b10 = b[bo+4], b11 = b[bo+5], b12 = b[bo+6], b13 = b[bo+7];
+		float b20 = b[bo+8], b21 = b[bo+9], b22 = b[bo+10], b23 = b[bo+11];
+		float b30 = b[bo+12], b31 = b[bo+13], b32 = b[bo+14], b33 = b[bo+15];
+		for(int ii=0;ii<4;ii++){
+			float a0 = a[ao+4*ii], a1 = a[ao+4*ii+1], a2 = a[ao+4*ii+2], a3 = a[ao+4*ii+3];
+			int o = ro+4*ii;
+			res[o]   += a0*b00 + a1*b10 + a2*b20 + a3*b30;
+			res[o+1] += a0*b01 + a1*b11 + a2*b21 + a3*b31;
+			res[o+2] += a0*b02 + a1*b12 + a2*b22 + a3*b32;
+			res[o+3] += a0*b03 + a1*b13 + a2*b23 + a3*b33;
+		}
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(getNonZerosRow(i)>0)
+				aux.add(i);
+		return aux;
+	}
+
+	@Override
+	public Collection<Integer> getColumns(int row) {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		int I = row/blockRows;
+		int offset = (row%blockRows)*blockColumns;
+		for(int b=blockPointers[I];b<blockPointers[I+1];b++)
+			for(int jj=0;jj<blockColumns;jj++)
+				if(blockValues[b*blockRows*blockColumns + offset + jj]!=0)
+					aux.add(blockIndices[b]*blockColumns+jj);
+		return aux;
+	}
+
+	@Override
+	public void updateSparsity() {
+		int nnzb = blockPointers[blockPointers.length-1];
+		nonZeros = 0;
+		for(int p=0;p<nnzb*blockRows*blockColumns;p++)
+			if(blockValues[p]!=0)
+				nonZeros++;
+	}
+
+	@Override
+	public List<Integer> getSortedRows() {
+		final int [] rowCount = new int[rows];
+		for(int i=0;i<rows;i++)
+			rowCount[i] = (int) getNonZerosRow(i);
+
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+
+		Collections.sort(aux, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Integer.compare(rowCount[o2], rowCount[o1]);
+			}
+		});
+		return aux;
+	}
+
+	/**
+	 * The rows of the sub-matrix keep their original coordinates, hence the sub-matrix has <tt>endRow</tt> rows, of which only
+	 * the ones between startRow and endRow are non-zero.
+	 */
+	@Override
+	public Matrix getSubmatrix(int startRow, int endRow) {
+		return new MatrixBCSR(new MatrixCSR(this).getSubmatrix(startRow, endRow), blockRows, blockColumns);
+	}
+
+	@Override
+	public synchronized void setRow(int i, Matrix matrix) {
+		for(int j:getColumns(i))
+			setValue(i, j, 0);
+		for(int j:matrix.getColumns(i))
+			setValue(i, j, matrix.getValue(i, j));
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		for(int i=0;i<rows;i++)
+			for(int j:getColumns(i))
+				if(j!=i)
+					return false;
+		return true;
+	}
+
+	@Override
+	public void invertDiagonal() {
+		int index = Math.min(rows,columns);
+		int size = blockRows*blockColumns;
+		for(int i=0;i<index;i++){
+			int b = find(i/blockRows, i/blockColumns);
+			if(b>=0){
+				int p = b*size + (i%blockRows)*blockColumns + i%blockColumns;
+				if(blockValues[p]!=0)
+					blockValues[p] = 1/blockValues[p];
+			}
+		}
+	}
+
+	@Override
+	public boolean isSingular() {
+		int index = Math.min(rows,columns);
+		for(int i=0;i<index;i++)
+			if(getValue(i, i)==0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Replaces the content of this Matrix by the content of another one, keeping the size of the tiles.
+	 * @param m Matrix from which to copy the values
+	 */
+	@Override
+	protected void copyFrom(Matrix m){
+		MatrixBCSR bcsr = new MatrixBCSR(m, blockRows, blockColumns);
+		rows = bcsr.rows;
+		columns = bcsr.columns;
+		blockPointers = bcsr.blockPointers;
+		blockIndices = bcsr.blockIndices;
+		blockValues = bcsr.blockValues;
+		nonZeros = bcsr.nonZeros;
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import matrix.factory.FactoryMatrixHolder;
+
+/**
+ * Provides implementation of a sparse 2d matrix in the Compressed Sparse Column (CSC) format. The storage is the same than the one of {@link MatrixCSR},
+ * but compressed by columns: the non-zero elements of column <tt>j</tt> are stored, sorted by row coordinate, in positions
+ * <tt>[columnPointers[j], columnPointers[j+1])</tt>. Internally, the matrix is kept as the {@link MatrixCSR} of its transpose.
+ * <br>
+ * Accessing a column costs as much as its number of non-zero elements, which makes this representation suitable for
+ * column-oriented operations such as computing the degrees of the Laplacian. On the contrary, accessing a row
+ * requires a search in every column.
+ * @author Antonela Tommasel
+ * */
+public class MatrixCSC extends Matrix {
+
+	private static final long serialVersionUID = -3350740209361612470L;
+
+	/**
+	 * Transpose of the matrix in CSR format, i.e. the columns of this matrix.
+	 */
+	MatrixCSR transposed;
+
+	/**
+	 * Class constructor
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 */
+	public MatrixCSC(int f, int c) {
+		super(f, c);
+		transposed = new MatrixCSR(c, f);
+	}
+
+	/**
+	 * Creates a Matrix by copying the values of the other Matrix
+	 * @param toCopy Matrix to copy the values in the new Matrix
+	 */
+	public MatrixCSC(Matrix toCopy){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(toCopy instanceof MatrixCSC)
+			transposed = new MatrixCSR(((MatrixCSC)toCopy).transposed);
+		else
+			if(toCopy instanceof MatrixCSR)
+				transposed = (MatrixCSR) ((MatrixCSR)toCopy).fastTrans();
+			else{
+				long nnz = 0;
+				Collection<Integer> rowsToCopy = toCopy.getRows();
+				for(int i:rowsToCopy)
+					nnz += toCopy.getColumns(i).size();
+				int [] ri = new int[(int) nnz];
+				int [] ci = new int[(int) nnz];
+				float [] v = new float[(int) nnz];
+				int n = 0;
+				for(int i:rowsToCopy)
+					for(int j:toCopy.getColumns(i)){
+						ri[n] = j;
+						ci[n] = i;
+						v[n] = toCopy.getValue(i, j);
+						n++;
+					}
+				transposed = MatrixCSR.fromTriplets(columns, rows, ri, ci, v, n);
+			}
+		nonZeros = transposed.getNonZeros();
+	}
+
+	private MatrixCSC(MatrixCSR transposed){
+		super(transposed.columnSize(), transposed.rowSize());
+		this.transposed = transposed;
+		nonZeros = transposed.getNonZeros();
+	}
+
+	/**
+	 * @return the positions in which each column starts. The array is not copied.
+	 */
+	public int[] getColumnPointers() {
+		return transposed.rowPointers;
+	}
+
+	/**
+	 * @return the row coordinates of the non-zero elements, sorted within each column. The array is not copied.
+	 */
+	public int[] getRowIndices() {
+		return transposed.columnIndices;
+	}
+
+	/**
+	 * @return the values of the non-zero elements. The array is not copied.
+	 */
+	public float[] getValues() {
+		return transposed.values;
+	}
+
+	/**
+	 * @param j the index of the column-coordinate
+	 * @return the sum of the elements of the column
+	 */
+	public float getColumnSum(int j) {
+		float sum = 0;
+		for(int p=transposed.rowPointers[j];p<transposed.rowPointers[j+1];p++)
+			sum += transposed.values[p];
+		return sum;
+	}
+
+	/**
+	 * @param j the index of the column-coordinate
+	 * @return the row coordinates of the non-zero elements in the column
+	 */
+	public Collection<Integer> getRowsOfColumn(int j) {
+		return transposed.getColumns(j);
+	}
+
+	@Override
+	public Matrix getColumn(int j) {
+		Matrix m = null;
+		if (j < columns) {
+			m = FactoryMatrixHolder.getFactory().createMatrix(rows, 1);
+			for(int p=transposed.rowPointers[j];p<transposed.rowPointers[j+1];p++)
+				m.setValue(transposed.columnIndices[p], 0, transposed.values[p]);
+		}
+		return m;
+	}
+
+	@Override
+	public void setValue(int i, int j, float v) {
+		transposed.setValue(j, i, v);
+		nonZeros = transposed.getNonZeros();
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		return transposed.getValue(j, i);
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = new float[rows][columns];
+		for(int j=0;j<columns;j++)
+			for(int p=transposed.rowPointers[j];p<transposed.rowPointers[j+1];p++)
+				aux[transposed.columnIndices[p]][j] = transposed.values[p];
+		return aux;
+	}
+
+	@Override
+	public void setValues(float[][] m) {
+		float [][] aux = new float[columns][rows];
+		for(int i=0;i<m.length;i++)
+			for(int j=0;j<m[i].length;j++)
+				aux[j][i] = m[i][j];
+		transposed.setValues(aux);
+		nonZeros = transposed.getNonZeros();
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		int n = 0;
+		for(int j=0;j<columns;j++)
+			if(transposed.find(j, i)>=0)
+				n++;
+		return n;
+	}
+
+	@Override
+	public Matrix fastMult(float alfa) {
+		return new MatrixCSC((MatrixCSR) transposed.fastMult(alfa));
+	}
+
+	/**
+	 * The transpose of a CSC matrix is the CSR matrix sharing its layout, so it is obtained by copying the arrays.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		return new MatrixCSR(transposed);
+	}
+
+	/**
+	 * The columns of this matrix are traversed in order, and each of them is scaled by the matching element of the vector and added to the result.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		int [] pointers = transposed.rowPointers;
+		int [] indices = transposed.columnIndices;
+		float [] values = transposed.values;
+		for(int j=0;j<columns;j++){
+			float xj = x[j];
+			if(xj!=0)
+				for(int p=pointers[j];p<pointers[j+1];p++)
+					y[indices[p]] += values[p]*xj;
+		}
+	}
+
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		int [] pointers = transposed.rowPointers;
+		int [] indices = transposed.columnIndices;
+		float [] values = transposed.values;
+		for(int j=0;j<columns;j++){
+			float [] xj = x[j];
+			for(int p=pointers[j];p<pointers[j+1];p++){
+				float v = values[p];
+				float [] yi = y[indices[p]];
+				for(int c=0;c<width;c++)
+					yi[c] += v*xj[c];
+			}
+		}
+	}
+
+	/**
+	 * The multiplication is performed on the {@link MatrixCSR} version of this Matrix.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		return new MatrixCSR(this).fastMult(m1);
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		int nnz = transposed.rowPointers[columns];
+		boolean [] found = new boolean[rows];
+		for(int p=0;p<nnz;p++)
+			found[transposed.columnIndices[p]] = true;
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(found[i])
+				aux.add(i);
+		return aux;
+	}
+
+	@Override
+	public Collection<Integer> getColumns(int row) {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int j=0;j<columns;j++)
+			if(transposed.find(j, row)>=0)
+				aux.add(j);
+		return aux;
+	}
+
+	@Override
+	public void updateSparsity() {
+		transposed.updateSparsity();
+		nonZeros = transposed.getNonZeros();
+	}
+
+	@Override
+	public List<Integer> getSortedRows() {
+		int nnz = transposed.rowPointers[columns];
+		final int [] rowCount = new int[rows];
+		for(int p=0;p<nnz;p++)
+			rowCount[transposed.columnIndices[p]]++;
+
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+
+		Collections.sort(aux, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Integer.compare(rowCount[o2], rowCount[o1]);
+			}
+		});
+		return aux;
+	}
+
+	@Override
+	public void setRow(int i, Matrix matrix) {
+		for(int j=0;j<columns;j++)
+			transposed.setValue(j, i, matrix.getValue(i, j));
+		nonZeros = transposed.getNonZeros();
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		return transposed.isDiagonal();
+	}
+
+	@Override
+	public void invertDiagonal() {
+		transposed.invertDiagonal();
+	}
+
+	@Override
+	public boolean isSingular() {
+		return transposed.isSingular();
+	}
+
+	/**
+	 * Replaces the content of this Matrix by the content of another one.
+	 * @param m Matrix from which to copy the values
+	 */
+	@Override
+	protected void copyFrom(Matrix m){
+		MatrixCSC csc = new MatrixCSC(m);
+		rows = csc.rows;
+		columns = csc.columns;
+		transposed = csc.transposed;
+		nonZeros = transposed.getNonZeros();
+	}
+
+}
@@ -0,0 +1,938 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import matrix.adapterDistribution.Configuration;
+
+/**
+ * Provides implementation of a sparse 2d matrix in the Compressed Sparse Row (CSR) format. The non-zero elements are stored in three primitive arrays:
+ * <ul>
+ * <li><tt>rowPointers</tt>, of length <tt>rows+1</tt>, where the non-zero elements of row <tt>i</tt> are stored in positions <tt>[rowPointers[i], rowPointers[i+1])</tt> of the other two arrays.</li>
+ * <li><tt>columnIndices</tt>, with the column coordinate of each non-zero element. The columns of each row are kept sorted.</li>
+ * <li><tt>values</tt>, with the value of each non-zero element.</li>
+ * </ul>
+ * Contrary to {@link MatrixSparseTrove} or {@link MatrixSparseHash}, rows do not need an individual object,
+ * and iterating them is a sequential scan over the arrays. This representation is meant to be built once (by copying another Matrix, loading it from disk
+ * or as the result of an operation) and then only read. {@link #setValue(int, int, float)} is supported, but inserting or removing an element
+ * shifts all the elements after it, i.e. its cost is linear in the number of non-zero elements, and it must not overlap with reads from other threads.
+ * @author Antonela Tommasel
+ * */
+public class MatrixCSR extends Matrix {
+
+	private static final long serialVersionUID = 3217446420577135082L;
+
+	/**
+	 * Number of elements from which {@link #fromTriplets(int, int, int[], int[], float[], int)} sorts the rows in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * Positions in which each row starts. Row <tt>i</tt> ends where row <tt>i+1</tt> starts.
+	 */
+	protected int [] rowPointers;
+
+	/**
+	 * Column coordinates of the non-zero elements, sorted within each row.
+	 */
+	protected int [] columnIndices;
+
+	/**
+	 * Values of the non-zero elements.
+	 */
+	protected float [] values;
+
+	/**
+	 * Class constructor
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 */
+	public MatrixCSR(int f, int c) {
+		super(f, c);
+		rowPointers = new int[f+1];
+		columnIndices = new int[0];
+		values = new float[0];
+	}
+
+	/**
+	 * Creates a Matrix over already compressed arrays. The arrays are not copied.
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 * @param rowPointers positions in which each row starts, of length f+1
+	 * @param columnIndices column coordinates of the non-zero elements, sorted within each row
+	 * @param values values of the non-zero elements
+	 */
+	public MatrixCSR(int f, int c, int [] rowPointers, int [] columnIndices, float [] values) {
+		super(f, c);
+		if(rowPointers.length != f+1)
+			throw new IllegalArgumentException("The row pointers must have rows+1 elements.");
+		this.rowPointers = rowPointers;
+		this.columnIndices = columnIndices;
+		this.values = values;
+		nonZeros = rowPointers[f];
+	}
+
+	/**
+	 * Creates a Matrix by copying the values of the other Matrix
+	 * @param toCopy Matrix to copy the values in the new Matrix
+	 */
+	public MatrixCSR(Matrix toCopy){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(toCopy instanceof MatrixCSR){
+			MatrixCSR csr = (MatrixCSR) toCopy;
+			int nnz = csr.rowPointers[rows];
+			rowPointers = Arrays.copyOf(csr.rowPointers, rows+1);
+			columnIndices = Arrays.copyOf(csr.columnIndices, nnz);
+			values = Arrays.copyOf(csr.values, nnz);
+		}
+		else
+		if(toCopy instanceof MatrixOffHeap){
+			MatrixOffHeap offHeap = (MatrixOffHeap) toCopy;
+			int nnz = offHeap.rowPointers.get(rows);
+			rowPointers = new int[rows+1];
+			columnIndices = new int[nnz];
+			values = new float[nnz];
+			for(int i=0;i<=rows;i++)
+				rowPointers[i] = offHeap.rowPointers.get(i);
+			for(int p=0;p<nnz;p++){
+				columnIndices[p] = offHeap.columnIndices.get(p);
+				values[p] = offHeap.values.get(p);
+			}
+		}
+		else
+		if(toCopy instanceof MatrixCSC){
+			MatrixCSR csr = (MatrixCSR) ((MatrixCSC) toCopy).transposed.fastTrans();
+			rowPointers = csr.rowPointers;
+			columnIndices = csr.columnIndices;
+			values = csr.values;
+		}
+		else{
+			rowPointers = new int[rows+1];
+			List<Integer> sortedRows = new ArrayList<Integer>(toCopy.getRows());
+			Collections.sort(sortedRows);
+			for(int i:sortedRows)
+				rowPointers[i+1] = toCopy.getColumns(i).size();
+			for(int i=0;i<rows;i++)
+				rowPointers[i+1] += rowPointers[i];
+			columnIndices = new int[rowPointers[rows]];
+			values = new float[rowPointers[rows]];
+			for(int i:sortedRows){
+				int p = rowPointers[i];
+				for(int j:toCopy.getColumns(i))
+					columnIndices[p++] = j;
+				Arrays.sort(columnIndices, rowPointers[i], p);
+				for(int q=rowPointers[i];q<p;q++)
+					values[q] = toCopy.getValue(i, columnIndices[q]);
+			}
+		}
+		nonZeros = rowPointers[rows];
+	}
+
+	/**
+	 * Builds a Matrix from its elements in coordinate format, i.e. the non-zero element <tt>k</tt> is placed in row <tt>ri[k]</tt> and
+	 * column <tt>ci[k]</tt> with value <tt>v[k]</tt>. The elements can be in any order. Elements with the same coordinates are added.
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 * @param ri row coordinates of the elements
+	 * @param ci column coordinates of the elements
+	 * @param v values of the elements
+	 * @param n number of elements to consider from the arrays
+	 * @return the created matrix
+	 */
+	public static MatrixCSR fromTriplets(int f, int c, int [] ri, int [] ci, float [] v, int n){
+		//counting sort by row
+		final int [] pointers = new int[f+1];
+		for(int k=0;k<n;k++){
+			if(ri[k]<0 || ri[k]>=f || ci[k]<0 || ci[k]>=c)
+				throw new ArrayIndexOutOfBoundsException();
+			pointers[ri[k]+1]++;
+		}
+		for(int i=0;i<f;i++)
+			pointers[i+1] += pointers[i];
+
+		int [] next = Arrays.copyOf(pointers, f);
+		final int [] sortedColumns = new int[n];
+		final float [] sortedValues = new float[n];
+		for(int k=0;k<n;k++){
+			int p = next[ri[k]]++;
+			sortedColumns[p] = ci[k];
+			sortedValues[p] = v[k];
+		}
+
+		//sort each row by column, adding duplicates and dropping zeros. Rows are independent, so large inputs are split among threads
+		final int [] lengths = new int[f];
+		int threads = Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors();
+		if(n < PARALLEL_THRESHOLD || threads < 2)
+			compactRows(0, f, pointers, sortedColumns, sortedValues, lengths);
+		else{
+			ExecutorService th = Executors.newFixedThreadPool(threads);
+			final Semaphore sema = new Semaphore(threads+1);
+			int elementsPerThread = n / threads + 1;
+			int end = 0;
+			for(int start=0;start<f;start=end){
+				end = start+1;
+				while(end<f && pointers[end]-pointers[start]<elementsPerThread)
+					end++;
+				final int from = start;
+				final int to = end;
+				try {
+					sema.acquire();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				th.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						compactRows(from, to, pointers, sortedColumns, sortedValues, lengths);
+						sema.release();
+					}
+				});
+			}
+			try {
+				sema.acquire(threads+1);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			th.shutdown();
+		}
+
+		return pack(f, c, pointers, sortedColumns, sortedValues, lengths);
+	}
+
+	/**
+	 * Builds a Matrix from rows that only use the first <tt>lengths[i]</tt> positions of their slots <tt>[pointers[i], pointers[i+1])</tt>,
+	 * moving them together. When all slots are full, the arrays are used as they are.
+	 */
+	private static MatrixCSR pack(int f, int c, int [] pointers, int [] columns, float [] values, int [] lengths){
+		int [] rowPointers = new int[f+1];
+		for(int i=0;i<f;i++)
+			rowPointers[i+1] = rowPointers[i] + lengths[i];
+		int nnz = rowPointers[f];
+		if(nnz == pointers[f] && columns.length == nnz)
+			return new MatrixCSR(f, c, rowPointers, columns, values);
+		int [] columnIndices = new int[nnz];
+		float [] packedValues = new float[nnz];
+		for(int i=0;i<f;i++){
+			System.arraycopy(columns, pointers[i], columnIndices, rowPointers[i], lengths[i]);
+			System.arraycopy(values, pointers[i], packedValues, rowPointers[i], lengths[i]);
+		}
+		return new MatrixCSR(f, c, rowPointers, columnIndices, packedValues);
+	}
+
+	/**
+	 * Multiplies two matrices in two passes. The symbolic pass counts the different columns reached by each row of the result,
+	 * so that its arrays are allocated once with their exact size. The numeric pass then computes each row with the {@link SparseAccumulator}
+	 * of the thread, which is told the number of products of the row so that short rows are accumulated in a small hash table, and writes it directly in its slot of the arrays. As the slots of the rows do not overlap, both passes are split among threads
+	 * without any synchronisation. Elements that cancel out are removed at the end.
+	 * @param a left Matrix of the multiplication
+	 * @param b right Matrix of the multiplication
+	 * @return the product <tt>a x b</tt>
+	 */
+	public static MatrixCSR multiply(MatrixCSR a, MatrixCSR b){
+		return multiply(a, false, b, false);
+	}
+
+	/**
+	 * Multiplies two matrices, any of which can be transposed, as in {@link #multiply(MatrixCSR, MatrixCSR)}. A transposed operand is not copied:
+	 * its rows are read from an index of the positions of its elements by columns, see {@link Rows}.
+	 * @param a left Matrix of the multiplication
+	 * @param transposeA whether the left Matrix is transposed
+	 * @param b right Matrix of the multiplication
+	 * @param transposeB whether the right Matrix is transposed
+	 * @return the product <tt>op(a) x op(b)</tt>, where <tt>op(x)</tt> is either <tt>x</tt> or <tt>x^t</tt>
+	 */
+	public static MatrixCSR multiply(MatrixCSR a, boolean transposeA, MatrixCSR b, boolean transposeB){
+		return multiply(a, transposeA, b, transposeB, 0, 0);
+	}
+
+	/**
+	 * Multiplies two matrices as in {@link #multiply(MatrixCSR, boolean, MatrixCSR, boolean)}, pruning the result while it is accumulated:
+	 * the elements whose absolute value is below tolerance are dropped, and when top is positive only the top elements with the largest
+	 * absolute values of each row are kept. The arrays of the result are then allocated for at most top elements per row.
+	 * @param a left Matrix of the multiplication
+	 * @param transposeA whether the left Matrix is transposed
+	 * @param b right Matrix of the multiplication
+	 * @param transposeB whether the right Matrix is transposed
+	 * @param tolerance minimum absolute value of the elements of the result
+	 * @param top maximum number of elements of each row of the result, or 0 for no limit
+	 * @return the pruned product <tt>op(a) x op(b)</tt>, where <tt>op(x)</tt> is either <tt>x</tt> or <tt>x^t</tt>
+	 */
+	public static MatrixCSR multiply(MatrixCSR a, boolean transposeA, MatrixCSR b, boolean transposeB, float tolerance, int top){
+		Rows left = new Rows(a, transposeA);
+		Rows right = new Rows(b, transposeB);
+		if(left.columns!=right.rows)
+			throw new ArrayIndexOutOfBoundsException();
+		return multiply(1, left, right, 0, null, tolerance, top);
+	}
+
+	/**
+	 * Computes <tt>alfa x a x b + beta x m</tt> as in {@link #multiply(MatrixCSR, MatrixCSR)}, adding each row of m to the accumulator of the same row
+	 * of the product, so that neither the scaled matrices nor the product are built.
+	 * @param alfa the scalar by which the product is multiplied
+	 * @param a left Matrix of the multiplication
+	 * @param b right Matrix of the multiplication
+	 * @param beta the scalar by which m is multiplied
+	 * @param m Matrix to add to the product
+	 * @return the result of <tt>alfa x a x b + beta x m</tt>
+	 */
+	public static MatrixCSR multiplyAdd(float alfa, MatrixCSR a, MatrixCSR b, float beta, MatrixCSR m){
+		if(a.columns!=b.rows || m.rows!=a.rows || m.columns!=b.columns)
+			throw new ArrayIndexOutOfBoundsException();
+		return multiply(alfa, new Rows(a, false), new Rows(b, false), beta, m, 0, 0);
+	}
+
+	/**
+	 * Computes <tt>alfa x left x right + beta x m</tt>, where m can be null, keeping the elements selected by tolerance and top.
+	 */
+	static MatrixCSR multiply(final float alfa, final Rows left, final Rows right, final float beta, final MatrixCSR m, final float tolerance, final int top){
+		final int f = left.rows;
+		final int c = right.columns;
+		long flops = m == null ? 0 : m.rowPointers[f];
+		for(int p=0;p<left.pointers[f];p++){
+			int k = left.indices[p];
+			flops += right.pointers[k+1]-right.pointers[k];
+		}
+
+		//symbolic pass: the number of elements of each row is stored in the position of the following row, and then accumulated
+		final int [] pointers = new int[f+1];
+		MatrixFloat.parallelRows(f, flops, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				int [] marker = new int[c];
+				Arrays.fill(marker, -1);
+				for(int i=from;i<to;i++){
+					int count = 0;
+					for(int p=left.pointers[i];p<left.pointers[i+1];p++){
+						int k = left.indices[p];
+						for(int q=right.pointers[k];q<right.pointers[k+1];q++){
+							int j = right.indices[q];
+							if(marker[j]!=i){
+								marker[j] = i;
+								count++;
+							}
+						}
+					}
+					if(m!=null)
+						for(int q=m.rowPointers[i];q<m.rowPointers[i+1];q++){
+							int j = m.columnIndices[q];
+							if(marker[j]!=i){
+								marker[j] = i;
+								count++;
+							}
+						}
+					pointers[i+1] = top>0 ? Math.min(count, top) : count;
+				}
+			}
+		});
+		for(int i=0;i<f;i++)
+			pointers[i+1] += pointers[i];
+
+		//numeric pass
+		final int [] columnIndices = new int[pointers[f]];
+		final float [] values = new float[pointers[f]];
+		final int [] lengths = new int[f];
+		MatrixFloat.parallelRows(f, flops, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				SparseAccumulator accumulator = SparseAccumulator.forThread(c);
+				for(int i=from;i<to;i++){
+					long rowFlops = m == null ? 0 : m.rowPointers[i+1]-m.rowPointers[i];
+					for(int p=left.pointers[i];p<left.pointers[i+1];p++){
+						int k = left.indices[p];
+						rowFlops += right.pointers[k+1]-right.pointers[k];
+					}
+					accumulator.reserve(rowFlops);
+					for(int p=left.pointers[i];p<left.pointers[i+1];p++){
+						int k = left.indices[p];
+						float v = alfa*left.value(p);
+						if(right.positions==null)
+							for(int q=right.pointers[k];q<right.pointers[k+1];q++)
+								accumulator.add(right.indices[q], v*right.values[q]);
+						else
+							for(int q=right.pointers[k];q<right.pointers[k+1];q++)
+								accumulator.add(right.indices[q], v*right.values[right.positions[q]]);
+					}
+					if(m!=null)
+						for(int q=m.rowPointers[i];q<m.rowPointers[i+1];q++)
+							accumulator.add(m.columnIndices[q], beta*m.values[q]);
+					lengths[i] = accumulator.gather(columnIndices, values, pointers[i], tolerance, top);
+				}
+			}
+		});
+
+		return pack(f, c, pointers, columnIndices, values, lengths);
+	}
+
+	/**
+	 * Computes <tt>alfa x a + beta x b</tt> by merging the sorted rows of both matrices, so the cost is proportional to their non-zero elements.
+	 * As in {@link #multiply(MatrixCSR, MatrixCSR)}, the rows are first counted to allocate the arrays once, and both passes are split among threads.
+	 * Elements that cancel out are removed.
+	 * @param alfa the scalar by which a is multiplied
+	 * @param a first summand
+	 * @param beta the scalar by which b is multiplied
+	 * @param b second summand
+	 * @return the result of <tt>alfa x a + beta x b</tt>
+	 */
+	public static MatrixCSR add(final float alfa, final MatrixCSR a, final float beta, final MatrixCSR b){
+		if(a.rows!=b.rows || a.columns!=b.columns)
+			throw new ArrayIndexOutOfBoundsException();
+		final int f = a.rows;
+		final int [] pointers = new int[f+1];
+		long work = (long) a.rowPointers[f] + b.rowPointers[f];
+		MatrixFloat.parallelRows(f, work, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					int p = a.rowPointers[i], pe = a.rowPointers[i+1];
+					int q = b.rowPointers[i], qe = b.rowPointers[i+1];
+					int count = 0;
+					while(p<pe && q<qe){
+						int ja = a.columnIndices[p], jb = b.columnIndices[q];
+						if(ja<=jb)
+							p++;
+						if(jb<=ja)
+							q++;
+						count++;
+					}
+					pointers[i+1] = count + (pe-p) + (qe-q);
+				}
+			}
+		});
+		for(int i=0;i<f;i++)
+			pointers[i+1] += pointers[i];
+
+		final int [] columnIndices = new int[pointers[f]];
+		final float [] values = new float[pointers[f]];
+		final int [] lengths = new int[f];
+		MatrixFloat.parallelRows(f, work, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					int p = a.rowPointers[i], pe = a.rowPointers[i+1];
+					int q = b.rowPointers[i], qe = b.rowPointers[i+1];
+					int n = pointers[i];
+					while(p<pe || q<qe){
+						int ja = p<pe ? a.columnIndices[p] : Integer.MAX_VALUE;
+						int jb = q<qe ? b.columnIndices[q] : Integer.MAX_VALUE;
+						int j = Math.min(ja, jb);
+						float v = 0;
+						if(ja==j)
+							v += alfa*a.values[p++];
+						if(jb==j)
+							v += beta*b.values[q++];
+						if(v!=0){
+							columnIndices[n] = j;
+							values[n] = v;
+							n++;
+						}
+					}
+					lengths[i] = n-pointers[i];
+				}
+			}
+		});
+
+		return pack(f, b.columns, pointers, columnIndices, values, lengths);
+	}
+
+	/**
+	 * The rows of a Matrix in CSR format, or of its transpose. The rows of the transpose are the columns of the Matrix, which are found in an index
+	 * holding, for each column, the rows of its elements and their positions in the CSR arrays. The values are not copied.
+	 */
+	static class Rows {
+
+		int rows;
+		int columns;
+		int [] pointers;
+		int [] indices;
+		int [] positions;
+		float [] values;
+
+		/**
+		 * Rows whose elements are found in the positions of the given values, which are not copied.
+		 */
+		Rows(int rows, int columns, int [] pointers, int [] indices, int [] positions, float [] values){
+			this.rows = rows;
+			this.columns = columns;
+			this.pointers = pointers;
+			this.indices = indices;
+			this.positions = positions;
+			this.values = values;
+		}
+
+		Rows(MatrixCSR m, boolean transposed){
+			values = m.values;
+			if(!transposed){
+				rows = m.rows;
+				columns = m.columns;
+				pointers = m.rowPointers;
+				indices = m.columnIndices;
+				return;
+			}
+			rows = m.columns;
+			columns = m.rows;
+			int nnz = m.rowPointers[m.rows];
+			pointers = new int[rows+1];
+			for(int p=0;p<nnz;p++)
+				pointers[m.columnIndices[p]+1]++;
+			for(int k=0;k<rows;k++)
+				pointers[k+1] += pointers[k];
+			int [] next = Arrays.copyOf(pointers, rows);
+			indices = new int[nnz];
+			positions = new int[nnz];
+			for(int i=0;i<m.rows;i++)
+				for(int p=m.rowPointers[i];p<m.rowPointers[i+1];p++){
+					int q = next[m.columnIndices[p]]++;
+					indices[q] = i;
+					positions[q] = p;
+				}
+		}
+
+		/**
+		 * @return the value of the element in position q of the rows
+		 */
+		float value(int q){
+			return positions==null ? values[q] : values[positions[q]];
+		}
+	}
+
+	/**
+	 * Sorts the rows between from and to, adding their duplicated elements and dropping zeros.
+	 * The remaining elements of each row are moved to its beginning, and their number is stored in lengths.
+	 */
+	static void compactRows(int from, int to, int [] pointers, int [] columns, float [] values, int [] lengths){
+		for(int i=from;i<to;i++){
+			int start = pointers[i];
+			int end = pointers[i+1];
+			sortRow(columns, values, start, end);
+			int k = start;
+			int last = start;
+			while(k<end){
+				int j = columns[k];
+				float sum = 0;
+				while(k<end && columns[k]==j)
+					sum += values[k++];
+				if(sum!=0){
+					columns[last] = j;
+					values[last] = sum;
+					last++;
+				}
+			}
+			lengths[i] = last-start;
+		}
+	}
+
+	/**
+	 * Sorts the elements between start and end by their column coordinate.
+	 * Rows are usually short, so insertion sort is used unless the row is long.
+	 */
+	static void sortRow(int [] columns, float [] values, int start, int end){
+		int length = end - start;
+		if(length < 32){
+			for(int k=start+1;k<end;k++){
+				int j = columns[k];
+				float v = values[k];
+				int q = k-1;
+				while(q>=start && columns[q]>j){
+					columns[q+1] = columns[q];
+					values[q+1] = values[q];
+					q--;
+				}
+				columns[q+1] = j;
+				values[q+1] = v;
+			}
+		}
+		else{
+			boolean sorted = true;
+			for(int k=start+1;k<end && sorted;k++)
+				sorted = columns[k-1] <= columns[k];
+			if(sorted)
+				return;
+			long [] keys = new long[length];
+			for(int k=0;k<length;k++)
+				keys[k] = ((long)columns[start+k] << 32) | (k & 0xffffffffL);
+			Arrays.sort(keys);
+			float [] aux = Arrays.copyOfRange(values, start, end);
+			for(int k=0;k<length;k++){
+				columns[start+k] = (int) (keys[k] >>> 32);
+				values[start+k] = aux[(int) keys[k]];
+			}
+		}
+	}
+
+	/**
+	 * @param i the index of the row-coordinate.
+	 * @param j the index of the column-coordinate.
+	 * @return the position of the element in the arrays, or <tt>-(insertion point)-1</tt> if the element is zero.
+	 */
+	protected int find(int i, int j){
+		return Arrays.binarySearch(columnIndices, rowPointers[i], rowPointers[i+1], j);
+	}
+
+	/**
+	 * As elements are shifted when inserted or removed, the method is synchronised so that several threads can set elements at the same time. Reads take no lock, so the Matrix must not be read while it is being modified.
+	 */
+	@Override
+	public synchronized void setValue(int i, int j, float v) {
+		int p = find(i, j);
+		if(p>=0){
+			if(v!=0.0f)
+				values[p] = v;
+			else{
+				int nnz = rowPointers[rows];
+				System.arraycopy(columnIndices, p+1, columnIndices, p, nnz-p-1);
+				System.arraycopy(values, p+1, values, p, nnz-p-1);
+				for(int r=i+1;r<=rows;r++)
+					rowPointers[r]--;
+				nonZeros--;
+			}
+		}
+		else
+			if(v!=0.0f){
+				p = -p-1;
+				int nnz = rowPointers[rows];
+				if(nnz == columnIndices.length){
+					int capacity = Math.max(16, nnz + (nnz >> 1));
+					columnIndices = Arrays.copyOf(columnIndices, capacity);
+					values = Arrays.copyOf(values, capacity);
+				}
+				System.arraycopy(columnIndices, p, columnIndices, p+1, nnz-p);
+				System.arraycopy(values, p, values, p+1, nnz-p);
+				columnIndices[p] = j;
+				values[p] = v;
+				for(int r=i+1;r<=rows;r++)
+					rowPointers[r]++;
+				nonZeros++;
+			}
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		int p = find(i, j);
+		if(p<0)
+			return 0;
+		return values[p];
+	}
+
+	/**
+	 * @return the positions in which each row starts. The array is not copied.
+	 */
+	public int[] getRowPointers() {
+		return rowPointers;
+	}
+
+	/**
+	 * @return the column coordinates of the non-zero elements. The array is not copied.
+	 */
+	public int[] getColumnIndices() {
+		return columnIndices;
+	}
+
+	/**
+	 * @return the values of the non-zero elements. The array is not copied.
+	 */
+	public float[] getValues() {
+		return values;
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = new float[rows][columns];
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				aux[i][columnIndices[p]] = values[p];
+		return aux;
+	}
+
+	@Override
+	public void setValues(float[][] m) {
+		int nnz = 0;
+		for(int i=0;i<m.length;i++)
+			for(int j=0;j<m[i].length;j++)
+				if(m[i][j]!=0.0f)
+					nnz++;
+		rowPointers = new int[rows+1];
+		columnIndices = new int[nnz];
+		values = new float[nnz];
+		nnz = 0;
+		for(int i=0;i<rows;i++){
+			if(i<m.length)
+				for(int j=0;j<m[i].length;j++)
+					if(m[i][j]!=0.0f){
+						columnIndices[nnz] = j;
+						values[nnz] = m[i][j];
+						nnz++;
+					}
+			rowPointers[i+1] = nnz;
+		}
+		nonZeros = nnz;
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		return rowPointers[i+1]-rowPointers[i];
+	}
+
+	@Override
+	public Matrix fastMult(float alfa) {
+		if(alfa==0)
+			return new MatrixCSR(rows, columns);
+		int nnz = rowPointers[rows];
+		float [] scaled = new float[nnz];
+		for(int p=0;p<nnz;p++)
+			scaled[p] = alfa*values[p];
+		return new MatrixCSR(rows, columns, Arrays.copyOf(rowPointers, rows+1), Arrays.copyOf(columnIndices, nnz), scaled);
+	}
+
+	/**
+	 * The transpose is computed with a counting sort over the column coordinates, so the rows of the result are already sorted.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		int nnz = rowPointers[rows];
+		int [] tPointers = new int[columns+1];
+		for(int p=0;p<nnz;p++)
+			tPointers[columnIndices[p]+1]++;
+		for(int j=0;j<columns;j++)
+			tPointers[j+1] += tPointers[j];
+
+		int [] next = Arrays.copyOf(tPointers, columns);
+		int [] tColumns = new int[nnz];
+		float [] tValues = new float[nnz];
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++){
+				int q = next[columnIndices[p]]++;
+				tColumns[q] = i;
+				tValues[q] = values[p];
+			}
+		return new MatrixCSR(columns, rows, tPointers, tColumns, tValues);
+	}
+
+	/**
+	 * Each element of the result is the product of a row by the vector, so the rows are split among threads for large matrices.
+	 */
+	@Override
+	public void fastMult(final float [] x, final float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		MatrixFloat.parallelRows(rows, rowPointers[rows], new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					float sum = 0;
+					for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+						sum += values[p]*x[columnIndices[p]];
+					y[i] = sum;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Each row of the result adds the rows of the panel selected by a row of this matrix, so the rows are split among threads for large products.
+	 */
+	@Override
+	public void fastMult(final float [][] x, final float [][] y){
+		final int width = checkPanels(x, y);
+		MatrixFloat.parallelRows(rows, (long) rowPointers[rows]*width, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					float [] yi = y[i];
+					Arrays.fill(yi, 0);
+					for(int p=rowPointers[i];p<rowPointers[i+1];p++){
+						float v = values[p];
+						float [] xj = x[columnIndices[p]];
+						for(int c=0;c<width;c++)
+							yi[c] += v*xj[c];
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * The product is computed by {@link #multiply(MatrixCSR, MatrixCSR)}. If the right matrix is not a {@link MatrixCSR}, it is first copied into one.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		if(this.columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+
+		return multiply(this, m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1));
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(rowPointers[i+1]>rowPointers[i])
+				aux.add(i);
+		return aux;
+	}
+
+	@Override
+	public Collection<Integer> getColumns(final int row) {
+		final int [] indices = columnIndices;
+		final int start = rowPointers[row];
+		final int end = rowPointers[row+1];
+		return new AbstractList<Integer>() {
+
+			@Override
+			public Integer get(int index) {
+				return indices[start+index];
+			}
+
+			@Override
+			public int size() {
+				return end-start;
+			}
+		};
+	}
+
+	@Override
+	public void updateSparsity() {
+		nonZeros = rowPointers[rows];
+	}
+
+	@Override
+	public List<Integer> getSortedRows() {
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+
+		Collections.sort(aux, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Float.compare(MatrixCSR.this.getSparcityRow(o1), MatrixCSR.this.getSparcityRow(o2));
+			}
+		});
+		return aux;
+	}
+
+	/**
+	 * The rows of the sub-matrix keep their original coordinates, hence the sub-matrix has <tt>endRow</tt> rows, of which only
+	 * the ones between startRow and endRow are non-zero.
+	 */
+	@Override
+	public Matrix getSubmatrix(int startRow, int endRow) {
+		int start = rowPointers[startRow];
+		int end = rowPointers[endRow];
+		int [] subPointers = new int[endRow+1];
+		for(int i=startRow;i<=endRow;i++)
+			subPointers[i] = rowPointers[i]-start;
+		return new MatrixCSR(endRow, columns, subPointers, Arrays.copyOfRange(columnIndices, start, end), Arrays.copyOfRange(values, start, end));
+	}
+
+	@Override
+	public synchronized void setRow(int i, Matrix matrix) {
+		int [] newColumns;
+		float [] newValues;
+		if(matrix instanceof MatrixCSR){
+			MatrixCSR csr = (MatrixCSR) matrix;
+			newColumns = Arrays.copyOfRange(csr.columnIndices, csr.rowPointers[i], csr.rowPointers[i+1]);
+			newValues = Arrays.copyOfRange(csr.values, csr.rowPointers[i], csr.rowPointers[i+1]);
+		}
+		else{
+			Collection<Integer> col = matrix.getColumns(i);
+			newColumns = new int[col.size()];
+			newValues = new float[col.size()];
+			int n = 0;
+			for(int j:col){
+				newColumns[n] = j;
+				newValues[n] = matrix.getValue(i, j);
+				n++;
+			}
+			sortRow(newColumns, newValues, 0, n);
+		}
+
+		int nnz = rowPointers[rows];
+		int start = rowPointers[i];
+		int end = rowPointers[i+1];
+		int shift = newColumns.length - (end-start);
+		if(nnz+shift > columnIndices.length){
+			columnIndices = Arrays.copyOf(columnIndices, nnz+shift);
+			values = Arrays.copyOf(values, nnz+shift);
+		}
+		System.arraycopy(columnIndices, end, columnIndices, end+shift, nnz-end);
+		System.arraycopy(values, end, values, end+shift, nnz-end);
+		System.arraycopy(newColumns, 0, columnIndices, start, newColumns.length);
+		System.arraycopy(newValues, 0, values, start, newValues.length);
+		for(int r=i+1;r<=rows;r++)
+			rowPointers[r] += shift;
+		nonZeros = rowPointers[rows];
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				if(columnIndices[p]!=i)
+					return false;
+		return true;
+	}
+
+	@Override
+	public void invertDiagonal() {
+		for(int i=0;i<rows;i++){
+			int p = find(i, i);
+			if(p>=0)
+				values[p] = 1/values[p];
+		}
+	}
+
+	@Override
+	public boolean isSingular() {
+		int index = Math.min(rows,columns);
+		for(int i=0;i<index;i++)
+			if(getValue(i, i)==0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Replaces the content of this Matrix by the content of another one.
+	 * @param m Matrix from which to copy the values
+	 */
+	@Override
+	protected void copyFrom(Matrix m){
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		rows = csr.rows;
+		columns = csr.columns;
+		rowPointers = csr.rowPointers;
+		columnIndices = csr.columnIndices;
+		values = csr.values;
+		nonZeros = rowPointers[rows];
+	}
+
+}
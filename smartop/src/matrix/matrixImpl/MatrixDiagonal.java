@@ -0,0 +1,398 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import matrix.factory.FactoryMatrixHolder;
+
+/**
+ * Provides implementation of a square diagonal matrix, such as the degree matrix of a Laplacian. The diagonal is stored in a float array.
+ * <br>
+ * Multiplying by a diagonal matrix scales the rows of the other matrix, see {@link #fastMult(Matrix)}, or its columns, see {@link #fastMultLeft(Matrix)},
+ * and adding it only modifies the diagonal of the other matrix, see {@link #fastAdd(float, Matrix, float)}. All of them cost as much as the number of
+ * non-zero elements of the other matrix. Inverting the matrix costs as much as its size.
+ * <br>
+ * Setting a non-zero element outside the diagonal is not allowed.
+ * @author Antonela Tommasel
+ * */
+public class MatrixDiagonal extends Matrix {
+
+	private static final long serialVersionUID = -2265213791064340785L;
+
+	/**
+	 * Elements of the diagonal.
+	 */
+	protected float [] diagonal;
+
+	/**
+	 * Class constructor
+	 * @param n number of rows and columns of the matrix to create.
+	 */
+	public MatrixDiagonal(int n) {
+		super(n, n);
+		diagonal = new float[n];
+	}
+
+	/**
+	 * Creates a Matrix with the given diagonal. The array is not copied.
+	 * @param diagonal elements of the diagonal
+	 */
+	public MatrixDiagonal(float [] diagonal) {
+		super(diagonal.length, diagonal.length);
+		this.diagonal = diagonal;
+		updateSparsity();
+	}
+
+	/**
+	 * Creates a Matrix by copying the diagonal of the other Matrix. The elements outside the diagonal are not checked.
+	 * @param toCopy square Matrix to copy the diagonal in the new Matrix
+	 */
+	public MatrixDiagonal(Matrix toCopy){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(!toCopy.isSquare())
+			throw new IllegalArgumentException("Matrix must be square.");
+		if(toCopy instanceof MatrixDiagonal)
+			diagonal = Arrays.copyOf(((MatrixDiagonal) toCopy).diagonal, rows);
+		else{
+			diagonal = new float[rows];
+			for(int i=0;i<rows;i++)
+				diagonal[i] = toCopy.getValue(i, i);
+		}
+		updateSparsity();
+	}
+
+	/**
+	 * @param n number of rows and columns of the matrix to create.
+	 * @return the identity matrix of size n
+	 */
+	public static MatrixDiagonal identity(int n){
+		float [] diagonal = new float[n];
+		Arrays.fill(diagonal, 1);
+		return new MatrixDiagonal(diagonal);
+	}
+
+	/**
+	 * @return the elements of the diagonal. The array is not copied.
+	 */
+	public float[] getDiagonal() {
+		return diagonal;
+	}
+
+	/**
+	 * Only the elements of the diagonal can be non-zero. The method is synchronised to keep the count of non-zero elements in multi-thread operations.
+	 */
+	@Override
+	public synchronized void setValue(int i, int j, float v) {
+		if(i<0 || i>=rows || j<0 || j>=columns)
+			throw new ArrayIndexOutOfBoundsException();
+		if(i!=j){
+			if(v!=0)
+				throw new IllegalArgumentException("A diagonal matrix can only hold elements in the diagonal.");
+			return;
+		}
+		if(diagonal[i]==0 && v!=0)
+			nonZeros++;
+		else
+			if(diagonal[i]!=0 && v==0)
+				nonZeros--;
+		diagonal[i] = v;
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		if(i<0 || i>=rows || j<0 || j>=columns)
+			throw new ArrayIndexOutOfBoundsException();
+		return i==j ? diagonal[i] : 0;
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = new float[rows][columns];
+		for(int i=0;i<rows;i++)
+			aux[i][i] = diagonal[i];
+		return aux;
+	}
+
+	@Override
+	public void setValues(float[][] m) {
+		float [] aux = new float[rows];
+		for(int i=0;i<m.length;i++)
+			for(int j=0;j<m[i].length;j++)
+				if(i==j)
+					aux[i] = m[i][j];
+				else
+					if(m[i][j]!=0)
+						throw new IllegalArgumentException("A diagonal matrix can only hold elements in the diagonal.");
+		diagonal = aux;
+		updateSparsity();
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		return diagonal[i]!=0 ? 1 : 0;
+	}
+
+	@Override
+	public Matrix fastMult(float alfa) {
+		float [] aux = new float[rows];
+		for(int i=0;i<rows;i++)
+			aux[i] = alfa*diagonal[i];
+		return new MatrixDiagonal(aux);
+	}
+
+	/**
+	 * The transpose of a diagonal matrix is a copy of the matrix.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		return new MatrixDiagonal(this);
+	}
+
+	/**
+	 * Each element of the vector is scaled by the matching element of the diagonal.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		for(int i=0;i<rows;i++)
+			y[i] = diagonal[i]*x[i];
+	}
+
+	/**
+	 * Each row <tt>i</tt> of the panel is scaled by the element <tt>(i,i)</tt>.
+	 */
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(int i=0;i<rows;i++){
+			float d = diagonal[i];
+			for(int c=0;c<width;c++)
+				y[i][c] = d*x[i][c];
+		}
+	}
+
+	/**
+	 * Scales each row <tt>i</tt> of m1 by the element <tt>(i,i)</tt>. The product of two diagonal matrices is also diagonal.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		if(this.columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+		if(m1 instanceof MatrixDiagonal){
+			float [] aux = new float[rows];
+			for(int i=0;i<rows;i++)
+				aux[i] = diagonal[i]*((MatrixDiagonal) m1).diagonal[i];
+			return new MatrixDiagonal(aux);
+		}
+		MatrixCSR res = new MatrixCSR(m1);
+		for(int i=0;i<rows;i++)
+			for(int p=res.rowPointers[i];p<res.rowPointers[i+1];p++)
+				res.values[p] *= diagonal[i];
+		return FactoryMatrixHolder.getFactory().createMatrix(dropZeros(res));
+	}
+
+	/**
+	 * Computes <tt>m x this</tt> by scaling each column <tt>j</tt> of m by the element <tt>(j,j)</tt>.
+	 * @param m the matrix to multiply by this matrix
+	 * @return the product
+	 */
+	public Matrix fastMultLeft(Matrix m) {
+		if(m.columnSize()!=this.rows)
+			throw new ArrayIndexOutOfBoundsException();
+		if(m instanceof MatrixDiagonal)
+			return ((MatrixDiagonal) m).fastMult(this);
+		MatrixCSR res = new MatrixCSR(m);
+		int nnz = res.rowPointers[res.rowSize()];
+		for(int p=0;p<nnz;p++)
+			res.values[p] *= diagonal[res.columnIndices[p]];
+		return FactoryMatrixHolder.getFactory().createMatrix(dropZeros(res));
+	}
+
+	/**
+	 * Removes the elements that became zero when scaled by a zero of the diagonal.
+	 */
+	private static MatrixCSR dropZeros(MatrixCSR m){
+		int nnz = 0;
+		int rows = m.rowSize();
+		for(int i=0;i<rows;i++){
+			int start = m.rowPointers[i];
+			m.rowPointers[i] = nnz;
+			for(int p=start;p<m.rowPointers[i+1];p++)
+				if(m.values[p]!=0){
+					m.columnIndices[nnz] = m.columnIndices[p];
+					m.values[nnz] = m.values[p];
+					nnz++;
+				}
+		}
+		m.rowPointers[rows] = nnz;
+		m.updateSparsity();
+		return m;
+	}
+
+	/**
+	 * Computes <tt>alfa x this + beta x m</tt>, in which only the diagonal of m is modified.
+	 * @param alfa the scalar by which this matrix is multiplied
+	 * @param m the matrix to add
+	 * @param beta the scalar by which m is multiplied
+	 * @return the result of the addition
+	 */
+	public Matrix fastAdd(float alfa, Matrix m, float beta) {
+		if(m.rowSize()!=rows || m.columnSize()!=columns)
+			throw new ArrayIndexOutOfBoundsException();
+		if(m instanceof MatrixDiagonal){
+			float [] aux = new float[rows];
+			for(int i=0;i<rows;i++)
+				aux[i] = alfa*diagonal[i] + beta*((MatrixDiagonal) m).diagonal[i];
+			return new MatrixDiagonal(aux);
+		}
+		MatrixCSR csr = m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+		int nnz = csr.rowPointers[rows];
+		int [] ri = new int[nnz+rows];
+		int [] ci = new int[nnz+rows];
+		float [] v = new float[nnz+rows];
+		for(int i=0;i<rows;i++)
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				ri[p] = i;
+				ci[p] = csr.columnIndices[p];
+				v[p] = beta*csr.values[p];
+			}
+		//the factory sums the diagonal with the elements of m in the same coordinates
+		for(int i=0;i<rows;i++){
+			ri[nnz+i] = i;
+			ci[nnz+i] = i;
+			v[nnz+i] = alfa*diagonal[i];
+		}
+		return FactoryMatrixHolder.getFactory().createMatrix(rows, columns, ri, ci, v);
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(diagonal[i]!=0)
+				aux.add(i);
+		return aux;
+	}
+
+	@Override
+	public Collection<Integer> getColumns(int row) {
+		if(diagonal[row]!=0)
+			return Collections.singletonList(row);
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void updateSparsity() {
+		nonZeros = 0;
+		for(int i=0;i<rows;i++)
+			if(diagonal[i]!=0)
+				nonZeros++;
+	}
+
+	/**
+	 * All rows have at most one element, so the rows are returned in their original order.
+	 */
+	@Override
+	public List<Integer> getSortedRows() {
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+		return aux;
+	}
+
+	@Override
+	public void setRow(int i, Matrix matrix) {
+		for(int j:matrix.getColumns(i))
+			if(j!=i && matrix.getValue(i, j)!=0)
+				throw new IllegalArgumentException("A diagonal matrix can only hold elements in the diagonal.");
+		setValue(i, i, matrix.getValue(i, i));
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		return true;
+	}
+
+	@Override
+	public void invertDiagonal() {
+		for(int i=0;i<rows;i++)
+			if(diagonal[i]!=0)
+				diagonal[i] = 1/diagonal[i];
+	}
+
+	@Override
+	public boolean isSingular() {
+		for(int i=0;i<rows;i++)
+			if(diagonal[i]==0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * A diagonal matrix is its own LU decomposition, without pivoting.
+	 */
+	@Override
+	public Matrix fastLU(int[] piv) {
+		for(int i=0;i<rows;i++)
+			piv[i] = i;
+		return new MatrixDiagonal(this);
+	}
+
+	/**
+	 * The Cholesky decomposition of a diagonal matrix is the square root of its diagonal, which requires all its elements to be positive.
+	 * @return the decomposition, or null if an element is not positive
+	 */
+	@Override
+	public Matrix fastCholesky() {
+		float [] aux = new float[rows];
+		for(int i=0;i<rows;i++){
+			if(diagonal[i]<=0)
+				return null;
+			aux[i] = (float) Math.sqrt(diagonal[i]);
+		}
+		return new MatrixDiagonal(aux);
+	}
+
+	/**
+	 * Replaces the diagonal by the one of the other Matrix. As in {@link #setValue(int, int, float)}, the elements outside the diagonal must be zero,
+	 * so the solution of a system can only be stored when it is diagonal.
+	 * @throws IllegalArgumentException when the other Matrix has non-zero elements outside the diagonal
+	 */
+	@Override
+	protected void copyFrom(Matrix m) {
+		if(m.rowSize()!=rows || m.columnSize()!=columns)
+			throw new ArrayIndexOutOfBoundsException("The dimensions of the Matrix cannot be changed.");
+		float [] aux = new float[rows];
+		for(int i:m.getRows())
+			for(int j:m.getColumns(i)){
+				float v = m.getValue(i, j);
+				if(i==j)
+					aux[i] = v;
+				else
+					if(v!=0)
+						throw new IllegalArgumentException("A diagonal matrix can only hold elements in the diagonal.");
+			}
+		diagonal = aux;
+		updateSparsity();
+	}
+
+}
@@ -16,16 +16,25 @@
 package matrix.matrixImpl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
+import matrix.adapterDistribution.Configuration;
 import matrix.matrixComp.MatrixComputationFD;
 
 import matrix.factory.FactoryMatrixHolder;
 
-/** 
+/**
  * Provides implementation of a dense 2d matrix of float elements. As it is a dense memory structure, it is assumed to be fully completed.
+ * <br>
+ * The elements are stored in a single array in row-major order, i.e. element <tt>(i,j)</tt> is in position <tt>i*columns+j</tt>.
+ * Multiplication, transposition and the solution of triangular systems work directly on the array: the multiplication is blocked so that the
+ * part of the right matrix in use fits in cache, and both the multiplication and the triangular solutions are split among threads.
  * @author Antonela Tommasel
  * */
 public class MatrixFloat extends Matrix{
@@ -33,9 +42,29 @@ public class MatrixFloat extends Matrix{
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * Internal representation of the matrix
+	 * Number of rows of the right matrix used by each block of the multiplication.
 	 */
-	private float [][] elements;
+	static final int BLOCK_K = 128;
+
+	/**
+	 * Number of columns of the right matrix used by each block of the multiplication.
+	 */
+	static final int BLOCK_J = 512;
+
+	/**
+	 * Number of multiply-adds from which operations are split among threads.
+	 */
+	static final long PARALLEL_THRESHOLD = 1 << 20;
+
+	/**
+	 * Maximum number of elements of the matrix, i.e. the size of the largest array the virtual machines allocate.
+	 */
+	public static final int MAX_ELEMENTS = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Internal representation of the matrix, in row-major order
+	 */
+	private float [] elements;
 
 	/**
 	 * Class constructor
@@ -44,36 +73,63 @@ public class MatrixFloat extends Matrix{
 	 */
 	public MatrixFloat(int f, int c) {
 		super(f, c);
-		elements=new float[f][c];
+		elements=allocate(f, c);
 		nonZeros=0;
 	}
 
-	/** 
+	/**
+	 * @return the array of the elements of a matrix with f rows and c columns
+	 * @throws IllegalArgumentException when the matrix has more than {@link #MAX_ELEMENTS} elements
+	 */
+	private static float [] allocate(int f, int c){
+		long size = (long) f*c;
+		if(f<0 || c<0 || size>MAX_ELEMENTS)
+			throw new IllegalArgumentException("A dense matrix can hold at most "+MAX_ELEMENTS+" elements, but a "+f+"x"+c+" matrix was requested.");
+		return new float[(int) size];
+	}
+
+	/**
 	 * Creates a Matrix by copying the values of the other Matrix
 	 * @param toCopy Matrix to copy the values in the new Matrix
 	 */
 	public MatrixFloat(Matrix toCopy){
 		super(toCopy.rowSize(),toCopy.columnSize());
-		elements = new float[rows][columns];
-		nonZeros = 0;
-		Collection<Integer> rows = toCopy.getRows();
-		for(Integer i:rows){
-			Collection<Integer> col = toCopy.getColumns(i);
-			for(Integer j:col)
-				elements[i][j] = toCopy.getValue(i, j);
+		if(toCopy instanceof MatrixFloat){
+			elements = ((MatrixFloat) toCopy).elements.clone();
+			nonZeros = toCopy.getNonZeros();
+			return;
+		}
+		elements = allocate(rows, columns);
+		if(toCopy instanceof MatrixCSR){ //the rows are read directly from the arrays
+			MatrixCSR csr = (MatrixCSR) toCopy;
+			int [] pointers = csr.getRowPointers();
+			int [] columnIndices = csr.getColumnIndices();
+			float [] values = csr.getValues();
+			for(int i=0;i<this.rows;i++)
+				for(int p=pointers[i];p<pointers[i+1];p++)
+					elements[i*columns+columnIndices[p]] = values[p];
 		}
+		else{
+			Collection<Integer> rows = toCopy.getRows();
+			for(Integer i:rows){
+				Collection<Integer> col = toCopy.getColumns(i);
+				for(Integer j:col)
+					elements[i*columns+j] = toCopy.getValue(i, j);
+			}
+		}
+		updateSparsity();
 	}
 
 	@Override
 	public void setValue(int i, int j, float v) {
 		if(i<rows && j<columns){
-			if(v!=0.0f){
+			float old = elements[i*columns+j];
+			if(old==0.0f && v!=0.0f)
 				nonZeros++;
-			}
 			else
-				if(elements[i][j]!=0.0f)
+				if(old!=0.0f && v==0.0f)
 					nonZeros--;
-			elements[i][j]=v;
+			elements[i*columns+j]=v;
 		}
 
 
@@ -82,7 +138,7 @@ public class MatrixFloat extends Matrix{
 	@Override
 	public float getValue(int i, int j) {
 		if(i<rows && j<columns)
-			return elements[i][j];
+			return elements[i*columns+j];
 		return 0;
 	}
 
@@ -91,21 +147,18 @@ public class MatrixFloat extends Matrix{
 
 		float [][] aux=new float[rows][columns];
 		for(int i=0;i<rows;i++)
-			for(int j=0;j<columns;j++)
-				aux[i][j]=elements[i][j];
+			System.arraycopy(elements, i*columns, aux[i], 0, columns);
 
 		return aux;
 	}
 
 	@Override
 	public void setValues(float[][] m) {
-		for(int i=0;i<m.length;i++)
-			for(int j=0;j<m[i].length;j++)
-				if(m[i][j]!=0.0f){
-					nonZeros++;
-					elements[i][j]=m[i][j];
-				}
-
+		for(int i=0;i<m.length && i<rows;i++)
+			for(int j=0;j<m[i].length && j<columns;j++)
+				if(m[i][j]!=0.0f)
+					elements[i*columns+j]=m[i][j];
+		updateSparsity();
 	}
 
 	@Override
@@ -140,45 +193,326 @@ public class MatrixFloat extends Matrix{
 
 	@Override
 	public void updateSparsity() {
-
+		nonZeros = 0;
+		for(int p=0;p<elements.length;p++)
+			if(elements[p]!=0.0f)
+				nonZeros++;
 	}
 
 	@Override
 	public void setRow(int k, Matrix m) {
 		if(k<rows && k<m.rowSize() && columns == m.columnSize()){
 			for(int i=0;i<columns;i++)
-				elements[k][i] = m.getValue(k, i);
+				setValue(k, i, m.getValue(k, i));
 		}
 		else
 			throw new ArrayIndexOutOfBoundsException();
 
 	}
 
-	/**
-	 * As this type of matrix represents a dense memory structure, it invokes the methods in @MatrixComputationFD
-	 */
 	@Override
 	public Matrix fastMult(float alfa) {
-		MatrixComputationFD fd = new MatrixComputationFD();
-		return fd.multiply(alfa, this);
+		MatrixFloat res = new MatrixFloat(rows, columns);
+		for(int p=0;p<elements.length;p++)
+			res.elements[p] = alfa*elements[p];
+		res.updateSparsity();
+		return res;
 	}
 
 	/**
-	 * As this type of matrix represents a dense memory structure, it invokes the methods in @MatrixComputationFD
+	 * The matrix is transposed in square tiles, so that both the rows read and the rows written stay in cache.
 	 */
 	@Override
 	public Matrix fastTrans() {
-		MatrixComputationFD fd = new MatrixComputationFD();
-		return fd.transpose(this);
+		MatrixFloat res = new MatrixFloat(columns, rows);
+		int tile = 32;
+		for(int ii=0;ii<rows;ii+=tile)
+			for(int jj=0;jj<columns;jj+=tile){
+				int iEnd = Math.min(rows, ii+tile);
+				int jEnd = Math.min(columns, jj+tile);
+				for(int i=ii;i<iEnd;i++)
+					for(int j=jj;j<jEnd;j++)
+						res.elements[j*rows+i] = elements[i*columns+j];
+			}
+		res.nonZeros = nonZeros;
+		return res;
 	}
 
 	/**
-	 * As this type of matrix represents a dense memory structure, it invokes the methods in @MatrixComputationFD
+	 * The rows of the matrix are contiguous in the array, so each element of the result is a sequential dot product.
+	 * The rows are split among threads for large matrices.
+	 */
+	@Override
+	public void fastMult(final float [] x, final float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		parallelRows(rows, (long) rows*columns, new RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					int row = i*columns;
+					float sum = 0;
+					for(int j=0;j<columns;j++)
+						sum += elements[row+j]*x[j];
+					y[i] = sum;
+				}
+			}
+		});
+	}
+
+	@Override
+	public void fastMult(final float [][] x, final float [][] y){
+		final int width = checkPanels(x, y);
+		parallelRows(rows, (long) rows*columns*width, new RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					int row = i*columns;
+					float [] yi = y[i];
+					Arrays.fill(yi, 0);
+					for(int j=0;j<columns;j++){
+						float v = elements[row+j];
+						if(v!=0){
+							float [] xj = x[j];
+							for(int c=0;c<width;c++)
+								yi[c] += v*xj[c];
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * When the right matrix is also a MatrixFloat, the product is blocked over the inner dimension and the columns of the right matrix,
+	 * and four rows of the result are computed at once so that each element of the right matrix is loaded once for the four of them.
+	 * Otherwise, the right matrix is copied into a {@link MatrixCSR} and only its non-zero elements are visited.
+	 * In both cases, the rows of the result are split among threads for large products.
 	 */
 	@Override
 	public Matrix fastMult(Matrix m1) {
-		MatrixComputationFD fd = new MatrixComputationFD();
-		return fd.multiply(this,m1);
+		if(this.columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+
+		final MatrixFloat res = new MatrixFloat(rows, m1.columnSize());
+		if(m1 instanceof MatrixFloat){
+			final MatrixFloat sec = (MatrixFloat) m1;
+			parallelRows(rows, (long) rows*columns*sec.columns, new RowKernel() {
+
+				@Override
+				public void run(int from, int to) {
+					multiplyDense(sec, res, from, to);
+				}
+			});
+		}
+		else{
+			final MatrixCSR sec = m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1);
+			parallelRows(rows, (long) rows*sec.getNonZeros(), new RowKernel() {
+
+				@Override
+				public void run(int from, int to) {
+					multiplySparse(sec, res, from, to);
+				}
+			});
+		}
+		res.updateSparsity();
+		return res;
+	}
+
+	/**
+	 * Computes the rows between from and to of <tt>this x sec</tt>.
+	 */
+	private void multiplyDense(MatrixFloat sec, MatrixFloat res, int from, int to){
+		int K = columns;
+		int N = sec.columns;
+		float [] a = elements;
+		float [] b = sec.elements;
+		float [] c = res.elements;
+		for(int kk=0;kk<K;kk+=BLOCK_K){
+			int kEnd = Math.min(K, kk+BLOCK_K);
+			for(int jj=0;jj<N;jj+=BLOCK_J){
+				int jEnd = Math.min(N, jj+BLOCK_J);
+				int i = from;
+				for(;i+3<to;i+=4){
+					int c0 = i*N, c1 = c0+N, c2 = c1+N, c3 = c2+N;
+					for(int k=kk;k<kEnd;k++){
+						float a0 = a[i*K+k], a1 = a[(i+1)*K+k], a2 = a[(i+2)*K+k], a3 = a[(i+3)*K+k];
+						if(a0==0 && a1==0 && a2==0 && a3==0)
+							continue;
+						int bRow = k*N;
+						for(int j=jj;j<jEnd;j++){
+							float v = b[bRow+j];
+							c[c0+j] += a0*v;
+							c[c1+j] += a1*v;
+							c[c2+j] += a2*v;
+							c[c3+j] += a3*v;
+						}
+					}
+				}
+				for(;i<to;i++){
+					int c0 = i*N;
+					for(int k=kk;k<kEnd;k++){
+						float a0 = a[i*K+k];
+						if(a0==0)
+							continue;
+						int bRow = k*N;
+						for(int j=jj;j<jEnd;j++)
+							c[c0+j] += a0*b[bRow+j];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the rows between from and to of <tt>this x sec</tt>, for a sparse sec.
+	 */
+	private void multiplySparse(MatrixCSR sec, MatrixFloat res, int from, int to){
+		int N = sec.columnSize();
+		int [] pointers = sec.getRowPointers();
+		int [] indices = sec.getColumnIndices();
+		float [] values = sec.getValues();
+		for(int i=from;i<to;i++)
+			for(int k=0;k<columns;k++){
+				float a = elements[i*columns+k];
+				if(a==0)
+					continue;
+				for(int q=pointers[k];q<pointers[k+1];q++)
+					res.elements[i*N+indices[q]] += a*values[q];
+			}
+	}
+
+	/**
+	 * Solves <tt>L x X = this</tt> in place, where L is lower triangular. The columns of this matrix are independent systems, so they are split among threads.
+	 * @param L lower triangular matrix
+	 * @param unitDiagonal whether the diagonal of L is assumed to be 1, as in the L factor of the LU decomposition
+	 * @param transposed whether to solve <tt>L^t x X = this</tt> instead, i.e. with an upper triangular matrix stored as its transpose
+	 */
+	public void solveLower(final MatrixFloat L, final boolean unitDiagonal, final boolean transposed){
+		if(L.rows!=rows || !L.isSquare())
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		parallelRows(columns, (long) rows*rows*columns/2, new RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				int n = rows;
+				if(!transposed)
+					for(int k=0;k<n;k++){
+						int xk = k*columns;
+						for(int i=0;i<k;i++){
+							float l = L.elements[k*n+i];
+							if(l==0)
+								continue;
+							int xi = i*columns;
+							for(int j=from;j<to;j++)
+								elements[xk+j] -= l*elements[xi+j];
+						}
+						if(!unitDiagonal){
+							float d = L.elements[k*n+k];
+							for(int j=from;j<to;j++)
+								elements[xk+j] /= d;
+						}
+					}
+				else
+					for(int k=n-1;k>=0;k--){
+						int xk = k*columns;
+						for(int i=k+1;i<n;i++){
+							float l = L.elements[i*n+k];
+							if(l==0)
+								continue;
+							int xi = i*columns;
+							for(int j=from;j<to;j++)
+								elements[xk+j] -= l*elements[xi+j];
+						}
+						if(!unitDiagonal){
+							float d = L.elements[k*n+k];
+							for(int j=from;j<to;j++)
+								elements[xk+j] /= d;
+						}
+					}
+			}
+		});
+		updateSparsity();
+	}
+
+	/**
+	 * Solves <tt>U x X = this</tt> in place, where U is upper triangular. The columns of this matrix are independent systems, so they are split among threads.
+	 * @param U upper triangular matrix
+	 */
+	public void solveUpper(final MatrixFloat U){
+		if(U.rows!=rows || !U.isSquare())
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		parallelRows(columns, (long) rows*rows*columns/2, new RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				int n = rows;
+				for(int k=n-1;k>=0;k--){
+					int xk = k*columns;
+					for(int i=k+1;i<n;i++){
+						float u = U.elements[k*n+i];
+						if(u==0)
+							continue;
+						int xi = i*columns;
+						for(int j=from;j<to;j++)
+							elements[xk+j] -= u*elements[xi+j];
+					}
+					float d = U.elements[k*n+k];
+					for(int j=from;j<to;j++)
+						elements[xk+j] /= d;
+				}
+			}
+		});
+		updateSparsity();
+	}
+
+	/**
+	 * Work on a range of rows, or columns, of a matrix.
+	 */
+	interface RowKernel {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Splits the range <tt>[0,n)</tt> among {@link Configuration#MAX_THREADS} threads per processor when the work is large enough.
+	 * @param n size of the range
+	 * @param work number of multiply-adds to perform
+	 * @param kernel work to perform on each part of the range
+	 */
+	static void parallelRows(int n, long work, final RowKernel kernel){
+		int threads = Math.min(n, Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors());
+		if(work < PARALLEL_THRESHOLD || threads < 2){
+			kernel.run(0, n);
+			return;
+		}
+		ExecutorService th = Executors.newFixedThreadPool(threads);
+		final Semaphore sema = new Semaphore(threads+1);
+		int rowsPerThread = (n + threads - 1) / threads;
+		for(int start=0;start<n;start+=rowsPerThread){
+			final int from = start;
+			final int to = Math.min(n, start+rowsPerThread);
+			try {
+				sema.acquire();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			th.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					kernel.run(from, to);
+					sema.release();
+				}
+			});
+		}
+		try {
+			sema.acquire(threads+1);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		th.shutdown();
 	}
 
 	/**
@@ -205,7 +539,7 @@ public class MatrixFloat extends Matrix{
 	public boolean isDiagonal() {
 		for(int i=0;i<rows;i++)
 			for(int j=0;j<columns;j++)
-				if(i!=j && elements[i][j]!=0)
+				if(i!=j && elements[i*columns+j]!=0)
 					return false;
 		return true;
 	}
@@ -220,12 +554,22 @@ public class MatrixFloat extends Matrix{
 		return new MatrixComputationFD().solveQR(this, Rdiag);
 	}
 
+	/**
+	 * The matrix is replaced by <tt>B(piv,:)</tt>, and then the triangular systems of L and U are solved in place.
+	 */
 	@Override
 	public void findFastSolution(Matrix LU, Matrix B,int[] piv) {
-		Matrix inverse = new MatrixComputationFD().solve(LU, B, piv);
-		for(int i=0;i<inverse.rowSize();i++)
-			for(int j=0;j<inverse.columnSize();j++)
-				elements[i][j] = inverse.getValue(i,j);
+		if (B.rowSize() != LU.rowSize())
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		MatrixFloat factors = LU instanceof MatrixFloat ? (MatrixFloat) LU : new MatrixFloat(LU);
+		MatrixFloat rhs = B instanceof MatrixFloat ? (MatrixFloat) B : new MatrixFloat(B);
+		rows = piv.length;
+		columns = rhs.columns;
+		elements = allocate(rows, columns);
+		for(int i=0;i<rows;i++)
+			System.arraycopy(rhs.elements, piv[i]*columns, elements, i*columns, columns);
+		solveLower(factors, true, false);
+		solveUpper(factors);
 	}
 
 	@Override
@@ -235,18 +579,19 @@ public class MatrixFloat extends Matrix{
 		rows = inverse.rowSize();
 		columns = inverse.columnSize();
 
-		elements = new float[rows][columns];
+		elements = allocate(rows, columns);
 
 		for(int i=0;i<inverse.rowSize();i++)
 			for(int j=0;j<inverse.columnSize();j++)
-				elements[i][j] = inverse.getValue(i,j);
+				elements[i*columns+j] = inverse.getValue(i,j);
+		updateSparsity();
 
 	}
 
 	@Override
 	public void invertDiagonal() {
 		for(int i=0;i<rows;i++)
-			elements[i][i] = 1/elements[i][i]; 
+			elements[i*columns+i] = 1/elements[i*columns+i];
 	}
 
 	@Override
@@ -254,20 +599,21 @@ public class MatrixFloat extends Matrix{
 		return new MatrixComputationFD().solveCholesky(this);
 	}
 
+	/**
+	 * Solves <tt>L x L^t x X = this</tt> in place, with the triangular systems of L and its transpose.
+	 */
 	@Override
 	public void findFastSolution(Matrix cholesky) {
-
-		Matrix inverse = new MatrixComputationFD().solve(cholesky, FactoryMatrixHolder.getFactory().createIdentity(cholesky.rowSize()));
-		for(int i=0;i<inverse.rowSize();i++)
-			for(int j=0;j<inverse.columnSize();j++)
-				elements[i][j] = inverse.getValue(i,j);
+		MatrixFloat L = cholesky instanceof MatrixFloat ? (MatrixFloat) cholesky : new MatrixFloat(cholesky);
+		solveLower(L, false, false);
+		solveLower(L, false, true);
 	}
 
 	@Override
 	public boolean isSingular() {
 		int index = Math.min(rows,columns);
 		for(int i=0;i<index;i++)
-			if(elements[i][i]==0)
+			if(elements[i*columns+i]==0)
 				return true;
 		return false;
 	}
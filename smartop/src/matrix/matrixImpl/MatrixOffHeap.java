@@ -0,0 +1,763 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Provides implementation of a sparse 2d matrix in the Compressed Sparse Row format (see {@link MatrixCSR}) whose
+ * row pointers, column coordinates and values are stored outside the Java heap, in direct {@link ByteBuffer}s.
+ * <br>
+ * The garbage collector does not scan the content of the matrix, and the heap only has to hold the small buffer objects.
+ * The native memory is released when the buffers are collected. The amount of native memory available can be set with
+ * the <tt>-XX:MaxDirectMemorySize</tt> option of the virtual machine.
+ * <br>
+ * As in {@link MatrixCSR}, the matrix is meant to be built once and then read, and inserting or removing an element
+ * with {@link #setValue(int, int, float)} shifts all the elements after it.
+ * <br>
+ * A matrix saved with {@link Matrix#saveToBinary(String)} can be opened with {@link #map(String)}, in which case the buffers
+ * are mapped to the file instead of being allocated.
+ * <br>
+ * The capacity of a buffer is limited to 2 GB, so a matrix can hold at most {@link #MAX_ELEMENTS} non-zero elements.
+ * @author Antonela Tommasel
+ * */
+public class MatrixOffHeap extends Matrix {
+
+	private static final long serialVersionUID = -6204918262455213750L;
+
+	/**
+	 * First int of the binary files written by {@link Matrix#saveToBinary(String)}, the bytes "SMAT" in little-endian order.
+	 */
+	public static final int MAGIC = 0x54414D53;
+
+	/**
+	 * Version of the binary format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size in bytes of the header of the binary files.
+	 */
+	public static final int HEADER_SIZE = 24;
+
+	/**
+	 * Maximum number of ints or floats of a buffer, whose capacity in bytes is an int.
+	 */
+	public static final int MAX_ELEMENTS = Integer.MAX_VALUE / 4;
+
+	/**
+	 * Positions in which each row starts. Row <tt>i</tt> ends where row <tt>i+1</tt> starts.
+	 */
+	protected transient IntBuffer rowPointers;
+
+	/**
+	 * Column coordinates of the non-zero elements, sorted within each row.
+	 */
+	protected transient IntBuffer columnIndices;
+
+	/**
+	 * Values of the non-zero elements.
+	 */
+	protected transient FloatBuffer values;
+
+	/**
+	 * Class constructor
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 */
+	public MatrixOffHeap(int f, int c) {
+		super(f, c);
+		rowPointers = allocateInts(f+1);
+		columnIndices = allocateInts(0);
+		values = allocateFloats(0);
+	}
+
+	/**
+	 * Creates a Matrix over already compressed buffers. The buffers are not copied, and their content is accessed by absolute
+	 * positions, i.e. their position and limit are ignored.
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 * @param rowPointers positions in which each row starts, with f+1 elements
+	 * @param columnIndices column coordinates of the non-zero elements, sorted within each row
+	 * @param values values of the non-zero elements
+	 */
+	public MatrixOffHeap(int f, int c, IntBuffer rowPointers, IntBuffer columnIndices, FloatBuffer values) {
+		super(f, c);
+		if(rowPointers.capacity() < f+1)
+			throw new IllegalArgumentException("The row pointers must have rows+1 elements.");
+		this.rowPointers = rowPointers;
+		this.columnIndices = columnIndices;
+		this.values = values;
+		nonZeros = rowPointers.get(f);
+	}
+
+	/**
+	 * Creates a Matrix by copying the values of the other Matrix
+	 * @param toCopy Matrix to copy the values in the new Matrix
+	 */
+	public MatrixOffHeap(Matrix toCopy){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(toCopy instanceof MatrixOffHeap){
+			MatrixOffHeap other = (MatrixOffHeap) toCopy;
+			int nnz = other.rowPointers.get(rows);
+			rowPointers = copy(other.rowPointers, rows+1, rows+1);
+			columnIndices = copy(other.columnIndices, nnz, nnz);
+			values = copy(other.values, nnz, nnz);
+		}
+		else
+			if(toCopy instanceof MatrixCSR){
+				MatrixCSR csr = (MatrixCSR) toCopy;
+				int nnz = csr.rowPointers[rows];
+				rowPointers = allocateInts(rows+1);
+				rowPointers.put(csr.rowPointers, 0, rows+1);
+				columnIndices = allocateInts(nnz);
+				columnIndices.put(csr.columnIndices, 0, nnz);
+				values = allocateFloats(nnz);
+				values.put(csr.values, 0, nnz);
+			}
+			else{
+				//each row is sorted in a small buffer in the heap and then written
+				int [] pointers = new int[rows+1];
+				List<Integer> sortedRows = new ArrayList<Integer>(toCopy.getRows());
+				Collections.sort(sortedRows);
+				int maxRow = 0;
+				for(int i:sortedRows){
+					pointers[i+1] = toCopy.getColumns(i).size();
+					maxRow = Math.max(maxRow, pointers[i+1]);
+				}
+				for(int i=0;i<rows;i++)
+					pointers[i+1] += pointers[i];
+				rowPointers = allocateInts(rows+1);
+				rowPointers.put(pointers);
+				columnIndices = allocateInts(pointers[rows]);
+				values = allocateFloats(pointers[rows]);
+				int [] rowColumns = new int[maxRow];
+				float [] rowValues = new float[maxRow];
+				for(int i:sortedRows){
+					int n = 0;
+					for(int j:toCopy.getColumns(i))
+						rowColumns[n++] = j;
+					Arrays.sort(rowColumns, 0, n);
+					for(int q=0;q<n;q++)
+						rowValues[q] = toCopy.getValue(i, rowColumns[q]);
+					columnIndices.position(pointers[i]);
+					columnIndices.put(rowColumns, 0, n);
+					values.position(pointers[i]);
+					values.put(rowValues, 0, n);
+				}
+			}
+		rowPointers.clear();
+		columnIndices.clear();
+		values.clear();
+		nonZeros = rowPointers.get(rows);
+	}
+
+	/**
+	 * Opens a matrix saved with {@link Matrix#saveToBinary(String)} by mapping the file into memory. Nothing is parsed, and
+	 * the pages of the file are read by the operating system only when the corresponding rows are accessed.
+	 * <br>
+	 * The file is mapped in read-only mode, and it is never modified. The first modification of the matrix copies it into direct buffers.
+	 * @param path path to the binary file
+	 * @return the mapped matrix
+	 * @throws IOException opens and maps the file
+	 */
+	public static MatrixOffHeap map(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		FileChannel channel = file.getChannel();
+		try{
+			ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.getInt(0) != MAGIC)
+				throw new IOException(path+" is not a binary matrix file.");
+			if(header.getInt(4) != VERSION)
+				throw new IOException("Unsupported binary matrix version "+header.getInt(4)+".");
+			int f = header.getInt(8);
+			int c = header.getInt(12);
+			int nnz = header.getInt(16);
+
+			long position = HEADER_SIZE;
+			IntBuffer rowPointers = channel.map(MapMode.READ_ONLY, position, bytes(f+1L)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			position += 4L*(f+1);
+			IntBuffer columnIndices = channel.map(MapMode.READ_ONLY, position, bytes(nnz)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			position += 4L*nnz;
+			FloatBuffer values = channel.map(MapMode.READ_ONLY, position, bytes(nnz)).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+			return new MatrixOffHeap(f, c, rowPointers, columnIndices, values);
+		}finally{
+			file.close(); //the mappings remain valid after closing the file
+		}
+	}
+
+	/**
+	 * @param path path to a file
+	 * @return whether the file was written by {@link Matrix#saveToBinary(String)}
+	 */
+	public static boolean isBinary(String path) {
+		try{
+			DataInputStream in = new DataInputStream(new FileInputStream(path));
+			try{
+				return Integer.reverseBytes(in.readInt()) == MAGIC;
+			}finally{
+				in.close();
+			}
+		}catch(IOException e){
+			return false;
+		}
+	}
+
+	/**
+	 * Copies the elements into new direct buffers if they are read-only, as it happens when the matrix is mapped to a file.
+	 */
+	private void ensureWritable() {
+		if(rowPointers.isReadOnly() || columnIndices.isReadOnly() || values.isReadOnly()){
+			int nnz = rowPointers.get(rows);
+			rowPointers = copy(rowPointers, rows+1, rows+1);
+			columnIndices = copy(columnIndices, nnz, nnz);
+			values = copy(values, nnz, nnz);
+		}
+	}
+
+	/**
+	 * @param n number of elements
+	 * @return a direct buffer of n ints in the native byte order
+	 * @throws IllegalArgumentException when n is negative or greater than {@link #MAX_ELEMENTS}
+	 */
+	public static IntBuffer allocateInts(long n) {
+		return ByteBuffer.allocateDirect(bytes(n)).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/**
+	 * @param n number of elements
+	 * @return a direct buffer of n floats in the native byte order
+	 * @throws IllegalArgumentException when n is negative or greater than {@link #MAX_ELEMENTS}
+	 */
+	public static FloatBuffer allocateFloats(long n) {
+		return ByteBuffer.allocateDirect(bytes(n)).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	/**
+	 * @return the size in bytes of a buffer of n ints or floats
+	 * @throws IllegalArgumentException when n is negative or greater than {@link #MAX_ELEMENTS}
+	 */
+	private static int bytes(long n) {
+		if(n<0 || n>MAX_ELEMENTS)
+			throw new IllegalArgumentException("A buffer can hold at most "+MAX_ELEMENTS+" elements, but "+n+" are needed.");
+		return (int) (4*n);
+	}
+
+	/**
+	 * @return a new direct buffer of the given capacity holding the first n elements of the buffer
+	 */
+	private static IntBuffer copy(IntBuffer buffer, int n, long capacity) {
+		IntBuffer aux = allocateInts(capacity);
+		IntBuffer src = buffer.duplicate();
+		src.clear().limit(n);
+		aux.put(src);
+		aux.clear();
+		return aux;
+	}
+
+	/**
+	 * @return a new direct buffer of the given capacity holding the first n elements of the buffer
+	 */
+	private static FloatBuffer copy(FloatBuffer buffer, int n, long capacity) {
+		FloatBuffer aux = allocateFloats(capacity);
+		FloatBuffer src = buffer.duplicate();
+		src.clear().limit(n);
+		aux.put(src);
+		aux.clear();
+		return aux;
+	}
+
+	/**
+	 * @return the positions in which each row starts. The buffer is not copied.
+	 */
+	public IntBuffer getRowPointers() {
+		return rowPointers;
+	}
+
+	/**
+	 * @return the column coordinates of the non-zero elements. The buffer is not copied.
+	 */
+	public IntBuffer getColumnIndices() {
+		return columnIndices;
+	}
+
+	/**
+	 * @return the values of the non-zero elements. The buffer is not copied.
+	 */
+	public FloatBuffer getValues() {
+		return values;
+	}
+
+	/**
+	 * @param i the index of the row-coordinate.
+	 * @param j the index of the column-coordinate.
+	 * @return the position of the element in the buffers, or <tt>-(insertion point)-1</tt> if the element is zero.
+	 */
+	protected int find(int i, int j){
+		int low = rowPointers.get(i);
+		int high = rowPointers.get(i+1)-1;
+		while(low<=high){
+			int mid = (low+high) >>> 1;
+			int column = columnIndices.get(mid);
+			if(column<j)
+				low = mid+1;
+			else
+				if(column>j)
+					high = mid-1;
+				else
+					return mid;
+		}
+		return -(low+1);
+	}
+
+	/**
+	 * As elements are shifted when inserted or removed, the method is synchronised so that several threads can set elements at the same time. Reads take no lock, so the Matrix must not be read while it is being modified.
+	 */
+	@Override
+	public synchronized void setValue(int i, int j, float v) {
+		ensureWritable();
+		int p = find(i, j);
+		if(p>=0){
+			if(v!=0.0f)
+				values.put(p, v);
+			else{
+				int nnz = rowPointers.get(rows);
+				for(int q=p;q<nnz-1;q++){
+					columnIndices.put(q, columnIndices.get(q+1));
+					values.put(q, values.get(q+1));
+				}
+				for(int r=i+1;r<=rows;r++)
+					rowPointers.put(r, rowPointers.get(r)-1);
+				nonZeros--;
+			}
+		}
+		else
+			if(v!=0.0f){
+				p = -p-1;
+				int nnz = rowPointers.get(rows);
+				if(nnz == columnIndices.capacity()){
+					int capacity = Math.max(16, nnz + (nnz >> 1));
+					columnIndices = copy(columnIndices, nnz, capacity);
+					values = copy(values, nnz, capacity);
+				}
+				for(int q=nnz;q>p;q--){
+					columnIndices.put(q, columnIndices.get(q-1));
+					values.put(q, values.get(q-1));
+				}
+				columnIndices.put(p, j);
+				values.put(p, v);
+				for(int r=i+1;r<=rows;r++)
+					rowPointers.put(r, rowPointers.get(r)+1);
+				nonZeros++;
+			}
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		int p = find(i, j);
+		if(p<0)
+			return 0;
+		return values.get(p);
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = new float[rows][columns];
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers.get(i);p<rowPointers.get(i+1);p++)
+				aux[i][columnIndices.get(p)] = values.get(p);
+		return aux;
+	}
+
+	@Override
+	public void setValues(float[][] m) {
+		int nnz = 0;
+		for(int i=0;i<m.length;i++)
+			for(int j=0;j<m[i].length;j++)
+				if(m[i][j]!=0.0f)
+					nnz++;
+		rowPointers = allocateInts(rows+1);
+		columnIndices = allocateInts(nnz);
+		values = allocateFloats(nnz);
+		nnz = 0;
+		for(int i=0;i<rows;i++){
+			if(i<m.length)
+				for(int j=0;j<m[i].length;j++)
+					if(m[i][j]!=0.0f){
+						columnIndices.put(nnz, j);
+						values.put(nnz, m[i][j]);
+						nnz++;
+					}
+			rowPointers.put(i+1, nnz);
+		}
+		nonZeros = nnz;
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		return rowPointers.get(i+1)-rowPointers.get(i);
+	}
+
+	@Override
+	public Matrix fastMult(float alfa) {
+		if(alfa==0)
+			return new MatrixOffHeap(rows, columns);
+		int nnz = rowPointers.get(rows);
+		FloatBuffer scaled = allocateFloats(nnz);
+		for(int p=0;p<nnz;p++)
+			scaled.put(p, alfa*values.get(p));
+		return new MatrixOffHeap(rows, columns, copy(rowPointers, rows+1, rows+1), copy(columnIndices, nnz, nnz), scaled);
+	}
+
+	/**
+	 * The transpose is computed with a counting sort over the column coordinates, so the rows of the result are already sorted.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		int nnz = rowPointers.get(rows);
+		int [] next = new int[columns+1];
+		for(int p=0;p<nnz;p++)
+			next[columnIndices.get(p)+1]++;
+		for(int j=0;j<columns;j++)
+			next[j+1] += next[j];
+		IntBuffer tPointers = allocateInts(columns+1);
+		tPointers.put(next);
+		tPointers.clear();
+
+		IntBuffer tColumns = allocateInts(nnz);
+		FloatBuffer tValues = allocateFloats(nnz);
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers.get(i);p<rowPointers.get(i+1);p++){
+				int q = next[columnIndices.get(p)]++;
+				tColumns.put(q, i);
+				tValues.put(q, values.get(p));
+			}
+		return new MatrixOffHeap(columns, rows, tPointers, tColumns, tValues);
+	}
+
+	/**
+	 * Each element of the result is the product of a row by the vector, so the rows are split among threads for large matrices.
+	 */
+	@Override
+	public void fastMult(final float [] x, final float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		MatrixFloat.parallelRows(rows, rowPointers.get(rows), new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					float sum = 0;
+					for(int p=rowPointers.get(i);p<rowPointers.get(i+1);p++)
+						sum += values.get(p)*x[columnIndices.get(p)];
+					y[i] = sum;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Each row of the result adds the rows of the panel selected by a row of this matrix, so the rows are split among threads for large products.
+	 */
+	@Override
+	public void fastMult(final float [][] x, final float [][] y){
+		final int width = checkPanels(x, y);
+		MatrixFloat.parallelRows(rows, (long) rowPointers.get(rows)*width, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++){
+					float [] yi = y[i];
+					Arrays.fill(yi, 0);
+					for(int p=rowPointers.get(i);p<rowPointers.get(i+1);p++){
+						float v = values.get(p);
+						float [] xj = x[columnIndices.get(p)];
+						for(int c=0;c<width;c++)
+							yi[c] += v*xj[c];
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Each row of the result is computed by scattering the rows of the right matrix scaled by the elements of the corresponding row
+	 * of this matrix into a dense accumulator. The result is also stored off the heap. A {@link MatrixCSR} right matrix is read
+	 * in place, while other implementations are first copied into a {@link MatrixOffHeap}.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		if(this.columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+
+		MatrixOffHeap sec;
+		if(m1 instanceof MatrixOffHeap)
+			sec = (MatrixOffHeap) m1;
+		else
+			if(m1 instanceof MatrixCSR){
+				MatrixCSR csr = (MatrixCSR) m1;
+				sec = new MatrixOffHeap(csr.rows, csr.columns, IntBuffer.wrap(csr.rowPointers), IntBuffer.wrap(csr.columnIndices), FloatBuffer.wrap(csr.values));
+			}
+			else
+				sec = new MatrixOffHeap(m1);
+		int secColumns = sec.columnSize();
+
+		float [] accumulator = new float[secColumns];
+		int [] marker = new int[secColumns];
+		Arrays.fill(marker, -1);
+		int [] touched = new int[secColumns];
+
+		IntBuffer resPointers = allocateInts(rows+1);
+		IntBuffer resColumns = allocateInts(Math.max(16, rowPointers.get(rows)));
+		FloatBuffer resValues = allocateFloats(resColumns.capacity());
+		int nnz = 0;
+
+		for(int i=0;i<rows;i++){
+			int n = 0;
+			for(int p=rowPointers.get(i);p<rowPointers.get(i+1);p++){
+				int k = columnIndices.get(p);
+				float v = values.get(p);
+				for(int q=sec.rowPointers.get(k);q<sec.rowPointers.get(k+1);q++){
+					int j = sec.columnIndices.get(q);
+					if(marker[j]!=i){
+						marker[j] = i;
+						accumulator[j] = 0;
+						touched[n++] = j;
+					}
+					accumulator[j] += v*sec.values.get(q);
+				}
+			}
+			Arrays.sort(touched, 0, n);
+			if(nnz+n > resColumns.capacity()){
+				long capacity = Math.max((long) nnz+n, Math.min(MAX_ELEMENTS, resColumns.capacity() + (long) (resColumns.capacity() >> 1)));
+				resColumns = copy(resColumns, nnz, capacity);
+				resValues = copy(resValues, nnz, capacity);
+			}
+			for(int t=0;t<n;t++){
+				int j = touched[t];
+				if(accumulator[j]!=0){
+					resColumns.put(nnz, j);
+					resValues.put(nnz, accumulator[j]);
+					nnz++;
+				}
+			}
+			resPointers.put(i+1, nnz);
+		}
+		return new MatrixOffHeap(rows, secColumns, resPointers, resColumns, resValues);
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(rowPointers.get(i+1)>rowPointers.get(i))
+				aux.add(i);
+		return aux;
+	}
+
+	@Override
+	public Collection<Integer> getColumns(final int row) {
+		final IntBuffer indices = columnIndices;
+		final int start = rowPointers.get(row);
+		final int end = rowPointers.get(row+1);
+		return new AbstractList<Integer>() {
+
+			@Override
+			public Integer get(int index) {
+				return indices.get(start+index);
+			}
+
+			@Override
+			public int size() {
+				return end-start;
+			}
+		};
+	}
+
+	@Override
+	public void updateSparsity() {
+		nonZeros = rowPointers.get(rows);
+	}
+
+	@Override
+	public List<Integer> getSortedRows() {
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+
+		Collections.sort(aux, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Float.compare(MatrixOffHeap.this.getSparcityRow(o1), MatrixOffHeap.this.getSparcityRow(o2));
+			}
+		});
+		return aux;
+	}
+
+	/**
+	 * The rows of the sub-matrix keep their original coordinates, hence the sub-matrix has <tt>endRow</tt> rows, of which only
+	 * the ones between startRow and endRow are non-zero.
+	 */
+	@Override
+	public Matrix getSubmatrix(int startRow, int endRow) {
+		int start = rowPointers.get(startRow);
+		int end = rowPointers.get(endRow);
+		IntBuffer subPointers = allocateInts(endRow+1);
+		for(int i=startRow;i<=endRow;i++)
+			subPointers.put(i, rowPointers.get(i)-start);
+		IntBuffer subColumns = allocateInts(end-start);
+		FloatBuffer subValues = allocateFloats(end-start);
+		for(int p=start;p<end;p++){
+			subColumns.put(p-start, columnIndices.get(p));
+			subValues.put(p-start, values.get(p));
+		}
+		return new MatrixOffHeap(endRow, columns, subPointers, subColumns, subValues);
+	}
+
+	@Override
+	public synchronized void setRow(int i, Matrix matrix) {
+		Collection<Integer> col = matrix.getColumns(i);
+		int [] newColumns = new int[col.size()];
+		float [] newValues = new float[col.size()];
+		int n = 0;
+		for(int j:col){
+			newColumns[n] = j;
+			newValues[n] = matrix.getValue(i, j);
+			n++;
+		}
+		MatrixCSR.sortRow(newColumns, newValues, 0, n);
+		ensureWritable();
+
+		int nnz = rowPointers.get(rows);
+		int start = rowPointers.get(i);
+		int end = rowPointers.get(i+1);
+		int shift = n - (end-start);
+		if(nnz+shift > columnIndices.capacity()){
+			columnIndices = copy(columnIndices, nnz, nnz+shift);
+			values = copy(values, nnz, nnz+shift);
+		}
+		if(shift>0)
+			for(int q=nnz-1;q>=end;q--){
+				columnIndices.put(q+shift, columnIndices.get(q));
+				values.put(q+shift, values.get(q));
+			}
+		else
+			for(int q=end;q<nnz;q++){
+				columnIndices.put(q+shift, columnIndices.get(q));
+				values.put(q+shift, values.get(q));
+			}
+		for(int q=0;q<n;q++){
+			columnIndices.put(start+q, newColumns[q]);
+			values.put(start+q, newValues[q]);
+		}
+		for(int r=i+1;r<=rows;r++)
+			rowPointers.put(r, rowPointers.get(r)+shift);
+		nonZeros = rowPointers.get(rows);
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers.get(i);p<rowPointers.get(i+1);p++)
+				if(columnIndices.get(p)!=i)
+					return false;
+		return true;
+	}
+
+	@Override
+	public void invertDiagonal() {
+		ensureWritable();
+		for(int i=0;i<rows;i++){
+			int p = find(i, i);
+			if(p>=0)
+				values.put(p, 1/values.get(p));
+		}
+	}
+
+	@Override
+	public boolean isSingular() {
+		int index = Math.min(rows,columns);
+		for(int i=0;i<index;i++)
+			if(getValue(i, i)==0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Replaces the content of this Matrix by the content of another one.
+	 * @param m Matrix from which to copy the values
+	 */
+	@Override
+	protected void copyFrom(Matrix m){
+		MatrixOffHeap other = m instanceof MatrixOffHeap ? (MatrixOffHeap) m : new MatrixOffHeap(m);
+		rows = other.rows;
+		columns = other.columns;
+		rowPointers = other.rowPointers;
+		columnIndices = other.columnIndices;
+		values = other.values;
+		nonZeros = rowPointers.get(rows);
+	}
+
+	/**
+	 * The buffers cannot be serialised, so their used content is written after the fields of the matrix.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		int nnz = rowPointers.get(rows);
+		out.writeInt(nnz);
+		for(int i=1;i<=rows;i++)
+			out.writeInt(rowPointers.get(i));
+		for(int p=0;p<nnz;p++){
+			out.writeInt(columnIndices.get(p));
+			out.writeFloat(values.get(p));
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int nnz = in.readInt();
+		rowPointers = allocateInts(rows+1);
+		for(int i=1;i<=rows;i++)
+			rowPointers.put(i, in.readInt());
+		columnIndices = allocateInts(nnz);
+		values = allocateFloats(nnz);
+		for(int p=0;p<nnz;p++){
+			columnIndices.put(p, in.readInt());
+			values.put(p, in.readFloat());
+		}
+	}
+
+}
@@ -0,0 +1,544 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import matrix.factory.FactoryMatrixHolder;
+
+/**
+ * Provides implementation of a sparse 2d matrix whose non-zero elements are all equal to 1, such as adjacency or membership matrices.
+ * Only the structure of the matrix is stored, in the Compressed Sparse Row layout of {@link MatrixCSR} without the array of values.
+ * <br>
+ * Multiplications take advantage of the implicit values: multiplying two pattern matrices counts the common coordinates of the rows of the
+ * first matrix and the columns of the second one, while multiplying a pattern matrix by another matrix adds rows of the second matrix
+ * without multiplying them. The results of the operations hold arbitrary values, hence they are created by the factory in {@link FactoryMatrixHolder}.
+ * <br>
+ * Only the values 0 and 1 can be set.
+ * @author Antonela Tommasel
+ * */
+public class MatrixPattern extends Matrix {
+
+	private static final long serialVersionUID = -5132419385770968226L;
+
+	/**
+	 * Positions in which each row starts. Row <tt>i</tt> ends where row <tt>i+1</tt> starts.
+	 */
+	protected int [] rowPointers;
+
+	/**
+	 * Column coordinates of the non-zero elements, sorted within each row.
+	 */
+	protected int [] columnIndices;
+
+	/**
+	 * Class constructor
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 */
+	public MatrixPattern(int f, int c) {
+		super(f, c);
+		rowPointers = new int[f+1];
+		columnIndices = new int[0];
+	}
+
+	/**
+	 * Creates a Matrix over already compressed arrays. The arrays are not copied.
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 * @param rowPointers positions in which each row starts, of length f+1
+	 * @param columnIndices column coordinates of the non-zero elements, sorted within each row
+	 */
+	public MatrixPattern(int f, int c, int [] rowPointers, int [] columnIndices) {
+		super(f, c);
+		if(rowPointers.length != f+1)
+			throw new IllegalArgumentException("The row pointers must have rows+1 elements.");
+		this.rowPointers = rowPointers;
+		this.columnIndices = columnIndices;
+		nonZeros = rowPointers[f];
+	}
+
+	/**
+	 * Creates a Matrix with the structure of the other Matrix, i.e. with a 1 in the coordinates of each of its non-zero elements.
+	 * @param toCopy Matrix whose structure is copied in the new Matrix
+	 */
+	public MatrixPattern(Matrix toCopy){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(toCopy instanceof MatrixPattern){
+			MatrixPattern pattern = (MatrixPattern) toCopy;
+			rowPointers = Arrays.copyOf(pattern.rowPointers, rows+1);
+			columnIndices = Arrays.copyOf(pattern.columnIndices, rowPointers[rows]);
+		}
+		else
+		if(toCopy instanceof MatrixCSR){
+			MatrixCSR csr = (MatrixCSR) toCopy;
+			rowPointers = Arrays.copyOf(csr.rowPointers, rows+1);
+			columnIndices = Arrays.copyOf(csr.columnIndices, rowPointers[rows]);
+		}
+		else{
+			rowPointers = new int[rows+1];
+			List<Integer> sortedRows = new ArrayList<Integer>(toCopy.getRows());
+			Collections.sort(sortedRows);
+			for(int i:sortedRows)
+				rowPointers[i+1] = toCopy.getColumns(i).size();
+			for(int i=0;i<rows;i++)
+				rowPointers[i+1] += rowPointers[i];
+			columnIndices = new int[rowPointers[rows]];
+			for(int i:sortedRows){
+				int p = rowPointers[i];
+				for(int j:toCopy.getColumns(i))
+					columnIndices[p++] = j;
+				Arrays.sort(columnIndices, rowPointers[i], p);
+			}
+		}
+		nonZeros = rowPointers[rows];
+	}
+
+	/**
+	 * Builds a Matrix holding a 1 in the coordinates <tt>(ri[k], ci[k])</tt>. The coordinates can be in any order, and repeated ones are ignored.
+	 * @param f number of rows of the matrix to create.
+	 * @param c number of columns of the matrix to create.
+	 * @param ri row coordinates of the elements
+	 * @param ci column coordinates of the elements
+	 * @param n number of elements to consider from the arrays
+	 * @return the created matrix
+	 */
+	public static MatrixPattern fromCoordinates(int f, int c, int [] ri, int [] ci, int n){
+		//counting sort by row
+		int [] pointers = new int[f+1];
+		for(int k=0;k<n;k++){
+			if(ri[k]<0 || ri[k]>=f || ci[k]<0 || ci[k]>=c)
+				throw new ArrayIndexOutOfBoundsException();
+			pointers[ri[k]+1]++;
+		}
+		for(int i=0;i<f;i++)
+			pointers[i+1] += pointers[i];
+
+		int [] next = Arrays.copyOf(pointers, f);
+		int [] sortedColumns = new int[n];
+		for(int k=0;k<n;k++)
+			sortedColumns[next[ri[k]]++] = ci[k];
+
+		//sort each row, dropping repeated coordinates
+		int [] rowPointers = new int[f+1];
+		int nnz = 0;
+		for(int i=0;i<f;i++){
+			Arrays.sort(sortedColumns, pointers[i], pointers[i+1]);
+			for(int k=pointers[i];k<pointers[i+1];k++)
+				if(k==pointers[i] || sortedColumns[k]!=sortedColumns[k-1])
+					sortedColumns[nnz++] = sortedColumns[k];
+			rowPointers[i+1] = nnz;
+		}
+		return new MatrixPattern(f, c, rowPointers, Arrays.copyOf(sortedColumns, nnz));
+	}
+
+	/**
+	 * @param i the index of the row-coordinate.
+	 * @param j the index of the column-coordinate.
+	 * @return the position of the element in the array, or <tt>-(insertion point)-1</tt> if the element is zero.
+	 */
+	protected int find(int i, int j){
+		return Arrays.binarySearch(columnIndices, rowPointers[i], rowPointers[i+1], j);
+	}
+
+	/**
+	 * Only 0 and 1 can be set. As elements are shifted when inserted or removed, the method is synchronised so that several threads can set elements at the same time. Reads take no lock, so the Matrix must not be read while it is being modified.
+	 */
+	@Override
+	public synchronized void setValue(int i, int j, float v) {
+		if(v!=0.0f && v!=1.0f)
+			throw new IllegalArgumentException("A pattern matrix can only hold zeros and ones.");
+		int p = find(i, j);
+		int nnz = rowPointers[rows];
+		if(p>=0){
+			if(v==0.0f){
+				System.arraycopy(columnIndices, p+1, columnIndices, p, nnz-p-1);
+				for(int r=i+1;r<=rows;r++)
+					rowPointers[r]--;
+				nonZeros--;
+			}
+		}
+		else
+			if(v!=0.0f){
+				p = -p-1;
+				if(nnz == columnIndices.length)
+					columnIndices = Arrays.copyOf(columnIndices, Math.max(16, nnz + (nnz >> 1)));
+				System.arraycopy(columnIndices, p, columnIndices, p+1, nnz-p);
+				columnIndices[p] = j;
+				for(int r=i+1;r<=rows;r++)
+					rowPointers[r]++;
+				nonZeros++;
+			}
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		return find(i, j)>=0 ? 1 : 0;
+	}
+
+	/**
+	 * @return the positions in which each row starts. The array is not copied.
+	 */
+	public int[] getRowPointers() {
+		return rowPointers;
+	}
+
+	/**
+	 * @return the column coordinates of the non-zero elements. The array is not copied.
+	 */
+	public int[] getColumnIndices() {
+		return columnIndices;
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = new float[rows][columns];
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				aux[i][columnIndices[p]] = 1;
+		return aux;
+	}
+
+	@Override
+	public void setValues(float[][] m) {
+		int nnz = 0;
+		for(int i=0;i<m.length;i++)
+			for(int j=0;j<m[i].length;j++)
+				if(m[i][j]!=0.0f){
+					if(m[i][j]!=1.0f)
+						throw new IllegalArgumentException("A pattern matrix can only hold zeros and ones.");
+					nnz++;
+				}
+		rowPointers = new int[rows+1];
+		columnIndices = new int[nnz];
+		nnz = 0;
+		for(int i=0;i<rows;i++){
+			if(i<m.length)
+				for(int j=0;j<m[i].length;j++)
+					if(m[i][j]!=0.0f)
+						columnIndices[nnz++] = j;
+			rowPointers[i+1] = nnz;
+		}
+		nonZeros = nnz;
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		return rowPointers[i+1]-rowPointers[i];
+	}
+
+	/**
+	 * All the elements of the result are equal to alfa.
+	 */
+	@Override
+	public Matrix fastMult(float alfa) {
+		if(alfa==0)
+			return FactoryMatrixHolder.getFactory().createMatrix(rows, columns);
+		int nnz = rowPointers[rows];
+		float [] values = new float[nnz];
+		Arrays.fill(values, alfa);
+		return FactoryMatrixHolder.getFactory().createMatrix(new MatrixCSR(rows, columns, Arrays.copyOf(rowPointers, rows+1), Arrays.copyOf(columnIndices, nnz), values));
+	}
+
+	/**
+	 * The transpose of a pattern matrix is also a pattern matrix. It is computed with a counting sort over the column coordinates.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		int nnz = rowPointers[rows];
+		int [] tPointers = new int[columns+1];
+		for(int p=0;p<nnz;p++)
+			tPointers[columnIndices[p]+1]++;
+		for(int j=0;j<columns;j++)
+			tPointers[j+1] += tPointers[j];
+
+		int [] next = Arrays.copyOf(tPointers, columns);
+		int [] tColumns = new int[nnz];
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				tColumns[next[columnIndices[p]]++] = i;
+		return new MatrixPattern(columns, rows, tPointers, tColumns);
+	}
+
+	/**
+	 * Each element of the result is the sum of the elements of the vector selected by a row of this matrix, so no multiplication is performed.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		for(int i=0;i<rows;i++){
+			float sum = 0;
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				sum += x[columnIndices[p]];
+			y[i] = sum;
+		}
+	}
+
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(int i=0;i<rows;i++){
+			float [] yi = y[i];
+			Arrays.fill(yi, 0);
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++){
+				float [] xj = x[columnIndices[p]];
+				for(int c=0;c<width;c++)
+					yi[c] += xj[c];
+			}
+		}
+	}
+
+	/**
+	 * Row <tt>i</tt> of the result is the sum of the rows of the right matrix selected by the row <tt>i</tt> of this matrix, so no
+	 * multiplication is performed. When the right matrix is also a {@link MatrixPattern}, each element of the result is the number of
+	 * coordinates shared by a row of this matrix and a column of the right one, which is counted with integers.
+	 * Other right matrices are first copied into a {@link MatrixCSR}.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		if(this.columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+
+		int secColumns = m1.columnSize();
+		int [] secPointers;
+		int [] secIndices;
+		float [] secValues = null;
+		if(m1 instanceof MatrixPattern){
+			secPointers = ((MatrixPattern) m1).rowPointers;
+			secIndices = ((MatrixPattern) m1).columnIndices;
+		}
+		else{
+			MatrixCSR sec = m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1);
+			secPointers = sec.rowPointers;
+			secIndices = sec.columnIndices;
+			secValues = sec.values;
+		}
+
+		int [] counts = secValues == null ? new int[secColumns] : null;
+		float [] accumulator = secValues == null ? null : new float[secColumns];
+		int [] marker = new int[secColumns];
+		Arrays.fill(marker, -1);
+		int [] touched = new int[secColumns];
+
+		int [] resPointers = new int[rows+1];
+		int [] resColumns = new int[Math.max(16, rowPointers[rows])];
+		float [] resValues = new float[resColumns.length];
+		int nnz = 0;
+
+		for(int i=0;i<rows;i++){
+			int n = 0;
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++){
+				int k = columnIndices[p];
+				if(counts != null)
+					for(int q=secPointers[k];q<secPointers[k+1];q++){
+						int j = secIndices[q];
+						if(marker[j]!=i){
+							marker[j] = i;
+							counts[j] = 0;
+							touched[n++] = j;
+						}
+						counts[j]++;
+					}
+				else
+					for(int q=secPointers[k];q<secPointers[k+1];q++){
+						int j = secIndices[q];
+						if(marker[j]!=i){
+							marker[j] = i;
+							accumulator[j] = 0;
+							touched[n++] = j;
+						}
+						accumulator[j] += secValues[q];
+					}
+			}
+			Arrays.sort(touched, 0, n);
+			if(nnz+n > resColumns.length){
+				int capacity = Math.max(nnz+n, resColumns.length + (resColumns.length >> 1));
+				resColumns = Arrays.copyOf(resColumns, capacity);
+				resValues = Arrays.copyOf(resValues, capacity);
+			}
+			for(int t=0;t<n;t++){
+				int j = touched[t];
+				float v = counts != null ? counts[j] : accumulator[j];
+				if(v!=0){
+					resColumns[nnz] = j;
+					resValues[nnz] = v;
+					nnz++;
+				}
+			}
+			resPointers[i+1] = nnz;
+		}
+		MatrixCSR res = new MatrixCSR(rows, secColumns, resPointers, Arrays.copyOf(resColumns, nnz), Arrays.copyOf(resValues, nnz));
+		return FactoryMatrixHolder.getFactory().createMatrix(res);
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(rowPointers[i+1]>rowPointers[i])
+				aux.add(i);
+		return aux;
+	}
+
+	@Override
+	public Collection<Integer> getColumns(final int row) {
+		final int [] indices = columnIndices;
+		final int start = rowPointers[row];
+		final int end = rowPointers[row+1];
+		return new AbstractList<Integer>() {
+
+			@Override
+			public Integer get(int index) {
+				return indices[start+index];
+			}
+
+			@Override
+			public int size() {
+				return end-start;
+			}
+		};
+	}
+
+	@Override
+	public void updateSparsity() {
+		nonZeros = rowPointers[rows];
+	}
+
+	@Override
+	public List<Integer> getSortedRows() {
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+
+		Collections.sort(aux, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Float.compare(MatrixPattern.this.getSparcityRow(o1), MatrixPattern.this.getSparcityRow(o2));
+			}
+		});
+		return aux;
+	}
+
+	/**
+	 * The rows of the sub-matrix keep their original coordinates, hence the sub-matrix has <tt>endRow</tt> rows, of which only
+	 * the ones between startRow and endRow are non-zero.
+	 */
+	@Override
+	public Matrix getSubmatrix(int startRow, int endRow) {
+		int start = rowPointers[startRow];
+		int end = rowPointers[endRow];
+		int [] subPointers = new int[endRow+1];
+		for(int i=startRow;i<=endRow;i++)
+			subPointers[i] = rowPointers[i]-start;
+		return new MatrixPattern(endRow, columns, subPointers, Arrays.copyOfRange(columnIndices, start, end));
+	}
+
+	@Override
+	public synchronized void setRow(int i, Matrix matrix) {
+		Collection<Integer> col = matrix.getColumns(i);
+		int [] newColumns = new int[col.size()];
+		int n = 0;
+		for(int j:col){
+			float v = matrix.getValue(i, j);
+			if(v!=0.0f && v!=1.0f)
+				throw new IllegalArgumentException("A pattern matrix can only hold zeros and ones.");
+			if(v!=0.0f)
+				newColumns[n++] = j;
+		}
+		Arrays.sort(newColumns, 0, n);
+
+		int nnz = rowPointers[rows];
+		int start = rowPointers[i];
+		int end = rowPointers[i+1];
+		int shift = n - (end-start);
+		if(nnz+shift > columnIndices.length)
+			columnIndices = Arrays.copyOf(columnIndices, nnz+shift);
+		System.arraycopy(columnIndices, end, columnIndices, end+shift, nnz-end);
+		System.arraycopy(newColumns, 0, columnIndices, start, n);
+		for(int r=i+1;r<=rows;r++)
+			rowPointers[r] += shift;
+		nonZeros = rowPointers[rows];
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		for(int i=0;i<rows;i++)
+			for(int p=rowPointers[i];p<rowPointers[i+1];p++)
+				if(columnIndices[p]!=i)
+					return false;
+		return true;
+	}
+
+	/**
+	 * The inverse of 1 is 1, so the matrix does not change.
+	 */
+	@Override
+	public void invertDiagonal() {
+
+	}
+
+	@Override
+	public boolean isSingular() {
+		int index = Math.min(rows,columns);
+		for(int i=0;i<index;i++)
+			if(find(i, i)<0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Replaces the content of this Matrix by the content of another one, e.g. the solution of a system computed by the decompositions.
+	 * As in {@link #setValue(int, int, float)}, the solution can only be stored when all its values are zeros or ones.
+	 * @param m Matrix from which to copy the values
+	 * @throws IllegalArgumentException when the Matrix holds a value other than 0 or 1
+	 */
+	@Override
+	protected void copyFrom(Matrix m){
+		int n = 0;
+		for(int i:m.getRows())
+			for(int j:m.getColumns(i)){
+				float v = m.getValue(i, j);
+				if(v!=0.0f && v!=1.0f)
+					throw new IllegalArgumentException("A pattern matrix can only hold zeros and ones.");
+				if(v!=0.0f)
+					n++;
+			}
+		int [] ri = new int[n];
+		int [] ci = new int[n];
+		n = 0;
+		for(int i:m.getRows())
+			for(int j:m.getColumns(i))
+				if(m.getValue(i, j)!=0.0f){
+					ri[n] = i;
+					ci[n++] = j;
+				}
+		MatrixPattern pattern = fromCoordinates(m.rowSize(), m.columnSize(), ri, ci, n);
+		rows = pattern.rows;
+		columns = pattern.columns;
+		rowPointers = pattern.rowPointers;
+		columnIndices = pattern.columnIndices;
+		nonZeros = pattern.nonZeros;
+	}
+
+}
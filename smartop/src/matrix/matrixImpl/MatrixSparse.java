@@ -304,7 +304,7 @@ public class MatrixSparse extends Matrix {
 	@Override
 	public void findFastSolution(Matrix cholesky) {
 		
-		Matrix inverse = new MatrixComputationFD().solve(cholesky, FactoryMatrixHolder.getFactory().createIdentity(cholesky.rowSize()));
+		Matrix inverse = new MatrixComputationFD().solveByCholesky(cholesky, FactoryMatrixHolder.getFactory().createIdentity(cholesky.rowSize()));
 		for(int i=0;i<inverse.rowSize();i++)
 			for(int j=0;j<inverse.columnSize();j++){
 				elements.put(new Terna(i,j,columns), inverse.getValue(i,j));
@@ -16,6 +16,7 @@
 package matrix.matrixImpl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -65,6 +66,22 @@ public class MatrixSparseHash extends Matrix{
 		elements=new HashMap<Integer,Map<Integer,Float>>(0);
 		columnsIndex = new HashSet<Integer>();
 		nonZeros = toCopy.getNonZeros();
+		if(toCopy instanceof MatrixCSR){ //the rows are read directly from the arrays
+			MatrixCSR csr = (MatrixCSR) toCopy;
+			int [] pointers = csr.getRowPointers();
+			int [] columnIndices = csr.getColumnIndices();
+			float [] values = csr.getValues();
+			for(int i=0;i<this.rows;i++)
+				if(pointers[i]<pointers[i+1]){
+					Map<Integer,Float> newColumn = new HashMap<Integer,Float>((int) ((pointers[i+1]-pointers[i])/0.75f)+1);
+					for(int p=pointers[i];p<pointers[i+1];p++){
+						newColumn.put(columnIndices[p], values[p]);
+						columnsIndex.add(columnIndices[p]);
+					}
+					elements.put(i, newColumn);
+				}
+			return;
+		}
 		Collection<Integer> rows = toCopy.getRows();
 		for(Integer i:rows){
 			Collection<Integer> col = toCopy.getColumns(i);
@@ -164,22 +181,60 @@ public class MatrixSparseHash extends Matrix{
 		return res;
 	}
 
-	public Matrix fastMult(Matrix sec){
-		if(this.columns!=sec.rows) 
+	/**
+	 * Only the stored rows are traversed, the remaining elements of the result are zero.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
 			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		for(Map.Entry<Integer, Map<Integer, Float>> row:elements.entrySet()){
+			float sum = 0;
+			for(Map.Entry<Integer, Float> e:row.getValue().entrySet())
+				sum += e.getValue()*x[e.getKey()];
+			y[row.getKey()] = sum;
+		}
+	}
 
-		Matrix res=new MatrixSparseHash(rows, sec.columnSize());
-		for(int i:elements.keySet()){
-			Map<Integer,Float> col=elements.get(i);
-			for(int j=0;j<sec.columnSize();j++){
-				float aux=0;
-				for(int k:col.keySet())
-					aux+=col.get(k)*sec.getValue(k, j);
-				if(aux!=0) 
-					res.setValue(i, j, aux);
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		for(Map.Entry<Integer, Map<Integer, Float>> row:elements.entrySet()){
+			float [] yi = y[row.getKey()];
+			for(Map.Entry<Integer, Float> e:row.getValue().entrySet()){
+				float v = e.getValue();
+				float [] xj = x[e.getKey()];
+				for(int c=0;c<width;c++)
+					yi[c] += v*xj[c];
 			}
 		}
-		return res;
+	}
+
+	/**
+	 * The multiplication follows Gustavson's algorithm in two passes, as in {@link MatrixSparseTrove#fastMult(Matrix)}.
+	 * The result is copied in a single pass into a new {@link MatrixSparseHash}.
+	 */
+	public Matrix fastMult(Matrix m1){
+		if(this.columns!=m1.rows) 
+			throw new ArrayIndexOutOfBoundsException();
+
+		MatrixCSR sec = m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1);
+		return new MatrixSparseHash(MatrixCSR.multiply(new MatrixCSR(this), sec));
+	}
+
+	/**
+	 * Adds the rows of sec selected by a row of a Matrix to the accumulator, which is first told the number of products of the row.
+	 */
+	static void scatter(Map<Integer, Float> row, MatrixCSR sec, SparseAccumulator accumulator){
+		long flops = 0;
+		for(int k:row.keySet())
+			flops += sec.rowPointers[k+1]-sec.rowPointers[k];
+		accumulator.reserve(flops);
+		for(Map.Entry<Integer, Float> e:row.entrySet())
+			accumulator.scatter(e.getValue(), sec, e.getKey());
 	}
 
 	public Matrix fastMult(float alfa) {
@@ -327,7 +382,10 @@ public class MatrixSparseHash extends Matrix{
 
 			int j = sortedColumnIndex.get(ij);
 
-			// Apply previous transformations.
+			// Apply previous transformations. The pivot is chosen while column j is updated, as only the stored rows can have a non-zero element in it.
+
+			int p = j; //j represents a column
+			float max = 0;
 
 			for (int ii=0;ii<sortedRowIndex.size();ii++) { //loop over rows
 
@@ -354,26 +412,19 @@ public class MatrixSparseHash extends Matrix{
 					auxF = 0f;
 				float aux = auxF - s;
 				rowI.put(j,aux);
+				if(i==j)
+					max = Math.abs(aux);
+				else
+					if(i>j && Math.abs(aux)>max){
+						max = Math.abs(aux);
+						p = i;
+					}
 
 			}
 
 			// Find pivot and exchange if necessary.
 
-			int p = j; //j represents a column
 			Map<Integer,Float> rowP = elements.get(p);
-			for (int i = j+1; i < rows; i++) { //TODO
-				if(rowP!=null){
-					if (Math.abs(elements.get(i).get(j)) > Math.abs(rowP.get(j))) {	
-						p = i;
-						rowP = elements.get(p);
-					}
-				}
-				else{
-					p = i;
-					rowP = elements.get(p);
-				}
-
-			}
 			if (p != j) {
 
 				if(rowP!=null){ //just in case
@@ -16,6 +16,7 @@
 package matrix.matrixImpl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -65,19 +66,80 @@ public class MatrixSparseHashPar extends MatrixSparseHash{
 		super.setValue(i,j,v);
 	}
 
-	public Matrix fastMult(final Matrix sec){
+	/**
+	 * The stored rows are split among threads for large matrices, as each element of the result depends only on one row.
+	 */
+	@Override
+	public void fastMult(final float [] x, final float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		final List<Integer> keys = new ArrayList<Integer>(elements.keySet());
+		MatrixFloat.parallelRows(keys.size(), nonZeros, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int t=from;t<to;t++){
+					int i = keys.get(t);
+					float sum = 0;
+					for(Map.Entry<Integer, Float> e:elements.get(i).entrySet())
+						sum += e.getValue()*x[e.getKey()];
+					y[i] = sum;
+				}
+			}
+		});
+	}
+
+	@Override
+	public void fastMult(final float [][] x, final float [][] y){
+		final int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		final List<Integer> keys = new ArrayList<Integer>(elements.keySet());
+		MatrixFloat.parallelRows(keys.size(), nonZeros*width, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int t=from;t<to;t++){
+					int i = keys.get(t);
+					float [] yi = y[i];
+					for(Map.Entry<Integer, Float> e:elements.get(i).entrySet()){
+						float v = e.getValue();
+						float [] xj = x[e.getKey()];
+						for(int c=0;c<width;c++)
+							yi[c] += v*xj[c];
+					}
+				}
+			}
+		});
+	}
 
-		if(this.columns!=sec.rows) 
+	/**
+	 * The multiplication follows Gustavson's algorithm, as in {@link MatrixSparseTrove#fastMult(Matrix)}. The rows of this Matrix
+	 * are split in groups, and each group is multiplied by a different thread with the {@link SparseAccumulator} kept by the thread.
+	 * The rows are gathered in arrays of their own, and written in the result once all threads finish, so that the threads do not compete
+	 * for the result.
+	 */
+	public Matrix fastMult(final Matrix m1){
+
+		if(this.columns!=m1.rows) 
 			throw new ArrayIndexOutOfBoundsException();
 
-		final Matrix res=FactoryMatrixHolder.getFactory().createMatrix(rows, sec.columnSize());
+		final MatrixCSR sec = m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1);
 
-		ExecutorService th=Executors.newFixedThreadPool(Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors());
+		int threads = Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors();
+		ExecutorService th=Executors.newFixedThreadPool(threads);
 
-		final Semaphore sema=new Semaphore(Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors()+1);
+		final Semaphore sema=new Semaphore(threads+1);
 
-		for(int i:elements.keySet()){
-			final int i1=i;
+		final List<Integer> keys = new ArrayList<Integer>(elements.keySet());
+		final int [][] resColumns = new int[keys.size()][];
+		final float [][] resValues = new float[keys.size()][];
+		final int [] lengths = new int[keys.size()];
+		int group = Math.max(1, keys.size() / (4*threads));
+		for(int start = 0; start < keys.size(); start+=group){
+			final int from = start;
+			final int to = Math.min(keys.size(), start+group);
 			try {
 				sema.acquire();
 			} catch (InterruptedException e) {
@@ -88,12 +150,12 @@ public class MatrixSparseHashPar extends MatrixSparseHash{
 				@Override
 				public void run() {
 
-					Map<Integer,Float> col=elements.get(i1);
-					for(int j=0;j<sec.columnSize();j++){
-						float aux=0;
-						for(int k:col.keySet())
-							aux+=col.get(k)*sec.getValue(k, j);
-						res.setValue(i1, j, aux);
+					SparseAccumulator accumulator = SparseAccumulator.forThread(sec.columnSize());
+					for(int t=from;t<to;t++){
+						scatter(elements.get(keys.get(t)), sec, accumulator);
+						resColumns[t] = new int[accumulator.size()];
+						resValues[t] = new float[resColumns[t].length];
+						lengths[t] = accumulator.gather(resColumns[t], resValues[t], 0);
 					}
 					sema.release();
 				}
@@ -103,12 +165,17 @@ public class MatrixSparseHashPar extends MatrixSparseHash{
 		}
 
 		try {
-			sema.acquire(Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors()+1);
+			sema.acquire(threads+1);
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
 		th.shutdown();
 
+		Matrix res=FactoryMatrixHolder.getFactory().createMatrix(rows, sec.columnSize());
+		for(int t=0;t<lengths.length;t++)
+			for(int q=0;q<lengths[t];q++)
+				res.setValue(keys.get(t), resColumns[t][q], resValues[t][q]);
+
 		return res;
 	}
 
@@ -177,7 +244,10 @@ public class MatrixSparseHashPar extends MatrixSparseHash{
 
 			final int j = sortedColumnIndex.get(ij);
 
-			// Apply previous transformations.
+			// Apply previous transformations. The pivot is chosen while column j is updated, as only the stored rows can have a non-zero element in it.
+
+			int p = j; //j represents a column
+			float max = 0;
 
 			for (int ii=0;ii<sortedRowIndex.size();ii++) { //loop over rows
 
@@ -219,26 +289,19 @@ public class MatrixSparseHashPar extends MatrixSparseHash{
 					auxF = 0f;
 				float aux = auxF - s;
 				rowI.put(j,aux);
+				if(i==j)
+					max = Math.abs(aux);
+				else
+					if(i>j && Math.abs(aux)>max){
+						max = Math.abs(aux);
+						p = i;
+					}
 
 			}
 
 			// Find pivot and exchange if necessary.
 
-			int p = j; //j represents a column
 			Map<Integer,Float> rowP = elements.get(p);
-			for (int i = j+1; i < rows; i++) { //TODO
-				if(rowP!=null){
-					if (Math.abs(elements.get(i).get(j)) > Math.abs(rowP.get(j))) {	
-						p = i;
-						rowP = elements.get(p);
-					}
-				}
-				else{
-					p = i;
-					rowP = elements.get(p);
-				}
-
-			}
 			if (p != j) {
 
 				if(rowP!=null){ //just in case
@@ -17,6 +17,7 @@ package matrix.matrixImpl;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -30,6 +31,7 @@ import gnu.trove.iterator.TIntFloatIterator;
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.hash.TIntFloatHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.procedure.TIntFloatProcedure;
 import gnu.trove.set.hash.TIntHashSet;
 
 import matrix.adapterDistribution.Configuration;
@@ -73,6 +75,22 @@ public class MatrixSparseTrove extends Matrix{
 		elements=new TIntObjectHashMap<TIntFloatHashMap>(0);
 		nonZeros = toCopy.getNonZeros();
 		columnIndex = new TIntHashSet();
+		if(toCopy instanceof MatrixCSR){ //the rows are read directly from the arrays
+			MatrixCSR csr = (MatrixCSR) toCopy;
+			int [] pointers = csr.getRowPointers();
+			int [] columnIndices = csr.getColumnIndices();
+			float [] values = csr.getValues();
+			for(int i=0;i<this.rows;i++)
+				if(pointers[i]<pointers[i+1]){
+					TIntFloatHashMap newColumn = new TIntFloatHashMap(pointers[i+1]-pointers[i]);
+					for(int p=pointers[i];p<pointers[i+1];p++){
+						newColumn.put(columnIndices[p], values[p]);
+						columnIndex.add(columnIndices[p]);
+					}
+					elements.put(i, newColumn);
+				}
+			return;
+		}
 		Collection<Integer> rows = toCopy.getRows();
 		for(Integer i:rows){
 			Collection<Integer> col = toCopy.getColumns(i);
@@ -229,29 +247,103 @@ public class MatrixSparseTrove extends Matrix{
 		return res;
 	}
 
-	public Matrix fastMult(Matrix sec){
-		if(this.columns!=sec.rows) throw new ArrayIndexOutOfBoundsException();
-		Matrix res=FactoryMatrixHolder.getFactory().createMatrix(rows, sec.columnSize());
-		
+	/**
+	 * Only the stored rows are traversed, the remaining elements of the result are zero.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
 		TIntObjectIterator<TIntFloatHashMap> iterator = elements.iterator();
 		 for ( int i = elements.size(); i-- > 0; ) {
 		   iterator.advance();
 		   TIntFloatHashMap col=iterator.value();
-		   
-		   for(int j=0;j<sec.columnSize();j++){
-			   float aux=0;
-			   TIntFloatIterator col_it=col.iterator();
-			   for( int k = col.size() ; k-- > 0; ){
-				   col_it.advance();
-				   aux+=col_it.value()*sec.getValue(col_it.key(), j);
-			   }
-			   if(aux!=0)
-				   res.setValue(iterator.key(), j, aux);
+		   TIntFloatIterator col_it=col.iterator();
+		   float sum = 0;
+		   for( int k = col.size() ; k-- > 0; ){
+			   col_it.advance();
+			   sum += col_it.value()*x[col_it.key()];
 		   }
-		   			   
+		   y[iterator.key()] = sum;
 		 }
-		
-		return res;
+	}
+
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		TIntObjectIterator<TIntFloatHashMap> iterator = elements.iterator();
+		 for ( int i = elements.size(); i-- > 0; ) {
+		   iterator.advance();
+		   TIntFloatHashMap col=iterator.value();
+		   TIntFloatIterator col_it=col.iterator();
+		   float [] yi = y[iterator.key()];
+		   for( int k = col.size() ; k-- > 0; ){
+			   col_it.advance();
+			   float v = col_it.value();
+			   float [] xj = x[col_it.key()];
+			   for(int c=0;c<width;c++)
+				   yi[c] += v*xj[c];
+		   }
+		 }
+	}
+
+	/**
+	 * The multiplication follows Gustavson's algorithm: each row of the result is accumulated in a {@link SparseAccumulator}
+	 * by adding the rows of <tt>m1</tt> selected by the non-zero elements of the corresponding row of this Matrix.
+	 * Both matrices are read as {@link MatrixCSR}, so that their rows can be traversed without hash lookups, and the product is computed
+	 * in two passes, see {@link MatrixCSR#multiply(MatrixCSR, MatrixCSR)}: the rows of the result are preallocated instead of growing through
+	 * {@link #setValue(int, int, float)}, and the result is created by the factory with each row map sized once.
+	 */
+	public Matrix fastMult(Matrix m1){
+		if(this.columns!=m1.rows) throw new ArrayIndexOutOfBoundsException();
+		MatrixCSR sec = m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1);
+		return FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.multiply(new MatrixCSR(this), sec));
+	}
+
+	/**
+	 * Adds the rows of a {@link MatrixCSR} selected by a row of a Matrix to the {@link SparseAccumulator} of the current thread,
+	 * which is first told the number of products of the row. The row is traversed with a procedure, so no iterator is allocated per row.
+	 */
+	static class RowScatter implements TIntFloatProcedure {
+
+		final MatrixCSR sec;
+		final SparseAccumulator accumulator;
+		private long flops;
+		private boolean counting;
+
+		/**
+		 * Must be created by the thread that uses it.
+		 * @param sec right Matrix of the multiplication
+		 */
+		RowScatter(MatrixCSR sec) {
+			this.sec = sec;
+			accumulator = SparseAccumulator.forThread(sec.columnSize());
+		}
+
+		/**
+		 * Accumulates the product of the row by the right Matrix.
+		 * @param row the non-zero elements of the row, by column
+		 */
+		void row(TIntFloatHashMap row){
+			flops = 0;
+			counting = true;
+			row.forEachEntry(this);
+			accumulator.reserve(flops);
+			counting = false;
+			row.forEachEntry(this);
+		}
+
+		@Override
+		public boolean execute(int k, float v) {
+			if(counting)
+				flops += sec.rowPointers[k+1]-sec.rowPointers[k];
+			else
+				accumulator.scatter(v, sec, k);
+			return true;
+		}
 	}
 
 	public Matrix fastMult(float alfa) {
@@ -371,7 +463,10 @@ public class MatrixSparseTrove extends Matrix{
 
 			int j = sortedColumnIndex.get(ij);
 
-			// Apply previous transformations.
+			// Apply previous transformations. The pivot is chosen while column j is updated, as only the stored rows can have a non-zero element in it.
+
+			int p = j; //j represents a column
+			float max = 0;
 
 			for (int ii=0;ii<sortedRowIndex.size();ii++) { //loop over rows
 
@@ -392,26 +487,19 @@ public class MatrixSparseTrove extends Matrix{
 
 				float aux = rowI.get(j) - s;
 				rowI.put(j,aux);
+				if(i==j)
+					max = Math.abs(aux);
+				else
+					if(i>j && Math.abs(aux)>max){
+						max = Math.abs(aux);
+						p = i;
+					}
 
 			}
 
 			// Find pivot and exchange if necessary.
 
-			int p = j; //j represents a column
 			TIntFloatHashMap rowP = elements.get(p);
-			for (int i = j+1; i < rows; i++) { //TODO
-				if(rowP!=null){
-					if (Math.abs(elements.get(i).get(j)) > Math.abs(rowP.get(j))) {	
-						p = i;
-						rowP = elements.get(p);
-					}
-				}
-				else{
-					p = i;
-					rowP = elements.get(p);
-				}
-
-			}
 			if (p != j) {
 
 				if(rowP!=null){ //just in case
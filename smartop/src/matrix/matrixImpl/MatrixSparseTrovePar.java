@@ -16,6 +16,7 @@
 package matrix.matrixImpl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -70,20 +71,84 @@ public class MatrixSparseTrovePar extends MatrixSparseTrove{
 		super.setValue(i,j,v);
 	}
 
-	public Matrix fastMult(final Matrix sec){
+	/**
+	 * The stored rows are split among threads for large matrices, as each element of the result depends only on one row.
+	 */
+	@Override
+	public void fastMult(final float [] x, final float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		final int [] keys = elements.keys();
+		MatrixFloat.parallelRows(keys.length, nonZeros, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int t=from;t<to;t++){
+					TIntFloatHashMap col=elements.get(keys[t]);
+					TIntFloatIterator col_it=col.iterator();
+					float sum = 0;
+					for( int k = col.size() ; k-- > 0; ){
+						col_it.advance();
+						sum += col_it.value()*x[col_it.key()];
+					}
+					y[keys[t]] = sum;
+				}
+			}
+		});
+	}
 
-		if(this.columns!=sec.rows) throw new ArrayIndexOutOfBoundsException();
+	@Override
+	public void fastMult(final float [][] x, final float [][] y){
+		final int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		final int [] keys = elements.keys();
+		MatrixFloat.parallelRows(keys.length, nonZeros*width, new MatrixFloat.RowKernel() {
+
+			@Override
+			public void run(int from, int to) {
+				for(int t=from;t<to;t++){
+					TIntFloatHashMap col=elements.get(keys[t]);
+					TIntFloatIterator col_it=col.iterator();
+					float [] yi = y[keys[t]];
+					for( int k = col.size() ; k-- > 0; ){
+						col_it.advance();
+						float v = col_it.value();
+						float [] xj = x[col_it.key()];
+						for(int c=0;c<width;c++)
+							yi[c] += v*xj[c];
+					}
+				}
+			}
+		});
+	}
 
-		final Matrix res=FactoryMatrixHolder.getFactory().createMatrix(rows, sec.columnSize());
+	/**
+	 * The multiplication follows Gustavson's algorithm, as in {@link MatrixSparseTrove#fastMult(Matrix)}. The rows of this Matrix
+	 * are split in groups, and each group is multiplied by a different thread with the {@link SparseAccumulator} kept by the thread.
+	 * The rows are gathered in arrays of their own, and written in the result once all threads finish, so that the threads do not compete
+	 * for the result.
+	 */
+	public Matrix fastMult(final Matrix m1){
 
-		ExecutorService th=Executors.newFixedThreadPool(Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors());
+		if(this.columns!=m1.rows) throw new ArrayIndexOutOfBoundsException();
 
-		final Semaphore sema=new Semaphore(Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors()+1);
+		final MatrixCSR sec = m1 instanceof MatrixCSR ? (MatrixCSR) m1 : new MatrixCSR(m1);
 
-		TIntObjectIterator<TIntFloatHashMap> iterator = elements.iterator();
-		for ( int i = elements.size(); i-- > 0; ){
-			iterator.advance();
-			final int i1=iterator.key();
+		int threads = Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors();
+		ExecutorService th=Executors.newFixedThreadPool(threads);
+
+		final Semaphore sema=new Semaphore(threads+1);
+
+		final int [] keys = elements.keys();
+		final int [][] resColumns = new int[keys.length][];
+		final float [][] resValues = new float[keys.length][];
+		final int [] lengths = new int[keys.length];
+		int group = Math.max(1, keys.length / (4*threads));
+		for (int start = 0; start < keys.length; start+=group){
+			final int from = start;
+			final int to = Math.min(keys.length, start+group);
 
 			try {
 				sema.acquire();
@@ -95,17 +160,12 @@ public class MatrixSparseTrovePar extends MatrixSparseTrove{
 				@Override
 				public void run() {
 
-					TIntFloatHashMap col=elements.get(i1);
-
-					for(int j=0;j<sec.columnSize();j++){
-						TIntFloatIterator iterator_col_k=col.iterator();
-						float aux=0;
-						for( int k = col.size() ; k-- > 0; ){
-							iterator_col_k.advance();
-							aux+=iterator_col_k.value()*sec.getValue(iterator_col_k.key(), j);
-						}
-
-						res.setValue(i1, j, aux);
+					RowScatter scatter = new RowScatter(sec);
+					for(int t=from;t<to;t++){
+						scatter.row(elements.get(keys[t]));
+						resColumns[t] = new int[scatter.accumulator.size()];
+						resValues[t] = new float[resColumns[t].length];
+						lengths[t] = scatter.accumulator.gather(resColumns[t], resValues[t], 0);
 					}
 
 					sema.release();
@@ -116,12 +176,17 @@ public class MatrixSparseTrovePar extends MatrixSparseTrove{
 		}
 
 		try {
-			sema.acquire(Configuration.MAX_THREADS*Runtime.getRuntime().availableProcessors()+1);
+			sema.acquire(threads+1);
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
 		th.shutdown();
 
+		Matrix res=FactoryMatrixHolder.getFactory().createMatrix(rows, sec.columnSize());
+		for(int t=0;t<keys.length;t++)
+			for(int q=0;q<lengths[t];q++)
+				res.setValue(keys[t], resColumns[t][q], resValues[t][q]);
+
 		return res;
 	}
 
@@ -199,7 +264,10 @@ public class MatrixSparseTrovePar extends MatrixSparseTrove{
 
 			final int j = sortedColumnIndex.get(ij);
 
-			// Apply previous transformations.
+			// Apply previous transformations. The pivot is chosen while column j is updated, as only the stored rows can have a non-zero element in it.
+
+			int p = j; //j represents a column
+			float max = 0;
 
 			for (int ii=0;ii<sortedRowIndex.size();ii++) { //loop over rows
 
@@ -241,26 +309,19 @@ public class MatrixSparseTrovePar extends MatrixSparseTrove{
 					auxF = 0f;
 				float aux = auxF - s;
 				rowI.put(j,aux);
+				if(i==j)
+					max = Math.abs(aux);
+				else
+					if(i>j && Math.abs(aux)>max){
+						max = Math.abs(aux);
+						p = i;
+					}
 
 			}
 
 			// Exchange pivot if necessary
 
-			int p = j; //j represents a column
 			TIntFloatHashMap rowP = elements.get(p);
-			for (int i = j+1; i < rows; i++) { //TODO
-				if(rowP!=null){
-					if (Math.abs(elements.get(i).get(j)) > Math.abs(rowP.get(j))) {	
-						p = i;
-						rowP = elements.get(p);
-					}
-				}
-				else{
-					p = i;
-					rowP = elements.get(p);
-				}
-
-			}
 			if (p != j) {
 
 				if(rowP!=null){ //just in case
@@ -0,0 +1,647 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import matrix.adapterDistribution.Configuration;
+import matrix.factory.FactoryMatrixHolder;
+
+/**
+ * Provides implementation of a symmetric square matrix that only stores its upper triangle, i.e. the elements <tt>(i,j)</tt> with <tt>i&lt;=j</tt>.
+ * Getting or setting the element <tt>(i,j)</tt> gets or sets the element <tt>(j,i)</tt> as well.
+ * <br>
+ * The upper triangle is kept in a matrix created by the factory in {@link FactoryMatrixHolder}, in the same way that {@link MatrixThreshold}
+ * keeps its elements in another matrix. The non-zero elements below the diagonal of a row are found in an index of the upper triangle by columns,
+ * which is built when first needed and discarded when the matrix is modified.
+ * <br>
+ * Symmetric matrices are the result of multiplying a matrix by its transpose, see {@link #multiplyByTranspose(Matrix)} and {@link #transposeMultiply(Matrix)}, and of the Laplacian of a
+ * symmetric matrix, see {@link #fastLaplacian()}, both of which only compute the upper triangle.
+ * @author Antonela Tommasel
+ * */
+public class MatrixSymmetric extends Matrix {
+
+	private static final long serialVersionUID = 6931185527418850418L;
+
+	/**
+	 * Upper triangle of the matrix, including the diagonal.
+	 */
+	Matrix upper;
+
+	/**
+	 * Row coordinates of the non-zero elements of the upper triangle in each column, in CSC format.
+	 * They are the columns below the diagonal of each row.
+	 */
+	private transient int [] lowerPointers;
+	private transient int [] lowerIndices;
+
+	/**
+	 * Class constructor
+	 * @param n number of rows and columns of the matrix to create.
+	 */
+	public MatrixSymmetric(int n) {
+		super(n, n);
+		upper = FactoryMatrixHolder.getFactory().createMatrix(n, n);
+	}
+
+	/**
+	 * Creates a Matrix by copying the values of the upper triangle of the other Matrix. The lower triangle is not checked.
+	 * @param toCopy square Matrix to copy the values in the new Matrix
+	 */
+	public MatrixSymmetric(Matrix toCopy){
+		super(toCopy.rowSize(),toCopy.columnSize());
+		if(!toCopy.isSquare())
+			throw new IllegalArgumentException("Matrix must be square.");
+		if(toCopy instanceof MatrixSymmetric)
+			upper = FactoryMatrixHolder.getFactory().createMatrix(((MatrixSymmetric) toCopy).upper);
+		else{
+			MatrixCSR csr = toCSR(toCopy);
+			int [] ri = new int[csr.rowPointers[rows]];
+			int [] ci = new int[ri.length];
+			float [] v = new float[ri.length];
+			int n = 0;
+			for(int i=0;i<rows;i++)
+				for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++)
+					if(csr.columnIndices[p]>=i){
+						ri[n] = i;
+						ci[n] = csr.columnIndices[p];
+						v[n] = csr.values[p];
+						n++;
+					}
+			upper = FactoryMatrixHolder.getFactory().createMatrix(rows, columns, Arrays.copyOf(ri, n), Arrays.copyOf(ci, n), Arrays.copyOf(v, n));
+		}
+		updateSparsity();
+	}
+
+	/**
+	 * Creates a Matrix over an already computed upper triangle, which is not copied.
+	 */
+	private MatrixSymmetric(Matrix upper, boolean wrap){
+		super(upper.rowSize(), upper.columnSize());
+		this.upper = upper;
+		updateSparsity();
+	}
+
+	/**
+	 * Computes <tt>m x m^t</tt>. Each element <tt>(i,j)</tt> of the result is the product of the rows <tt>i</tt> and <tt>j</tt> of <tt>m</tt>,
+	 * so only the products with <tt>i&lt;=j</tt> are computed. Row <tt>i</tt> of the result is accumulated by visiting, for each non-zero
+	 * element <tt>(i,k)</tt> of <tt>m</tt>, the elements of column <tt>k</tt> from row <tt>i</tt> onwards. The columns are found in an
+	 * index of the positions of the elements of <tt>m</tt>, so no transposed copy of the values is created. The rows of the result are
+	 * independent, so they are split among threads.
+	 * <br>
+	 * A {@link MatrixPattern} is multiplied without reading values. Other matrices are first copied into a {@link MatrixCSR}.
+	 * @param m the matrix to multiply by its transpose
+	 * @return the upper triangle of the product, as a symmetric matrix
+	 * @see #transposeMultiply(Matrix)
+	 */
+	public static MatrixSymmetric multiplyByTranspose(Matrix m){
+		final Gram gram = new Gram(m);
+		long flops = 0;
+		for(int k=0;k<gram.columns;k++){
+			long length = gram.columnPointers[k+1]-gram.columnPointers[k];
+			flops += length*(length+1)/2;
+		}
+		return gram.compute(gram.rows, flops, new GramRow() {
+
+			@Override
+			public void accumulate(int i, SparseAccumulator accumulator) {
+				for(int p=gram.pointers[i];p<gram.pointers[i+1];p++){
+					int k = gram.indices[p];
+					float a = gram.values == null ? 1 : gram.values[p];
+					//the elements of column k in the rows after i follow the position of (i,k) in the index
+					for(int q=gram.slots[p];q<gram.columnPointers[k+1];q++)
+						accumulator.add(gram.columnRows[q], gram.values == null ? a : a*gram.values[gram.columnPositions[q]]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Computes <tt>m^t x m</tt>, i.e. the sum of the outer products of each row of <tt>m</tt> with itself. Only the products with <tt>k&lt;=l</tt>
+	 * are computed: row <tt>k</tt> of the result is accumulated by visiting, for each row <tt>r</tt> of <tt>m</tt> with a non-zero element in column <tt>k</tt>,
+	 * the elements of row <tt>r</tt> from column <tt>k</tt> onwards. As in {@link #multiplyByTranspose(Matrix)}, the rows with an element in each column
+	 * are found in an index of positions, no transposed copy of <tt>m</tt> is created and the rows of the result are split among threads.
+	 * @param m the matrix whose transpose multiplies it
+	 * @return the upper triangle of the product, as a symmetric matrix
+	 */
+	public static MatrixSymmetric transposeMultiply(Matrix m){
+		final Gram gram = new Gram(m);
+		long flops = 0;
+		for(int r=0;r<gram.rows;r++){
+			long length = gram.pointers[r+1]-gram.pointers[r];
+			flops += length*(length+1)/2;
+		}
+		return gram.compute(gram.columns, flops, new GramRow() {
+
+			@Override
+			public void accumulate(int k, SparseAccumulator accumulator) {
+				for(int q=gram.columnPointers[k];q<gram.columnPointers[k+1];q++){
+					int r = gram.columnRows[q];
+					int start = gram.columnPositions[q];
+					float a = gram.values == null ? 1 : gram.values[start];
+					//the columns of each row are sorted, so the elements from column k onwards follow (r,k)
+					for(int p=start;p<gram.pointers[r+1];p++)
+						accumulator.add(gram.indices[p], gram.values == null ? a : a*gram.values[p]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Accumulates one row of the upper triangle of a product of a matrix by its transpose.
+	 */
+	private interface GramRow {
+		void accumulate(int i, SparseAccumulator accumulator);
+	}
+
+	/**
+	 * The elements of a matrix in CSR format, together with an index of them by columns. For each column, the index holds the rows of its
+	 * elements and their positions in the CSR arrays, and for each element, its position in the index.
+	 */
+	private static class Gram {
+
+		int rows;
+		int columns;
+		int [] pointers;
+		int [] indices;
+		float [] values;
+
+		int [] columnPointers;
+		int [] columnRows;
+		int [] columnPositions;
+		int [] slots;
+
+		Gram(Matrix m){
+			rows = m.rowSize();
+			columns = m.columnSize();
+			if(m instanceof MatrixPattern){
+				pointers = ((MatrixPattern) m).rowPointers;
+				indices = ((MatrixPattern) m).columnIndices;
+			}
+			else{
+				MatrixCSR csr = toCSR(m);
+				pointers = csr.rowPointers;
+				indices = csr.columnIndices;
+				values = csr.values;
+			}
+
+			int nnz = pointers[rows];
+			columnPointers = new int[columns+1];
+			for(int p=0;p<nnz;p++)
+				columnPointers[indices[p]+1]++;
+			for(int k=0;k<columns;k++)
+				columnPointers[k+1] += columnPointers[k];
+			int [] next = Arrays.copyOf(columnPointers, columns);
+			columnRows = new int[nnz];
+			columnPositions = new int[nnz];
+			slots = new int[nnz];
+			for(int i=0;i<rows;i++)
+				for(int p=pointers[i];p<pointers[i+1];p++){
+					int q = next[indices[p]]++;
+					columnRows[q] = i;
+					columnPositions[q] = p;
+					slots[p] = q;
+				}
+		}
+
+		/**
+		 * Computes the n rows of the upper triangle. Each thread collects the rows of its range in its own arrays, which are joined at the end.
+		 */
+		MatrixSymmetric compute(final int n, long flops, final GramRow kernel){
+			final int [] lengths = new int[n];
+			final int [][] partColumns = new int[n][];
+			final float [][] partValues = new float[n][];
+			MatrixFloat.parallelRows(n, flops, new MatrixFloat.RowKernel() {
+
+				@Override
+				public void run(int from, int to) {
+					SparseAccumulator accumulator = new SparseAccumulator(n);
+					int [] resColumns = new int[16];
+					float [] resValues = new float[16];
+					int size = 0;
+					for(int i=from;i<to;i++){
+						kernel.accumulate(i, accumulator);
+						if(size+accumulator.size() > resColumns.length){
+							int capacity = Math.max(size+accumulator.size(), resColumns.length + (resColumns.length >> 1));
+							resColumns = Arrays.copyOf(resColumns, capacity);
+							resValues = Arrays.copyOf(resValues, capacity);
+						}
+						lengths[i] = accumulator.gather(resColumns, resValues, size);
+						size += lengths[i];
+					}
+					partColumns[from] = resColumns;
+					partValues[from] = resValues;
+				}
+			});
+
+			int [] resPointers = new int[n+1];
+			for(int i=0;i<n;i++)
+				resPointers[i+1] = resPointers[i] + lengths[i];
+			int [] resColumns = new int[resPointers[n]];
+			float [] resValues = new float[resPointers[n]];
+			int start = 0;
+			for(int i=0;i<=n;i++)
+				if(i==n || partColumns[i]!=null){ //the part of the previous range ends here
+					if(i>0){
+						System.arraycopy(partColumns[start], 0, resColumns, resPointers[start], resPointers[i]-resPointers[start]);
+						System.arraycopy(partValues[start], 0, resValues, resPointers[start], resPointers[i]-resPointers[start]);
+					}
+					start = i;
+				}
+			MatrixCSR res = new MatrixCSR(n, n, resPointers, resColumns, resValues);
+			return new MatrixSymmetric(FactoryMatrixHolder.getFactory().createMatrix(res), true);
+		}
+	}
+
+	/**
+	 * Computes the Laplacian <tt>D - A</tt> of this matrix, where <tt>D</tt> is the diagonal matrix of the sums of the columns.
+	 * The sums of the columns are the sums of the rows, and are computed in a single pass over the upper triangle. The result is also symmetric.
+	 * @return the Laplacian of the matrix
+	 */
+	public MatrixSymmetric fastLaplacian(){
+		MatrixCSR csr = upperCSR();
+		int nnz = csr.rowPointers[rows];
+		int [] ri = new int[nnz+rows];
+		int [] ci = new int[nnz+rows];
+		float [] v = new float[nnz+rows];
+		int n = 0;
+		for(int i=0;i<rows;i++){
+			ri[nnz+i] = i;
+			ci[nnz+i] = i;
+		}
+		for(int i=0;i<rows;i++)
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				int j = csr.columnIndices[p];
+				v[nnz+i] += csr.values[p];
+				if(j!=i)
+					v[nnz+j] += csr.values[p];
+				ri[n] = i;
+				ci[n] = j;
+				v[n] = -csr.values[p];
+				n++;
+			}
+		//the factory sums the degree and the negated element of the diagonal
+		return new MatrixSymmetric(FactoryMatrixHolder.getFactory().createMatrix(rows, columns, ri, ci, v), true);
+	}
+
+	/**
+	 * @return the upper triangle of the matrix, including the diagonal. The matrix is not copied.
+	 */
+	public Matrix getUpper() {
+		return upper;
+	}
+
+	/**
+	 * @return a copy of the matrix holding both triangles, created by the factory in {@link FactoryMatrixHolder}.
+	 */
+	public Matrix toFull() {
+		MatrixCSR csr = upperCSR();
+		int nnz = csr.rowPointers[rows];
+		int [] ri = new int[2*nnz];
+		int [] ci = new int[2*nnz];
+		float [] v = new float[2*nnz];
+		int n = 0;
+		for(int i=0;i<rows;i++)
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				int j = csr.columnIndices[p];
+				ri[n] = i;
+				ci[n] = j;
+				v[n++] = csr.values[p];
+				if(j!=i){
+					ri[n] = j;
+					ci[n] = i;
+					v[n++] = csr.values[p];
+				}
+			}
+		return FactoryMatrixHolder.getFactory().createMatrix(rows, columns, Arrays.copyOf(ri, n), Arrays.copyOf(ci, n), Arrays.copyOf(v, n));
+	}
+
+	private static MatrixCSR toCSR(Matrix m){
+		return m instanceof MatrixCSR ? (MatrixCSR) m : new MatrixCSR(m);
+	}
+
+	/**
+	 * @return the non-zero elements of the upper triangle in CSR format. Dense representations also list the zeros and the lower triangle, which are dropped.
+	 */
+	private MatrixCSR upperCSR(){
+		if(upper instanceof MatrixCSR)
+			return (MatrixCSR) upper;
+		MatrixCSR csr = new MatrixCSR(upper);
+		int nnz = 0;
+		for(int i=0;i<rows;i++){
+			int start = csr.rowPointers[i];
+			csr.rowPointers[i] = nnz;
+			for(int p=start;p<csr.rowPointers[i+1];p++)
+				if(csr.columnIndices[p]>=i && csr.values[p]!=0){
+					csr.columnIndices[nnz] = csr.columnIndices[p];
+					csr.values[nnz] = csr.values[p];
+					nnz++;
+				}
+		}
+		csr.rowPointers[rows] = nnz;
+		return csr;
+	}
+
+	/**
+	 * Builds the index of the upper triangle by columns.
+	 */
+	private synchronized void buildLowerIndex(){
+		if(lowerPointers!=null)
+			return;
+		MatrixCSR csr = upperCSR();
+		int nnz = csr.rowPointers[rows];
+		int [] pointers = new int[rows+1];
+		for(int p=0;p<nnz;p++)
+			pointers[csr.columnIndices[p]+1]++;
+		for(int j=0;j<rows;j++)
+			pointers[j+1] += pointers[j];
+		int [] next = Arrays.copyOf(pointers, rows);
+		int [] indices = new int[nnz];
+		for(int i=0;i<rows;i++)
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++)
+				indices[next[csr.columnIndices[p]]++] = i;
+		lowerIndices = indices;
+		lowerPointers = pointers;
+	}
+
+	/**
+	 * Sets both <tt>(i,j)</tt> and <tt>(j,i)</tt>.
+	 */
+	@Override
+	public synchronized void setValue(int i, int j, float v) {
+		if(i>j){
+			int aux = i;
+			i = j;
+			j = aux;
+		}
+		float old = upper.getValue(i, j);
+		upper.setValue(i, j, v);
+		if(old==0 && v!=0)
+			nonZeros += i==j ? 1 : 2;
+		else
+			if(old!=0 && v==0)
+				nonZeros -= i==j ? 1 : 2;
+		if(old==0 || v==0)
+			lowerPointers = null;
+	}
+
+	@Override
+	public float getValue(int i, int j) {
+		return i<=j ? upper.getValue(i, j) : upper.getValue(j, i);
+	}
+
+	@Override
+	public float[][] getMatrix() {
+		float [][] aux = upper.getMatrix();
+		for(int i=0;i<rows;i++)
+			for(int j=i+1;j<columns;j++)
+				aux[j][i] = aux[i][j];
+		return aux;
+	}
+
+	/**
+	 * Only the upper triangle of the values is read.
+	 */
+	@Override
+	public void setValues(float[][] m) {
+		float [][] aux = new float[rows][columns];
+		for(int i=0;i<m.length && i<rows;i++)
+			for(int j=i;j<m[i].length;j++)
+				aux[i][j] = m[i][j];
+		upper.setValues(aux);
+		lowerPointers = null;
+		updateSparsity();
+	}
+
+	@Override
+	public float getNonZerosRow(int i) {
+		return getColumns(i).size();
+	}
+
+	@Override
+	public Matrix fastMult(float alfa) {
+		return new MatrixSymmetric(upper.fastMult(alfa), true);
+	}
+
+	/**
+	 * The transpose of a symmetric matrix is a copy of the matrix.
+	 */
+	@Override
+	public Matrix fastTrans() {
+		return new MatrixSymmetric(this);
+	}
+
+	/**
+	 * Only the upper triangle is read: each stored element <tt>(i,j)</tt> contributes to the element <tt>i</tt> of the result and,
+	 * outside the diagonal, also to the element <tt>j</tt>, so the lower triangle is never built.
+	 */
+	@Override
+	public void fastMult(float [] x, float [] y){
+		if(x.length!=columns || y.length!=rows)
+			throw new ArrayIndexOutOfBoundsException();
+		Arrays.fill(y, 0);
+		MatrixCSR csr = upperCSR();
+		for(int i=0;i<rows;i++){
+			float xi = x[i];
+			float sum = 0;
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				int j = csr.columnIndices[p];
+				float v = csr.values[p];
+				sum += v*x[j];
+				if(j!=i)
+					y[j] += v*xi;
+			}
+			y[i] += sum;
+		}
+	}
+
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		int width = checkPanels(x, y);
+		for(float [] yi : y)
+			Arrays.fill(yi, 0);
+		MatrixCSR csr = upperCSR();
+		for(int i=0;i<rows;i++){
+			float [] xi = x[i];
+			float [] yi = y[i];
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				int j = csr.columnIndices[p];
+				float v = csr.values[p];
+				float [] xj = x[j];
+				for(int c=0;c<width;c++)
+					yi[c] += v*xj[c];
+				if(j!=i){
+					float [] yj = y[j];
+					for(int c=0;c<width;c++)
+						yj[c] += v*xi[c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Only the upper triangle is stored: row <tt>i</tt> is read from the elements <tt>(k,i)</tt> of the upper triangle with <tt>k&lt;i</tt>,
+	 * followed by row <tt>i</tt> of the upper triangle. Both are found in an index of the positions of the elements of the upper triangle,
+	 * so the values of the lower triangle are never copied. The product is computed as in {@link MatrixCSR#multiply(MatrixCSR, MatrixCSR)}.
+	 */
+	@Override
+	public Matrix fastMult(Matrix m1) {
+		if(columns!=m1.rowSize())
+			throw new ArrayIndexOutOfBoundsException();
+		MatrixCSR csr = upperCSR();
+		int [] pointers = new int[rows+1];
+		for(int i=0;i<rows;i++)
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				int j = csr.columnIndices[p];
+				pointers[i+1]++;
+				if(j!=i)
+					pointers[j+1]++;
+			}
+		for(int i=0;i<rows;i++)
+			pointers[i+1] += pointers[i];
+		int [] next = Arrays.copyOf(pointers, rows);
+		int [] indices = new int[pointers[rows]];
+		int [] positions = new int[pointers[rows]];
+		//the rows are visited in order, so the elements below the diagonal of each row are placed first
+		for(int i=0;i<rows;i++)
+			for(int p=csr.rowPointers[i];p<csr.rowPointers[i+1];p++){
+				int j = csr.columnIndices[p];
+				int q = next[i]++;
+				indices[q] = j;
+				positions[q] = p;
+				if(j!=i){
+					q = next[j]++;
+					indices[q] = i;
+					positions[q] = p;
+				}
+			}
+		MatrixCSR.Rows left = new MatrixCSR.Rows(rows, columns, pointers, indices, positions, csr.values);
+		MatrixCSR.Rows right = new MatrixCSR.Rows(toCSR(m1), false);
+		return FactoryMatrixHolder.getFactory().createMatrix(MatrixCSR.multiply(1, left, right, 0, null, 0, 0));
+	}
+
+	@Override
+	public Collection<Integer> getRows() {
+		buildLowerIndex();
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int i=0;i<rows;i++)
+			if(lowerPointers[i+1]>lowerPointers[i] || upper.getNonZerosRow(i)>0)
+				aux.add(i);
+		return aux;
+	}
+
+	/**
+	 * The columns before the diagonal are sorted, followed by the columns of the upper triangle in the order of its representation.
+	 * As with the representation of the upper triangle, the columns of a dense representation include the zeros.
+	 */
+	@Override
+	public Collection<Integer> getColumns(int row) {
+		buildLowerIndex();
+		int [] pointers = lowerPointers;
+		int [] indices = lowerIndices;
+		Collection<Integer> aux = new ArrayList<Integer>();
+		for(int p=pointers[row];p<pointers[row+1];p++)
+			if(indices[p]!=row)
+				aux.add(indices[p]);
+		for(int j:upper.getColumns(row))
+			if(j>=row)
+				aux.add(j);
+		return aux;
+	}
+
+	@Override
+	public void updateSparsity() {
+		upper.updateSparsity();
+		long diagonal = 0;
+		for(int i=0;i<rows;i++)
+			if(upper.getValue(i, i)!=0)
+				diagonal++;
+		nonZeros = 2*upper.getNonZeros()-diagonal;
+	}
+
+	@Override
+	public List<Integer> getSortedRows() {
+		final int [] rowCount = new int[rows];
+		for(int i=0;i<rows;i++)
+			rowCount[i] = getColumns(i).size();
+
+		List<Integer> aux=new ArrayList<Integer>(rows);
+		for(int i=0;i<rows;i++)
+			aux.add(i,i);
+
+		Collections.sort(aux, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Integer.compare(rowCount[o2], rowCount[o1]);
+			}
+		});
+		return aux;
+	}
+
+	/**
+	 * Sets both the row and the column <tt>i</tt>.
+	 */
+	@Override
+	public synchronized void setRow(int i, Matrix matrix) {
+		for(int j:getColumns(i))
+			setValue(i, j, 0);
+		for(int j:matrix.getColumns(i))
+			setValue(i, j, matrix.getValue(i, j));
+	}
+
+	@Override
+	public boolean isDiagonal() {
+		return upper.isDiagonal();
+	}
+
+	@Override
+	public void invertDiagonal() {
+		upper.invertDiagonal();
+	}
+
+	@Override
+	public boolean isSingular() {
+		return upper.isSingular();
+	}
+
+	/**
+	 * Replaces the upper triangle by the one of the other Matrix, so the solution of a system can only be stored when it is symmetric.
+	 * As the solution is computed in floating point, the elements <tt>(i,j)</tt> and <tt>(j,i)</tt> are compared relative to their magnitude.
+	 * @throws IllegalArgumentException when the other Matrix is not symmetric
+	 */
+	@Override
+	protected void copyFrom(Matrix m) {
+		if(m.rowSize()!=rows || m.columnSize()!=columns)
+			throw new ArrayIndexOutOfBoundsException("The dimensions of the Matrix cannot be changed.");
+		for(int i:m.getRows())
+			for(int j:m.getColumns(i)){
+				float a = m.getValue(i, j);
+				float b = m.getValue(j, i);
+				if(Math.abs(a-b) > Configuration.tolerance*Math.max(Math.abs(a), Math.abs(b)))
+					throw new IllegalArgumentException("A symmetric matrix can only hold symmetric values.");
+			}
+		upper = new MatrixSymmetric(m).upper;
+		lowerPointers = null;
+		updateSparsity();
+	}
+
+}
@@ -142,6 +142,16 @@ public class MatrixThreshold extends Matrix{
 		return elements.fastTrans();
 	}
 
+	@Override
+	public void fastMult(float [] x, float [] y){
+		elements.fastMult(x, y);
+	}
+
+	@Override
+	public void fastMult(float [][] x, float [][] y){
+		elements.fastMult(x, y);
+	}
+
 	@Override
 	public Matrix fastMult(Matrix m1) {
 		return elements.fastMult(m1);
@@ -0,0 +1,344 @@
+/*
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package matrix.matrixImpl;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates one row of a sparse multiplication following Gustavson's algorithm. For each non-zero element <tt>(i,k)</tt>
+ * of the left matrix, the row <tt>k</tt> of the right matrix is scaled and added to the accumulator with {@link #scatter(float, MatrixCSR, int)},
+ * and then the resulting row <tt>i</tt> is written with {@link #gather(int, Matrix)}. Hence, the cost of the multiplication is proportional
+ * to the number of multiplications actually needed instead of to the number of columns of the right matrix.
+ * <br>
+ * By default, the accumulator holds a dense array with one position per column, and remembers which of them were touched by the current row,
+ * so that it does not need to be cleared between rows. When the number of products of a row is known to be small compared to the number of columns,
+ * see {@link #reserve(long)}, the row is accumulated in an open addressing hash table sized for those products instead, which stays in the cache.
+ * The dense arrays are only allocated once a row needs them.
+ * <br>
+ * It is not thread-safe, each thread has to use its own accumulator. {@link #forThread(int)} returns one that is kept by the thread and reused
+ * across rows and multiplications.
+ * @author Antonela Tommasel
+ *
+ */
+public class SparseAccumulator {
+
+	/**
+	 * Rows whose number of products, multiplied by this factor, does not reach the number of columns are accumulated in the hash table.
+	 */
+	static final int DENSE_FRACTION = 16;
+
+	private static final ThreadLocal<SparseAccumulator> accumulators = new ThreadLocal<SparseAccumulator>();
+
+	private int columns;
+
+	private float [] accumulator;
+	private int [] marker;
+	private int current;
+
+	private boolean hashing;
+	private int [] keys;
+	private float [] entries;
+	private int [] slots;
+	private int mask;
+
+	private int [] touched;
+	private int size;
+	private float [] magnitudes;
+
+	/**
+	 * Creates an accumulator for rows of the given number of columns.
+	 * @param columns number of columns of the rows to accumulate
+	 */
+	public SparseAccumulator(int columns) {
+		this.columns = columns;
+		touched = new int[16];
+		size = 0;
+		current = 1;
+	}
+
+	/**
+	 * Returns the accumulator of the current thread, adapted to rows of the given number of columns. The accumulator is created the first time
+	 * and then kept, so that its arrays are reused by the following rows and multiplications of the thread. Any row being accumulated is discarded.
+	 * @param columns number of columns of the rows to accumulate
+	 * @return the accumulator of the current thread
+	 */
+	public static SparseAccumulator forThread(int columns){
+		SparseAccumulator a = accumulators.get();
+		if(a == null){
+			a = new SparseAccumulator(columns);
+			accumulators.set(a);
+			return a;
+		}
+		a.clear();
+		a.columns = columns;
+		if(a.accumulator != null && a.accumulator.length < columns){ //they are allocated again when a row needs them
+			a.accumulator = null;
+			a.marker = null;
+		}
+		return a;
+	}
+
+	/**
+	 * Chooses how the current row is accumulated, given an estimation of the number of products it adds, e.g. the sum of the lengths of the rows
+	 * of the right matrix to scatter. Small rows use the hash table, the others the dense arrays. It has to be called before adding the first value of the row.
+	 * @param flops estimated number of values to add to the row
+	 */
+	public void reserve(long flops){
+		if(flops*DENSE_FRACTION >= columns){
+			hashing = false;
+			return;
+		}
+		int capacity = 16;
+		while(capacity < 2*flops)
+			capacity <<= 1;
+		if(keys == null || keys.length < capacity){
+			keys = new int[capacity];
+			Arrays.fill(keys, -1);
+			entries = new float[capacity];
+			slots = new int[capacity];
+			if(touched.length < capacity)
+				touched = new int[capacity];
+		}
+		mask = keys.length-1;
+		hashing = true;
+	}
+
+	private void dense(){
+		if(accumulator == null){
+			accumulator = new float[columns];
+			marker = new int[columns];
+		}
+		if(touched.length < columns)
+			touched = new int[columns];
+	}
+
+	/**
+	 * @return the slot of the hash table holding the column, or the empty slot in which it would be inserted
+	 */
+	private int slot(int j){
+		int h = j * 0x9E3779B9;
+		int s = (h ^ (h >>> 16)) & mask;
+		while(keys[s] != -1 && keys[s] != j)
+			s = (s+1) & mask;
+		return s;
+	}
+
+	private void put(int j, float v){
+		int s = slot(j);
+		if(keys[s] == j){
+			entries[s] += v;
+			return;
+		}
+		keys[s] = j;
+		entries[s] = v;
+		slots[size] = s;
+		touched[size++] = j;
+		if(2*size > keys.length) //the estimation was exceeded
+			grow();
+	}
+
+	private void grow(){
+		int [] oldKeys = keys;
+		float [] oldEntries = entries;
+		keys = new int[oldKeys.length*2];
+		Arrays.fill(keys, -1);
+		entries = new float[keys.length];
+		slots = Arrays.copyOf(slots, keys.length);
+		if(touched.length < keys.length)
+			touched = Arrays.copyOf(touched, keys.length);
+		mask = keys.length-1;
+		for(int t=0;t<size;t++){
+			int s = slot(touched[t]);
+			keys[s] = touched[t];
+			entries[s] = oldEntries[slots[t]];
+			slots[t] = s;
+		}
+	}
+
+	/**
+	 * @return the accumulated value of a column touched by the current row
+	 */
+	private float value(int j){
+		return hashing ? entries[slot(j)] : accumulator[j];
+	}
+
+	/**
+	 * Adds a value to a column of the current row.
+	 * @param j column of the value
+	 * @param v value to add
+	 */
+	public void add(int j, float v){
+		if(hashing){
+			put(j, v);
+			return;
+		}
+		if(marker == null)
+			dense();
+		if(marker[j]!=current){
+			marker[j] = current;
+			accumulator[j] = v;
+			touched[size++] = j;
+		}
+		else
+			accumulator[j] += v;
+	}
+
+	/**
+	 * Adds the row <tt>k</tt> of the Matrix multiplied by <tt>alfa</tt> to the current row.
+	 * @param alfa value by which the row is multiplied
+	 * @param m Matrix containing the row
+	 * @param k row to add
+	 */
+	public void scatter(float alfa, MatrixCSR m, int k){
+		int [] columnIndices = m.columnIndices;
+		float [] values = m.values;
+		if(hashing){
+			for(int q=m.rowPointers[k];q<m.rowPointers[k+1];q++)
+				put(columnIndices[q], alfa*values[q]);
+			return;
+		}
+		if(marker == null)
+			dense();
+		for(int q=m.rowPointers[k];q<m.rowPointers[k+1];q++){
+			int j = columnIndices[q];
+			if(marker[j]!=current){
+				marker[j] = current;
+				accumulator[j] = alfa*values[q];
+				touched[size++] = j;
+			}
+			else
+				accumulator[j] += alfa*values[q];
+		}
+	}
+
+	/**
+	 * Returns the number of columns touched by the current row, including those whose values were cancelled out.
+	 * @return the number of columns touched by the current row
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Writes the non-zero elements of the current row in the given row of the Matrix, in increasing order of columns, and starts a new row.
+	 * @param row row of the Matrix in which the values are written
+	 * @param res Matrix in which the values are written
+	 * @return the number of non-zero elements written
+	 */
+	public int gather(int row, Matrix res){
+		Arrays.sort(touched, 0, size);
+		int nnz = 0;
+		for(int t=0;t<size;t++){
+			int j = touched[t];
+			float v = value(j);
+			if(v!=0){
+				res.setValue(row, j, v);
+				nnz++;
+			}
+		}
+		clear();
+		return nnz;
+	}
+
+	/**
+	 * Writes the non-zero elements of the current row in the given arrays starting at offset, in increasing order of columns, and starts a new row.
+	 * The arrays need room for {@link #size()} elements after offset.
+	 * @param columns array in which the columns are written
+	 * @param values array in which the values are written
+	 * @param offset position of the arrays in which the first element is written
+	 * @return the number of non-zero elements written
+	 */
+	public int gather(int [] columns, float [] values, int offset){
+		Arrays.sort(touched, 0, size);
+		int p = offset;
+		for(int t=0;t<size;t++){
+			int j = touched[t];
+			float v = value(j);
+			if(v!=0){
+				columns[p] = j;
+				values[p] = v;
+				p++;
+			}
+		}
+		clear();
+		return p-offset;
+	}
+
+	/**
+	 * Writes the elements of the current row whose absolute value is at least tolerance in the given arrays starting at offset, in increasing order
+	 * of columns, and starts a new row. When top is positive, only the top elements with the largest absolute values are written.
+	 * The arrays need room for {@link #size()} elements after offset, or for top elements if top is positive and smaller.
+	 * @param columns array in which the columns are written
+	 * @param values array in which the values are written
+	 * @param offset position of the arrays in which the first element is written
+	 * @param tolerance minimum absolute value of the elements to write
+	 * @param top maximum number of elements to write, or 0 for no limit
+	 * @return the number of elements written
+	 */
+	public int gather(int [] columns, float [] values, int offset, float tolerance, int top){
+		int n = 0;
+		for(int t=0;t<size;t++){ //the kept columns are moved to the beginning of touched
+			int j = touched[t];
+			float v = value(j);
+			if(v!=0 && Math.abs(v)>=tolerance)
+				touched[n++] = j;
+		}
+		float cut = 0;
+		int ties = n;
+		if(top>0 && n>top){
+			if(magnitudes == null || magnitudes.length < n)
+				magnitudes = new float[touched.length];
+			for(int t=0;t<n;t++)
+				magnitudes[t] = Math.abs(value(touched[t]));
+			Arrays.sort(magnitudes, 0, n);
+			cut = magnitudes[n-top]; //the smallest magnitude kept
+			ties = 0; //elements equal to the cut that still fit
+			for(int t=n-top;t<n && magnitudes[t]==cut;t++)
+				ties++;
+		}
+		Arrays.sort(touched, 0, n);
+		int p = offset;
+		for(int t=0;t<n;t++){
+			int j = touched[t];
+			float v = value(j);
+			float a = Math.abs(v);
+			if(a>cut || (a==cut && ties-- > 0)){
+				columns[p] = j;
+				values[p] = v;
+				p++;
+			}
+		}
+		clear();
+		return p-offset;
+	}
+
+	/**
+	 * Discards the current row and starts a new one, which is accumulated in the dense arrays unless {@link #reserve(long)} chooses otherwise.
+	 */
+	public void clear(){
+		if(hashing) //the slots of all the touched columns are kept in slots, even if touched was compacted or sorted
+			for(int t=0;t<size;t++)
+				keys[slots[t]] = -1;
+		hashing = false;
+		size = 0;
+		current++;
+		if(current==0){ //after an overflow, the old marks could be confused with the new ones
+			if(marker != null)
+				Arrays.fill(marker, 0);
+			current = 1;
+		}
+	}
+}
@@ -47,14 +47,10 @@ public class CoPost extends TangSelection{
 		Configuration.logger.info("---- Starts B "+new Date());
 		
 		Matrix A = data.getPcoPost();
-		A = algebra.multiplyByTranspose(algebra.transpose(A)); // Pt x P -- Matrix Multiplication I
+		A = algebra.transposeMultiply(A); // Pt x P -- Matrix Multiplication I
 		A = algebra.laplacian(A); // Laplacian A -- Addition-Subtraction I & Addition-Subtraction II
 
-		Matrix aux = algebra.multiply(beta, data.getXpostFeature()); //beta x F 
-		aux = algebra.multiply(aux, A); //Matrix Multiplication II
-
-		Matrix Ftrans = algebra.transpose(data.getFpostFeature()); 
-		aux = algebra.multiply(aux,Ftrans); //Matrix Multiplication III
+		Matrix aux = algebra.multiplyChain(beta, new Matrix[]{data.getXpostFeature(), A, data.getFpostFeature()}, new boolean[]{false, false, true}); //beta x X x A x Ft -- Matrix Multiplication II & III, in the cheapest order, without transposing F
 
 		Matrix X = algebra.multiplyByTranspose(data.getXpostFeature()); //Matrix Multiplication IV 
 		Matrix B = algebra.add(X, aux); //Addition-Subtraction III
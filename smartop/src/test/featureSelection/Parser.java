@@ -28,6 +28,7 @@ import java.util.HashSet;
 import matrix.adapterDistribution.Configuration;
 import matrix.factory.FactoryMatrixHolder;
 import matrix.factory.FactoryMatrixSparseHash;
+import matrix.factory.MatrixBuilder;
 import matrix.matrixImpl.Matrix;
 
 /**
@@ -105,15 +106,16 @@ public abstract class Parser implements Serializable, IntData{
 
 		if(XpostFeature==null){
 
-			XpostFeature = FactoryMatrixHolder.getFactory().createMatrix(features.size(),posts.size());
+			MatrixBuilder builder = new MatrixBuilder(features.size(),posts.size());
 
 			HashMap<String,Integer> f = null;
 
 			for(String k:postFeatures.keySet()){
 				f=postFeatures.get(k);
 				for(String e:f.keySet())
-					XpostFeature.setValue(Integer.parseInt(e), posts.get(k), f.get(e));
+					builder.add(Integer.parseInt(e), posts.get(k), f.get(e));
 			}
+			XpostFeature = builder.build();
 		}
 
 		Configuration.logger.info("Finishes X "+new Date());
@@ -126,10 +128,11 @@ public abstract class Parser implements Serializable, IntData{
 
 		Configuration.logger.info("Starts Y "+new Date());
 		if(YpostCats==null){
-			YpostCats=FactoryMatrixHolder.getFactory().createMatrix(posts.size(),clases.size());
+			MatrixBuilder builder = new MatrixBuilder(posts.size(),clases.size(),postCats.size());
 
 			for(String k:postCats.keySet())
-				YpostCats.setValue(posts.get(k), clases.get(postCats.get(k)), 1);
+				builder.add(posts.get(k), clases.get(postCats.get(k)), 1);
+			YpostCats=builder.buildPattern();
 
 		}
 		Configuration.logger.info("Finishes Y "+new Date());
@@ -145,16 +148,15 @@ public abstract class Parser implements Serializable, IntData{
 		Configuration.logger.info("Starts S "+new Date());
 		if(SuserUser==null){
 
-			SuserUser=FactoryMatrixHolder.getFactory().createMatrix(users.size(), users.size());
+			MatrixBuilder builder = new MatrixBuilder(users.size(), users.size());
 
-			ArrayList<String> u=null;
 			for(String k:userUser.keySet()){
-				u=userUser.get(k);
-				for(int i=0;i<u.size();i++){
-					SuserUser.setValue(users.get(u.get(i)), users.get(k), 1);
+				for(String i:userUser.get(k)){ //repeated relations are kept once in the pattern
+					builder.add(users.get(i), users.get(k), 1);
 				}
 
 			}
+			SuserUser=builder.buildPattern();
 
 		}
 		Configuration.logger.info("Finishes S "+new Date());
@@ -165,14 +167,15 @@ public abstract class Parser implements Serializable, IntData{
 	public Matrix getPcoPost(){ //user,posts
 		Configuration.logger.info("Starts P "+new Date());
 		if(PcoPost==null){
-			PcoPost=FactoryMatrixHolder.getFactory().createMatrix(users.size(),posts.size());
+			MatrixBuilder builder = new MatrixBuilder(users.size(),posts.size());
 			HashSet<String> u=null;
 
 			for(String k:userPost.keySet()){
 				u=userPost.get(k);
 				for(String i:u)
-					PcoPost.setValue(users.get(k), posts.get(i), 1);
+					builder.add(users.get(k), posts.get(i), 1);
 			}
+			PcoPost=builder.buildPattern();
 		}
 		Configuration.logger.info("Finishes P "+new Date());
 		return PcoPost;
@@ -181,15 +184,16 @@ public abstract class Parser implements Serializable, IntData{
 	public Matrix getH() {
 		Configuration.logger.info("Starts H "+new Date());
 		if(H==null){
-			H=FactoryMatrixHolder.getFactory().createMatrix(posts.size(), users.size());
+			MatrixBuilder builder = new MatrixBuilder(posts.size(), users.size());
 
 			HashSet<String> u=null;
 
 			for(String k:userPost.keySet()){
 				u=userPost.get(k);
 				for(String i:u)
-					H.setValue(posts.get(i), users.get(k), 1.0f/(float) u.size());
+					builder.add(posts.get(i), users.get(k), 1.0f/(float) u.size());
 			}
+			H=builder.build();
 		}
 		Configuration.logger.info("Finishes H "+new Date());
 		return H;
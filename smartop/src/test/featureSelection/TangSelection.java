@@ -37,19 +37,28 @@ import matrix.distributionPolicy.TaskSplitPolicyMode;
 import matrix.distributionPolicy.TaskSplitPolicyRowSparseness;
 import matrix.distributionPolicy.TaskSplitPolicyST;
 import matrix.distributionPolicy.TaskSplitPolicyStatic;
+import matrix.factorization.Factorization;
+import matrix.factorization.OrderingApproximateMinimumDegree;
+import matrix.factorization.OrderingReverseCuthillMcKee;
+import matrix.factory.FactoryMatrixBCSR;
+import matrix.factory.FactoryMatrixCSR;
 import matrix.factory.FactoryMatrixHolder;
+import matrix.factory.FactoryMatrixOffHeap;
 import matrix.factory.FactoryMatrixSparse;
 import matrix.factory.FactoryMatrixSparseHash;
 import matrix.factory.FactoryMatrixSparseHashPar;
 import matrix.factory.FactoryMatrixThreshold;
 import matrix.factory.FactoryMatrixTrove;
 import matrix.factory.FactoryMatrixTrovePar;
+import matrix.iterative.ConjugateGradient;
+import matrix.iterative.PreconditionerIncompleteCholesky;
 import matrix.matrixComp.MatrixComputation;
 import matrix.matrixComp.MatrixComputationFD;
 import matrix.matrixComp.MatrixComputationSparseDistributedDynamic;
 import matrix.matrixComp.MatrixComputationSparseDistributedDynamicSorted;
 import matrix.matrixComp.MatrixComputationSparsePar;
 import matrix.matrixImpl.Matrix;
+import matrix.matrixImpl.MatrixDiagonal;
 
 /**
  * This class implements the Feature Selection technique as described in "Feature Selection with Linked Data in Social Media".
@@ -71,6 +80,11 @@ public abstract class TangSelection {
 	private float alfa;
 	protected float beta;
 	private int max_iterations = 100;
+	private int max_solver_iterations = 1000;
+	private boolean directSolver = false;
+	private boolean iterativeSolver = false;
+	private float solverTolerance = Configuration.tolerance;
+	private Factorization factorization;
 
 	/**
 	 * Class Constructor
@@ -86,6 +100,27 @@ public abstract class TangSelection {
 		this.beta = beta;
 	}
 
+	/**
+	 * Chooses how the system of each iteration is solved. By default, it is solved by means of {@link MatrixComputation#solveSystem(Matrix, Matrix)}.
+	 * The direct solver keeps the factorization instead, and as Dw only changes its diagonal, the factorization of the first iteration is 
+	 * factorized again in the following ones, reusing its symbolic analysis.
+	 * @param directSolver whether the systems are solved by means of a factorization reused across iterations
+	 */
+	public void setDirectSolver(boolean directSolver) {
+		this.directSolver = directSolver;
+	}
+
+	/**
+	 * Chooses to solve the system of each iteration by means of the preconditioned conjugate gradient, which only needs products by B+alfa*Dw.
+	 * The algorithm fails if a system does not reach the tolerance within the maximum number of iterations of the solver.
+	 * @param iterativeSolver whether the systems are solved by means of the conjugate gradient
+	 * @param tolerance the relative norm of the residual below which a system is considered solved
+	 */
+	public void setIterativeSolver(boolean iterativeSolver, float tolerance) {
+		this.iterativeSolver = iterativeSolver;
+		this.solverTolerance = tolerance;
+	}
+
 	/**
 	 * Implements the complete Feature Selection algorithm returning a {@link List} with the codes of the selected features
 	 * @param data contains all the needed information regarding the data involved in the computation
@@ -97,8 +132,7 @@ public abstract class TangSelection {
 		Matrix B = computeB(data);
 
 		
-//		Matrix Dw = FactoryMatrixHolder.getFactory().createMatrix(B.rowSize(), B.columnSize());
-//		setIdentity(Dw);
+//		Matrix Dw = MatrixDiagonal.identity(B.rowSize());
 //
 //		Matrix E = computeE(data);
 //
@@ -222,10 +256,28 @@ public abstract class TangSelection {
 
 		Matrix wt1; // Wt1=((B+alfa*Dw)^-1)*Et
 
-		dw = algebra.multiply(alfa, dw);
-		wt1 = algebra.add(b, dw);
-		wt1 = algebra.invert(wt1);
-		wt1 = algebra.multiply(wt1, e);
+		wt1 = algebra.add(b, alfa, dw); //the scaled Dw is not built
+		if(directSolver){
+			//the pattern of B+alfa*Dw rarely changes between iterations, so only the numeric factorization is repeated
+			if(factorization!=null)
+				try{
+					if(factorization.factorize(wt1))
+						return factorization.solve(e);
+				}catch(IllegalArgumentException ex){
+					//new non-zero elements outside the analysed pattern, so the analysis is redone
+				}
+			factorization = algebra.factorize(wt1);
+			return factorization.solve(e);
+		}
+		if(iterativeSolver){
+			//B+alfa*Dw is symmetric positive definite, so only products by it are needed
+			ConjugateGradient cg = new ConjugateGradient(wt1, new PreconditionerIncompleteCholesky(wt1), solverTolerance, max_solver_iterations);
+			wt1 = cg.solve(e);
+			if(!cg.hasConverged())
+				throw new RuntimeException("The conjugate gradient did not converge in "+max_solver_iterations+" iterations.");
+			return wt1;
+		}
+		wt1 = algebra.solveSystem(wt1, e); //only the columns of Et are solved, the inverse is never formed
 
 		return wt1;
 
@@ -250,8 +302,7 @@ public abstract class TangSelection {
 		Matrix Y = datos.getYpostCats();
 		Matrix X = datos.getXpostFeature();
 
-		Matrix E = algebra.multiply(Y, X);
-		E = algebra.transpose(E);
+		Matrix E = algebra.multiply(X, Y, true, true); //(Y x X)^t = X^t x Y^t
 
 		return E;
 
@@ -317,6 +368,21 @@ public abstract class TangSelection {
 									FactoryMatrixHolder.setFactory(new FactoryMatrixTrovePar());
 									Configuration.MAX_THREADS = Integer.parseInt(prop.getProperty("max_threads"));
 									algebra=new MatrixComputationSparsePar();
+								} else
+								if(mat.equalsIgnoreCase("csr")){
+									FactoryMatrixHolder.setFactory(new FactoryMatrixCSR());
+									Configuration.MAX_THREADS = Integer.parseInt(prop.getProperty("max_threads"));
+									algebra=new MatrixComputationSparsePar();
+								} else
+								if(mat.equalsIgnoreCase("offheap")){
+									FactoryMatrixHolder.setFactory(new FactoryMatrixOffHeap());
+									Configuration.MAX_THREADS = Integer.parseInt(prop.getProperty("max_threads"));
+									algebra=new MatrixComputationSparsePar();
+								} else
+								if(mat.equalsIgnoreCase("bcsr")){
+									FactoryMatrixHolder.setFactory(new FactoryMatrixBCSR());
+									Configuration.MAX_THREADS = Integer.parseInt(prop.getProperty("max_threads"));
+									algebra=new MatrixComputationSparsePar();
 								} else
 									if (mat.equalsIgnoreCase("sparsehashpardistributed")								
 											|| mat.equalsIgnoreCase("sparsetrovepardistributed")) {
@@ -444,6 +510,17 @@ public abstract class TangSelection {
 				if (str.equalsIgnoreCase("copost"))
 					t = new CoPost(algebra, epsilon, alfa, beta);
 
+				String solver = prop.getProperty("solver");
+				t.setDirectSolver("direct".equalsIgnoreCase(solver));
+				if("iterative".equalsIgnoreCase(solver))
+					t.setIterativeSolver(true, Float.parseFloat(prop.getProperty("solver-tolerance")));
+				String ordering = prop.getProperty("ordering");
+				if("amd".equalsIgnoreCase(ordering))
+					Configuration.ordering = new OrderingApproximateMinimumDegree();
+				else
+					if("rcm".equalsIgnoreCase(ordering))
+						Configuration.ordering = new OrderingReverseCuthillMcKee();
+
 				Configuration.logger.info(t.toString());
 
 				str = null;
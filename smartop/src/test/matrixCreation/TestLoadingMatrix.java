@@ -15,12 +15,14 @@
  */
 package test.matrixCreation;
 
+import java.io.IOException;
+
 import matrix.factory.FactoryMatrixHolder;
 import matrix.factory.FactoryMatrixSparseHash;
 import matrix.matrixImpl.Matrix;
 
 /**
- * Example of how to load and save a Matrix from a CSV file.
+ * Example of how to load and save a Matrix from a CSV file and from a binary file.
  * @author Anto
  *
  */
@@ -28,8 +30,9 @@ public class TestLoadingMatrix {
 
 	/**
 	 * @param args no parameters are needed
+	 * @throws IOException when the binary file cannot be written
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		
 		//setting of the matrix holder
 		FactoryMatrixHolder.setFactory(new FactoryMatrixSparseHash());
@@ -45,6 +48,13 @@ public class TestLoadingMatrix {
 		
 		System.out.println(B);
 		
+		//Saving the Matrix in the binary format, which is mapped into memory instead of parsed when loaded
+		A.saveToBinary("matrixA.bin");
+		
+		Matrix C = FactoryMatrixHolder.getFactory().createMatrix("matrixA.bin");
+		
+		System.out.println(C);
+		
 	}
 	
 }
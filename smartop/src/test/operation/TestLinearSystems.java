@@ -0,0 +1,123 @@
+/* 
+ *  Copyright 2016 ISISTAN - UNICEN - CONICET
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.operation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import matrix.factorization.OrderingApproximateMinimumDegree;
+import matrix.factorization.SupernodalCholesky;
+import matrix.factory.FactoryMatrixCSR;
+import matrix.factory.FactoryMatrixHolder;
+import matrix.iterative.PreconditionerIncompleteCholesky;
+import matrix.matrixComp.MatrixComputation;
+import matrix.matrixComp.MatrixComputationSparsePar;
+import matrix.matrixImpl.Matrix;
+
+/**
+ * Example of how to solve a symmetric positive definite system, both with the sparse Cholesky factorization and with the conjugate gradient.
+ * The Matrix is the Laplacian of a grid whose nodes are numbered at random, and each solution is checked by its residual <tt>||A x X - B||</tt>.
+ * @author Anto
+ *
+ */
+public class TestLinearSystems {
+
+	/**
+	 * @param args no parameters are needed
+	 */
+	public static void main(String[] args) {
+		
+		//setting of the matrix holder
+		FactoryMatrixHolder.setFactory(new FactoryMatrixCSR());
+		
+		MatrixComputation algebra = new MatrixComputationSparsePar();
+		
+		Matrix A = gridLaplacian(30, new Random(42));
+		
+		Matrix B = FactoryMatrixHolder.getFactory().createMatrix(A.rowSize(), 3);
+		Random random = new Random(7);
+		for(int i=0;i<B.rowSize();i++)
+			for(int j=0;j<B.columnSize();j++)
+				B.setValue(i, j, random.nextFloat());
+		
+		//Solving with the Cholesky factorization, ordered to reduce the fill-in
+		SupernodalCholesky cholesky = SupernodalCholesky.factorize(A, new OrderingApproximateMinimumDegree());
+		if(cholesky == null)
+			throw new IllegalStateException("The Laplacian could not be factorized.");
+		check("Cholesky", algebra, A, cholesky.solve(B), B, 1e-4f);
+		
+		//Solving with the conjugate gradient, preconditioned by the incomplete Cholesky factorization
+		Matrix X = algebra.solveIterative(A, B, new PreconditionerIncompleteCholesky(A), 1e-5f, 1000);
+		check("Conjugate gradient", algebra, A, X, B, 1e-4f);
+		
+	}
+	
+	/**
+	 * Builds the Laplacian of a n x n grid with a fixed value on its border, i.e. 4 in the diagonal and -1 for each neighbour, 
+	 * numbering the nodes at random so that the natural order is not the best one.
+	 */
+	private static Matrix gridLaplacian(int n, Random random){
+		int size = n*n;
+		int [] node = new int[size];
+		for(int i=0;i<size;i++)
+			node[i] = i;
+		for(int i=size-1;i>0;i--){
+			int j = random.nextInt(i+1);
+			int aux = node[i];
+			node[i] = node[j];
+			node[j] = aux;
+		}
+		
+		int [] ri = new int[5*size];
+		int [] ci = new int[5*size];
+		float [] v = new float[5*size];
+		int nnz = 0;
+		for(int x=0;x<n;x++)
+			for(int y=0;y<n;y++){
+				int i = node[x*n+y];
+				ri[nnz] = i;
+				ci[nnz] = i;
+				v[nnz++] = 4;
+				int [][] neighbours = {{x-1,y},{x+1,y},{x,y-1},{x,y+1}};
+				for(int [] neighbour:neighbours)
+					if(neighbour[0]>=0 && neighbour[0]<n && neighbour[1]>=0 && neighbour[1]<n){
+						ri[nnz] = i;
+						ci[nnz] = node[neighbour[0]*n+neighbour[1]];
+						v[nnz++] = -1;
+					}
+			}
+		return FactoryMatrixHolder.getFactory().createMatrix(size, size, Arrays.copyOf(ri, nnz), Arrays.copyOf(ci, nnz), Arrays.copyOf(v, nnz));
+	}
+	
+	/**
+	 * Checks that the norm of the residual <tt>A x X - B</tt> relative to the norm of B is below the tolerance.
+	 */
+	private static void check(String name, MatrixComputation algebra, Matrix A, Matrix X, Matrix B, float tolerance){
+		float residual = norm(algebra.add(algebra.multiply(A, X), -1, B)) / norm(B);
+		System.out.println(name+" relative residual: "+residual);
+		if(!(residual<=tolerance))
+			throw new IllegalStateException(name+" did not solve the system, its relative residual is "+residual);
+	}
+	
+	private static float norm(Matrix m){
+		double sum = 0;
+		for(int i:m.getRows())
+			for(int j:m.getColumns(i))
+				sum += m.getValue(i, j)*m.getValue(i, j);
+		return (float) Math.sqrt(sum);
+	}
+	
+}